@@ -0,0 +1,57 @@
+package com.example.chatapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bağlanılacak MCP sunucuları
+ * mcp.servers boşsa tek sunucu olarak mcp.server.url kullanılır
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "mcp")
+public class McpServersConfig {
+
+    private List<Server> servers = new ArrayList<>();
+
+    /**
+     * Sunucu bazında belirtilmemişse kullanılan transport: jsonrpc veya rest
+     */
+    private String transport = "jsonrpc";
+
+    /**
+     * Sunucu bazında belirtilmemişse JSON-RPC yanıtları Smile (ikili JSON) olarak istenir;
+     * Smile sunmayan sunucular JSON döner
+     */
+    private boolean smile = true;
+
+    /**
+     * Katalog keşfinde bir sunucu için beklenecek en uzun süre
+     */
+    private long discoveryTimeoutMs = 5000;
+
+    @Data
+    public static class Server {
+        private String name;
+        private String url;
+        private String transport;
+        private Boolean smile;
+
+        /**
+         * Bu sunucuya ait bağlantı havuzunun boyutu (diğer sunuculardan bağımsız)
+         */
+        private int maxConnections = 20;
+
+        /**
+         * Havuz doluyken boş bağlantı için beklenecek en uzun süre
+         */
+        private long pendingAcquireTimeoutMs = 2000;
+
+        private long connectTimeoutMs = 5000;
+        private long responseTimeoutMs = 30000;
+    }
+}
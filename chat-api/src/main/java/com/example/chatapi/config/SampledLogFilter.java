@@ -0,0 +1,74 @@
+package com.example.chatapi.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Verilen logger'ların INFO ve altı olaylarını isteklerin yalnızca bir kısmı için tutar.
+ * Karar trace ID'den çıkarılır: seçilen istek baştan sona loglanır ve chat-api, order-api-mcp ve Order API
+ * aynı istekleri tutar. WARN/ERROR olayları ve istek dışındaki loglar (başlangıç, zamanlanmış işler) her zaman geçer.
+ * Mesaj biçimlendirilmeden önce çalışır.
+ */
+public class SampledLogFilter extends TurboFilter {
+
+    private List<String> loggers = List.of();
+    private double rate = 1.0;
+    private long threshold;
+
+    /**
+     * Örneklemenin uygulanacağı logger adı önekleri (virgülle ayrılmış)
+     */
+    public void setLoggers(String loggers) {
+        this.loggers = Arrays.stream(loggers.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Logları tutulan isteklerin oranı (0 ile 1 arası)
+     */
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public void start() {
+        // W3C trace ID'nin son 32 biti rastgeledir; değeri bu eşiğin altında kalan istekler tutulur
+        threshold = (long) (Math.max(0, Math.min(1, rate)) * (1L << 32));
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (rate >= 1.0 || level == null || level.isGreaterOrEqual(Level.WARN) || !applies(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        String traceId = MDC.get("traceId");
+        if (traceId == null || traceId.length() < 8) {
+            return FilterReply.NEUTRAL;
+        }
+        try {
+            long bucket = Long.parseLong(traceId, traceId.length() - 8, traceId.length(), 16);
+            return bucket < threshold ? FilterReply.NEUTRAL : FilterReply.DENY;
+        } catch (NumberFormatException e) {
+            return FilterReply.NEUTRAL;
+        }
+    }
+
+    private boolean applies(String loggerName) {
+        for (String prefix : loggers) {
+            if (loggerName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.chatapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Araç sonuçlarının modele gitmeden önce nasıl sadeleştirileceği (ToolResultShaper)
+ * UI'a giden functionsCalled[].response etkilenmez, sadece konuşma geçmişine yazılan metin değişir.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.tools.shaping")
+public class ToolResultShapingConfig {
+
+    private boolean enabled = true;
+
+    /**
+     * Araç adı -> modele gönderilecek alanlar; noktalı yollar listelerin elemanlarına uygulanır (items.itemName)
+     * Tanımı olmayan araçların sonucundaki tüm alanlar gönderilir.
+     * Çakışan adlar sunucu adıyla öneklense de (inventory__get_status) sunucudaki araç adıyla tanım yeterlidir;
+     * önekli adla verilen tanım önceliklidir.
+     */
+    private Map<String, List<String>> fields = new HashMap<>();
+
+    /**
+     * null değerli alanlar ve boş nesneler atılır
+     */
+    private boolean stripNulls = true;
+
+    /**
+     * Aynı yapıdaki nesnelerden oluşan listeler {"columns": [...], "rows": [[...]]} olarak yazılır
+     */
+    private boolean tabular = true;
+
+    /**
+     * Bir listeden modele gönderilecek en fazla eleman; kalanlar "more" sayısıyla belirtilir (0 = sınırsız)
+     */
+    private int maxRows = 20;
+
+    /**
+     * Saat dilimi olmayan ISO tarih-saat değerleri dakikaya kısaltılır (2026-10-17T06:50:22.551 -> 2026-10-17T06:50)
+     */
+    private boolean trimTimestamps = true;
+}
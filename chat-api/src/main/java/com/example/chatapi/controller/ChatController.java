@@ -1,15 +1,34 @@
 package com.example.chatapi.controller;
 
+import com.example.chatapi.exception.DeadlineExceededException;
+import com.example.chatapi.exception.RequestCancelledException;
 import com.example.chatapi.model.ChatRequest;
 import com.example.chatapi.model.ChatResponse;
+import com.example.chatapi.model.FunctionCallInfo;
+import com.example.chatapi.service.ConcurrencyLimiter;
+import com.example.chatapi.service.ContextExecutors;
+import com.example.chatapi.service.ConversationHistoryService;
 import com.example.chatapi.service.OpenAIService;
+import com.example.chatapi.service.RequestDeadline;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Slf4j
 @RestController
@@ -18,12 +37,90 @@ import java.util.UUID;
 public class ChatController {
 
     private final OpenAIService openAIService;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final ConversationHistoryService conversationHistoryService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.limiter.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    // Bir chat turunun en fazla süresi; istemci X-Request-Timeout-Ms ile daha kısa bir süre verebilir
+    @Value("${chat.request-timeout-ms:60000}")
+    private long requestTimeoutMillis;
+
+    // Turlar servlet thread'i dışında işlenir; eşzamanlı tur sayısı ConcurrencyLimiter ile zaten sınırlı
+    private final AtomicInteger turnThreads = new AtomicInteger();
+    // Sarmalayıcı, isteğin server span'ini tur thread'ine taşır
+    private final ExecutorService turnExecutor = ContextExecutors.wrap(Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "chat-turn-" + turnThreads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }));
+
+    @PreDestroy
+    public void shutdown() {
+        turnExecutor.shutdownNow();
+    }
 
     @PostMapping
-    public ResponseEntity<ChatResponse> chat(@Valid @RequestBody ChatRequest request) {
+    public DeferredResult<ResponseEntity<ChatResponse>> chat(@Valid @RequestBody ChatRequest request,
+                                                             @RequestHeader(value = RequestDeadline.HEADER, required = false) Long clientTimeoutMillis) {
+        long timeoutMillis = clientTimeoutMillis != null && clientTimeoutMillis > 0
+                ? Math.min(clientTimeoutMillis, requestTimeoutMillis) : requestTimeoutMillis;
+        // Tur kendi süresi dolunca 504 ile biter; async zaman aşımı sadece bir güvenlik payı
+        DeferredResult<ResponseEntity<ChatResponse>> result = new DeferredResult<>(timeoutMillis + 5000);
+
+        // Upstream yavaşladığında istekleri thread'lerde bekletmek yerine hemen reddet; devam eden oturumlar öncelikli
+        boolean continuing = request.getSessionId() != null && conversationHistoryService.hasSession(request.getSessionId());
+        if (!concurrencyLimiter.tryAcquire(continuing)) {
+            log.warn("Chat request shed (limit {}, continuing session: {})", concurrencyLimiter.getLimit(), continuing);
+            result.setResult(unavailable(request));
+            return result;
+        }
+
+        // İstemci bağlantıyı kapatırsa devam eden OpenAI/MCP istekleri kesilir ve sonraki adımlar yapılmaz.
+        // Kopma yalnızca container'ın bildirdiği bir I/O hatasıyla (AsyncListener.onError) anlaşılır; okunmamış girdi
+        // baytları (chunked gövde sonu, aynı bağlantıda sıradaki istek) kopma sayılmaz
+        RequestDeadline deadline = RequestDeadline.create(timeoutMillis);
+        result.onTimeout(deadline::cancel);
+        result.onError(error -> {
+            log.info("Client disconnected, cancelling chat turn: {}", error.toString());
+            deadline.cancel();
+        });
+
+        try {
+            turnExecutor.execute(() -> {
+                try {
+                    result.setResult(deadline.bind(() -> process(request)).get());
+                } finally {
+                    concurrencyLimiter.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Kapanış sırasında tur başlatılamaz; izin burada bırakılmazsa limit kalıcı olarak düşer
+            log.warn("Chat turn rejected: {}", e.getMessage());
+            concurrencyLimiter.release();
+            result.setResult(unavailable(request));
+        }
+        return result;
+    }
+
+    private ResponseEntity<ChatResponse> unavailable(ChatRequest request) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(ChatResponse.builder()
+                        .response("Şu anda yoğunluk yaşanıyor. Lütfen birkaç saniye sonra tekrar deneyin.")
+                        .sessionId(request.getSessionId())
+                        .functionsCalled(java.util.Collections.emptyList())
+                        .build());
+    }
+
+    private ResponseEntity<ChatResponse> process(ChatRequest request) {
         try {
-            log.info("Chat request received: message='{}', sessionId='{}'",
-                    request.getMessage(), request.getSessionId());
+            // Mesaj kişisel veri içerebilir; INFO'da yalnızca uzunluğu yazılır
+            log.info("Chat request received: {}, {}", kv("sessionId", request.getSessionId()),
+                    kv("messageLength", request.getMessage() != null ? request.getMessage().length() : 0));
+            log.debug("Chat message: '{}'", request.getMessage());
 
             // Session ID yoksa oluştur
             String sessionId = request.getSessionId() != null ?
@@ -32,10 +129,26 @@ public class ChatController {
             // OpenAI ile işle - artık ChatResponse döndürüyor
             ChatResponse chatResponse = openAIService.chat(request.getMessage(), sessionId);
 
-            log.info("Chat response: functionsCalled={}", chatResponse.getFunctionsCalled());
+            log.info("Chat response: {}", kv("functionsCalled", chatResponse.getFunctionsCalled().stream()
+                    .map(FunctionCallInfo::getFunctionName)
+                    .toList()));
 
             return ResponseEntity.ok(chatResponse);
 
+        } catch (RequestCancelledException e) {
+            meterRegistry.counter("chat.turn.abandoned", "reason", "client-disconnect").increment();
+            log.info("Chat turn abandoned: {}", e.getMessage());
+            // Yanıt gönderilemez, bağlantı kapalı
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+        } catch (DeadlineExceededException e) {
+            meterRegistry.counter("chat.turn.abandoned", "reason", "deadline").increment();
+            log.warn("Chat request abandoned: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                    .body(ChatResponse.builder()
+                            .response("İsteğiniz zaman aşımına uğradı. Lütfen tekrar deneyin.")
+                            .sessionId(request.getSessionId())
+                            .functionsCalled(java.util.Collections.emptyList())
+                            .build());
         } catch (Exception e) {
             log.error("Error processing chat request", e);
 
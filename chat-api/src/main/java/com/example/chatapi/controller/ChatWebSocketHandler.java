@@ -0,0 +1,372 @@
+package com.example.chatapi.controller;
+
+import com.example.chatapi.exception.DeadlineExceededException;
+import com.example.chatapi.exception.RequestCancelledException;
+import com.example.chatapi.model.ChatResponse;
+import com.example.chatapi.model.ChatSocketEvent;
+import com.example.chatapi.model.ChatSocketMessage;
+import com.example.chatapi.model.FunctionCallInfo;
+import com.example.chatapi.service.ChatTurnListener;
+import com.example.chatapi.service.ConcurrencyLimiter;
+import com.example.chatapi.service.ConversationHistoryService;
+import com.example.chatapi.service.OpenAIService;
+import com.example.chatapi.service.RequestDeadline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * /ws/chat: oturuma (?sessionId=...) bağlı kalıcı chat bağlantısı
+ * Turlar, araç çağrısı olayları, akışla gelen yanıt parçaları ve iptal mesajları aynı bağlantıdan geçer.
+ * Bir oturumun tek bağlantısı ve aynı anda tek turu olur; aynı oturumla açılan yeni bağlantı eskisini kapatıp turunu
+ * iptal eder ve bu tur geri alınana kadar yeni tur başlatamaz.
+ * Giden olaylar bağlantı başına sırayla ayrı bir thread'den yazılır; istemci geride kalırsa bekleyen yanıt
+ * parçaları tek olayda birleştirilir, bir yazma chat.websocket.send-time-limit-ms'den uzun sürerse bağlantı kapatılır.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatWebSocketHandler extends TextWebSocketHandler {
+
+    private final OpenAIService openAIService;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final ConversationHistoryService conversationHistoryService;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.limiter.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
+    @Value("${chat.request-timeout-ms:60000}")
+    private long requestTimeoutMillis;
+
+    @Value("${chat.websocket.send-time-limit-ms:10000}")
+    private long sendTimeLimitMillis;
+
+    @Value("${chat.websocket.max-queued-events:256}")
+    private int maxQueuedEvents;
+
+    // Session ID -> bağlantı
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    // Session ID -> süren tur; bağlantı değişse de oturumun turu bitene kadar yenisi kabul edilmez
+    private final Map<String, Turn> sessionTurns = new ConcurrentHashMap<>();
+
+    // Eşzamanlı tur sayısı ConcurrencyLimiter ile, yazıcı sayısı bağlantı sayısıyla sınırlı
+    private final AtomicInteger threads = new AtomicInteger();
+    private final ExecutorService turnExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "chat-ws-turn-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService sendExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "chat-ws-send-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        meterRegistry.gauge("chat.websocket.connections", connections, Map::size);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        turnExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        String sessionId = session.getUri() != null
+                ? UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("sessionId")
+                : null;
+        if (sessionId == null || sessionId.isBlank()) {
+            sessionId = UUID.randomUUID().toString();
+        }
+        Connection connection = new Connection(session, sessionId);
+        session.getAttributes().put(Connection.class.getName(), connection);
+
+        Connection previous = connections.put(sessionId, connection);
+        if (previous != null) {
+            log.info("Session {} reconnected, closing its previous WebSocket connection", sessionId);
+            previous.cancel(null, "client-disconnect");
+            previous.close(CloseStatus.POLICY_VIOLATION.withReason("Session opened on another connection"));
+        }
+        log.info("WebSocket connected: session={}", sessionId);
+        connection.send(ChatSocketEvent.builder().type(ChatSocketEvent.SESSION).sessionId(sessionId).build());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage textMessage) {
+        Connection connection = (Connection) session.getAttributes().get(Connection.class.getName());
+        ChatSocketMessage message;
+        try {
+            message = objectMapper.readValue(textMessage.getPayload(), ChatSocketMessage.class);
+        } catch (Exception e) {
+            connection.send(error(null, "Geçersiz mesaj."));
+            return;
+        }
+
+        if (ChatSocketMessage.CANCEL.equals(message.getType())) {
+            connection.cancel(message.getTurnId(), "client-cancel");
+        } else if (ChatSocketMessage.TURN.equals(message.getType())) {
+            startTurn(connection, message);
+        } else {
+            connection.send(error(message.getTurnId(), "Bilinmeyen mesaj tipi: " + message.getType()));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection connection = (Connection) session.getAttributes().get(Connection.class.getName());
+        if (connection == null) {
+            return;
+        }
+        connections.remove(connection.sessionId, connection);
+        connection.closed = true;
+        connection.cancel(null, "client-disconnect");
+        log.info("WebSocket closed: session={}, status={}", connection.sessionId, status);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("WebSocket transport error: {}", exception.getMessage());
+    }
+
+    private void startTurn(Connection connection, ChatSocketMessage message) {
+        String turnId = message.getTurnId() != null ? message.getTurnId() : String.valueOf(connection.turns.incrementAndGet());
+        if (message.getMessage() == null || message.getMessage().isBlank()) {
+            connection.send(error(turnId, "Message is required"));
+            return;
+        }
+
+        Turn turn = new Turn(turnId, RequestDeadline.create(requestTimeoutMillis));
+        synchronized (connection) {
+            if (connection.turn != null || sessionTurns.putIfAbsent(connection.sessionId, turn) != null) {
+                connection.send(error(turnId, "Önceki mesajınız hâlâ işleniyor."));
+                return;
+            }
+            connection.turn = turn;
+        }
+
+        // HTTP ile aynı yük atma kuralı: devam eden oturumlar öncelikli
+        boolean continuing = conversationHistoryService.hasSession(connection.sessionId);
+        if (!concurrencyLimiter.tryAcquire(continuing)) {
+            log.warn("Chat turn shed on WebSocket (limit {}, continuing session: {})", concurrencyLimiter.getLimit(), continuing);
+            connection.finish(turn);
+            connection.send(ChatSocketEvent.builder()
+                    .type(ChatSocketEvent.ERROR)
+                    .turnId(turnId)
+                    .text("Şu anda yoğunluk yaşanıyor. Lütfen birkaç saniye sonra tekrar deneyin.")
+                    .retryAfterSeconds(retryAfterSeconds)
+                    .build());
+            return;
+        }
+
+        connection.send(ChatSocketEvent.builder().type(ChatSocketEvent.ACCEPTED).turnId(turnId).build());
+        try {
+            turnExecutor.execute(() -> {
+                try {
+                    log.info("Chat turn received on WebSocket: {}, {}", kv("sessionId", connection.sessionId),
+                            kv("messageLength", message.getMessage().length()));
+                    log.debug("Chat message: '{}'", message.getMessage());
+                    ChatResponse response = turn.deadline
+                            .bind(() -> openAIService.chat(message.getMessage(), connection.sessionId, new SocketTurnListener(connection, turnId)))
+                            .get();
+                    connection.send(ChatSocketEvent.builder().type(ChatSocketEvent.RESPONSE).turnId(turnId).response(response).build());
+                } catch (RequestCancelledException e) {
+                    meterRegistry.counter("chat.turn.abandoned", "reason", turn.cancelReason).increment();
+                    log.info("Chat turn {} abandoned: {}", turnId, e.getMessage());
+                    connection.send(ChatSocketEvent.builder().type(ChatSocketEvent.CANCELLED).turnId(turnId).build());
+                } catch (DeadlineExceededException e) {
+                    meterRegistry.counter("chat.turn.abandoned", "reason", "deadline").increment();
+                    log.warn("Chat turn {} abandoned: {}", turnId, e.getMessage());
+                    connection.send(error(turnId, "İsteğiniz zaman aşımına uğradı. Lütfen tekrar deneyin."));
+                } catch (Exception e) {
+                    log.error("Error processing chat turn on WebSocket", e);
+                    connection.send(error(turnId, "Üzgünüm, bir hata oluştu. Lütfen daha sonra tekrar deneyin."));
+                } finally {
+                    concurrencyLimiter.release();
+                    connection.finish(turn);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Kapanış sırasında tur başlatılamaz; izin burada bırakılmazsa limit kalıcı olarak düşer
+            log.warn("Chat turn rejected on WebSocket: {}", e.getMessage());
+            concurrencyLimiter.release();
+            connection.finish(turn);
+            connection.send(error(turnId, "Üzgünüm, bir hata oluştu. Lütfen daha sonra tekrar deneyin."));
+        }
+    }
+
+    private static ChatSocketEvent error(String turnId, String text) {
+        return ChatSocketEvent.builder().type(ChatSocketEvent.ERROR).turnId(turnId).text(text).build();
+    }
+
+    private static class Turn {
+
+        private final String id;
+        private final RequestDeadline deadline;
+        private volatile String cancelReason = "client-cancel";
+
+        Turn(String id, RequestDeadline deadline) {
+            this.id = id;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * Turun olaylarını bağlantıya iletir; OpenAI akışını okuyan thread'i bekletmemek için sadece kuyruğa ekler
+     */
+    @RequiredArgsConstructor
+    private static class SocketTurnListener implements ChatTurnListener {
+
+        private final Connection connection;
+        private final String turnId;
+
+        @Override
+        public boolean isStreaming() {
+            return true;
+        }
+
+        @Override
+        public void onToolStarted(String functionName, Map<String, Object> arguments) {
+            connection.send(ChatSocketEvent.builder()
+                    .type(ChatSocketEvent.TOOL_STARTED)
+                    .turnId(turnId)
+                    .functionCall(FunctionCallInfo.builder().functionName(functionName).request(arguments).build())
+                    .build());
+        }
+
+        @Override
+        public void onToolFinished(FunctionCallInfo call) {
+            connection.send(ChatSocketEvent.builder().type(ChatSocketEvent.TOOL_FINISHED).turnId(turnId).functionCall(call).build());
+        }
+
+        @Override
+        public void onToken(String text) {
+            connection.send(ChatSocketEvent.builder().type(ChatSocketEvent.TOKEN).turnId(turnId).text(text).build());
+        }
+
+        @Override
+        public void onAnswerRestarted() {
+            connection.send(ChatSocketEvent.builder().type(ChatSocketEvent.RESTART).turnId(turnId).build());
+        }
+    }
+
+    private class Connection {
+
+        private final WebSocketSession session;
+        private final String sessionId;
+        private final AtomicInteger turns = new AtomicInteger();
+        private final Deque<ChatSocketEvent> outbox = new ArrayDeque<>();
+        private Turn turn;
+        private boolean draining;
+        private long sendingSince;
+        private volatile boolean closed;
+
+        Connection(WebSocketSession session, String sessionId) {
+            this.session = session;
+            this.sessionId = sessionId;
+        }
+
+        synchronized void cancel(String turnId, String reason) {
+            if (turn != null && (turnId == null || turnId.equals(turn.id))) {
+                turn.cancelReason = reason;
+                turn.deadline.cancel();
+            }
+        }
+
+        synchronized void finish(Turn finished) {
+            if (turn == finished) {
+                turn = null;
+            }
+            sessionTurns.remove(sessionId, finished);
+        }
+
+        /**
+         * Olayı sıraya ekler; yazıcı geride kaldıysa ardışık yanıt parçaları birleştirilir
+         */
+        void send(ChatSocketEvent event) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (draining && (outbox.size() >= maxQueuedEvents
+                        || System.nanoTime() - sendingSince > TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMillis))) {
+                    log.warn("WebSocket client of session {} is not keeping up, closing connection", sessionId);
+                    closed = true;
+                    outbox.clear();
+                    sendExecutor.execute(() -> close(CloseStatus.SESSION_NOT_RELIABLE));
+                    return;
+                }
+                ChatSocketEvent last = outbox.peekLast();
+                if (ChatSocketEvent.TOKEN.equals(event.getType()) && last != null
+                        && ChatSocketEvent.TOKEN.equals(last.getType()) && Objects.equals(last.getTurnId(), event.getTurnId())) {
+                    last.setText(last.getText() + event.getText());
+                    meterRegistry.counter("chat.websocket.coalesced").increment();
+                    return;
+                }
+                outbox.addLast(event);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+                sendingSince = System.nanoTime();
+            }
+            sendExecutor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                ChatSocketEvent event;
+                synchronized (this) {
+                    event = outbox.pollFirst();
+                    if (event == null || closed) {
+                        draining = false;
+                        return;
+                    }
+                    sendingSince = System.nanoTime();
+                }
+                try {
+                    session.sendMessage(new TextMessage(objectMapper.writeValueAsString(event)));
+                } catch (Exception e) {
+                    log.debug("Could not send {} event to session {}: {}", event.getType(), sessionId, e.getMessage());
+                }
+            }
+        }
+
+        void close(CloseStatus status) {
+            try {
+                session.close(status);
+            } catch (Exception e) {
+                log.debug("Could not close WebSocket of session {}: {}", sessionId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.chatapi.exception;
+
+public class OpenAIRateLimitException extends RuntimeException {
+
+    public OpenAIRateLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.chatapi.exception;
+
+/**
+ * İstemci bağlantıyı kapattı veya turu iptal etti; isteğin süresi o an dolmuş sayılır
+ */
+public class RequestCancelledException extends DeadlineExceededException {
+
+    public RequestCancelledException(String message) {
+        super(message);
+    }
+}
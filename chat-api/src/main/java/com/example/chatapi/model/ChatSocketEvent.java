@@ -0,0 +1,36 @@
+package com.example.chatapi.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * WebSocket kanalında sunucudan giden olay
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatSocketEvent {
+
+    public static final String SESSION = "session";           // bağlantı açıldı, sessionId
+    public static final String ACCEPTED = "accepted";         // tur işlenmeye başladı
+    public static final String TOOL_STARTED = "tool-started"; // functionCall (response'suz)
+    public static final String TOOL_FINISHED = "tool-finished";
+    public static final String TOKEN = "token";               // text: yanıtın yeni parçası
+    public static final String RESTART = "restart";           // o ana kadarki parçalar geçersiz, yanıt baştan gelecek
+    public static final String RESPONSE = "response";         // nihai yanıt (ChatResponse)
+    public static final String CANCELLED = "cancelled";
+    public static final String ERROR = "error";
+
+    private String type;
+    private String turnId;
+    private String sessionId;
+    private String text;
+    private FunctionCallInfo functionCall;
+    private ChatResponse response;
+    private Integer retryAfterSeconds;
+}
@@ -0,0 +1,23 @@
+package com.example.chatapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * WebSocket kanalında istemciden gelen mesaj: type=turn (yeni mesaj) veya type=cancel (devam eden turu iptal et)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatSocketMessage {
+
+    public static final String TURN = "turn";
+    public static final String CANCEL = "cancel";
+
+    private String type;
+    private String turnId; // istemci vermezse sunucu atar
+    private String message;
+}
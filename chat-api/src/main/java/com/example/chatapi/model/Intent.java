@@ -0,0 +1,34 @@
+package com.example.chatapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LLM'e gitmeden yanıtlanabilen kullanıcı niyeti
+ * reply (hazır yanıt) veya tool (salt okunur MCP aracı) taşır; ikisi de yoksa niyet "yönlendirme" anlamına gelir.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Intent {
+
+    private String name;
+    private String reply;
+    private String tool;
+
+    @Builder.Default
+    private List<String> patterns = new ArrayList<>();
+
+    @Builder.Default
+    private List<String> examples = new ArrayList<>();
+
+    public boolean isRoutable() {
+        return reply != null || tool != null;
+    }
+}
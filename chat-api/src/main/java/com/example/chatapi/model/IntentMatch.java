@@ -0,0 +1,16 @@
+package com.example.chatapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Bir sınıflandırıcının mesaj için bulduğu niyet ve güveni (0-1)
+ */
+@Data
+@AllArgsConstructor
+public class IntentMatch {
+
+    private Intent intent;
+    private double confidence;
+    private String classifier;
+}
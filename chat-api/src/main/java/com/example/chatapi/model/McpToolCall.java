@@ -0,0 +1,18 @@
+package com.example.chatapi.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class McpToolCall {
+
+    private String name;
+    private Map<String, Object> arguments;
+}
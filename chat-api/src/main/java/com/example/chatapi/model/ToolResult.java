@@ -0,0 +1,44 @@
+package com.example.chatapi.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Bir MCP araç çağrısının sonucu; sunucudan gelen metin bir kez ayrıştırılır (ToolResultReader)
+ * Aynı nesne UI yanıtında (data), konuşma geçmişinde ve OpenAI isteğinde (text, encodedText) kullanılır;
+ * sonuç tekrar parse edilmez veya serileştirilmez.
+ */
+@Getter
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ToolResult {
+
+    public enum Status { OK, ERROR }
+
+    private final Status status;
+
+    // Hata mesajı, sadece ERROR'da dolu
+    private final String error;
+
+    // Ayrıştırılmış sonuç; JSON olmayan yanıtlar metin düğümüdür, hatalar {"error": "..."}
+    private final JsonNode data;
+
+    // Modele giden kompakt JSON metni (ToolResultShaper sadeleştirmiş olabilir)
+    private final String text;
+
+    // text'in tırnaklı ve kaçışlanmış JSON string hali, OpenAI isteğine olduğu gibi yazılır
+    private final String encodedText;
+
+    // Sunucudan gelen yanıtın karakter sayısı (kısaltmadan önce)
+    private final int size;
+
+    // Sonuç chat.tools.max-result-chars sınırını aştığı için kısaltıldı mı
+    private final boolean truncated;
+
+    public boolean isError() {
+        return status == Status.ERROR;
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.chatapi.model.openai;
 
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.util.RawValue;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -21,6 +25,14 @@ public class OpenAIRequest {
     @JsonProperty("function_call")
     private String functionCall; // "auto" or specific function name
 
+    // true: yanıt server-sent events olarak parça parça gelir (OpenAIStreamChunk)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stream;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("stream_options")
+    private StreamOptions streamOptions;
+
     @Data
     @Builder
     @NoArgsConstructor
@@ -32,6 +44,16 @@ public class OpenAIRequest {
 
         @JsonProperty("function_call")
         private FunctionCall functionCall;
+
+        // Araç sonucu mesajlarında content'in hazır JSON string hali (ToolResult.encodedText);
+        // geçmiş her istekte tekrar gönderilirken sonuç yeniden kaçışlanmaz
+        @JsonIgnore
+        private String encodedContent;
+
+        @JsonGetter("content")
+        private Object contentValue() {
+            return encodedContent != null ? new RawValue(encodedContent) : content;
+        }
     }
 
     @Data
@@ -62,4 +84,14 @@ public class OpenAIRequest {
         private Object properties;
         private List<String> required;
     }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StreamOptions {
+        // Son parçada token kullanımı gelir (OpenAIScheduler ve metrikler için)
+        @JsonProperty("include_usage")
+        private boolean includeUsage;
+    }
 }
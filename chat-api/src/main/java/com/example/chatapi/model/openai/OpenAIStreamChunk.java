@@ -0,0 +1,35 @@
+package com.example.chatapi.model.openai;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * stream=true isteğinde gelen bir "chat.completion.chunk"; delta'lar birleştirilerek OpenAIResponse elde edilir
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OpenAIStreamChunk {
+
+    private String id;
+    private String model;
+    private List<Choice> choices;
+    private OpenAIResponse.Usage usage; // sadece son parçada (stream_options.include_usage)
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Choice {
+        private int index;
+        private OpenAIRequest.Message delta;
+
+        @JsonProperty("finish_reason")
+        private String finishReason;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.FunctionCallInfo;
+
+import java.util.Map;
+
+/**
+ * Bir chat turunun ara olayları (WebSocket kanalı için); HTTP isteklerinde NONE kullanılır
+ * Metotlar turu işleyen thread'den veya OpenAI akışını okuyan thread'den çağrılır, bloklamamalıdır.
+ */
+public interface ChatTurnListener {
+
+    ChatTurnListener NONE = new ChatTurnListener() {
+    };
+
+    /**
+     * true ise takip yanıtı OpenAI'den akış (stream) olarak istenir ve parçaları onToken ile iletilir
+     */
+    default boolean isStreaming() {
+        return false;
+    }
+
+    default void onToolStarted(String functionName, Map<String, Object> arguments) {
+    }
+
+    default void onToolFinished(FunctionCallInfo call) {
+    }
+
+    default void onToken(String text) {
+    }
+
+    /**
+     * Hızlı modelin akışla gelen yanıtı geçersiz çıktı, premium model baştan yazacak; o ana kadarki parçalar atılmalı
+     */
+    default void onAnswerRestarted() {
+    }
+}
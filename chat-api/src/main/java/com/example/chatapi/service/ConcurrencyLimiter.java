@@ -0,0 +1,154 @@
+package com.example.chatapi.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chat isteklerinin eşzamanlılık sınırını OpenAI ve MCP gecikmelerine göre ayarlar (gradient algoritması)
+ * Her upstream için son gecikmelerin ortalaması ve yüksüz gecikme tabanı tutulur; herhangi bir upstream'in
+ * gecikmesi tabanını aştıkça sınır düşer, gecikme normale döndükçe sınır yavaşça artar.
+ * Sınır dolduğunda yeni istekler beklemeden reddedilir. Devam eden oturumlara öncelik verilir:
+ * yeni oturumlar sınırın sadece chat.limiter.new-session-share kadarını kullanabilir.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConcurrencyLimiter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.limiter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.limiter.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${chat.limiter.min-limit:4}")
+    private int minLimit;
+
+    @Value("${chat.limiter.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${chat.limiter.new-session-share:0.8}")
+    private double newSessionShare;
+
+    // Ortalama gecikme tabanın bu katına kadar çıkabilir, sınır düşmez (istek türlerinin farklı sürelerine tolerans)
+    @Value("${chat.limiter.tolerance:2.0}")
+    private double tolerance;
+
+    // Yeni hesaplanan sınırın mevcut sınıra karışma oranı
+    @Value("${chat.limiter.smoothing:0.2}")
+    private double smoothing;
+
+    private final Map<String, Latency> latencies = new HashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    @PostConstruct
+    public void init() {
+        limit = initialLimit;
+        Gauge.builder("chat.limiter.limit", () -> limit).description("Adaptive concurrency limit").register(meterRegistry);
+        Gauge.builder("chat.limiter.inflight", inFlight, AtomicInteger::get).description("Chat requests in flight").register(meterRegistry);
+    }
+
+    /**
+     * İstek için yer ayırır; sınır doluysa false döner ve istek reddedilmelidir
+     * true dönerse istek bitince release() çağrılmalıdır
+     *
+     * @param continuing İstek daha önce başlamış bir oturuma mı ait
+     */
+    public boolean tryAcquire(boolean continuing) {
+        if (!enabled) {
+            return true;
+        }
+        int allowed = (int) Math.max(1, continuing ? limit : limit * newSessionShare);
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                meterRegistry.counter("chat.limiter.shed", "session", continuing ? "continuing" : "new").increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        if (enabled) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Upstream çağrısının gecikmesini bildirir ve sınırı yeniden hesaplar
+     *
+     * @param upstream "openai" veya "mcp"; her birinin gecikme tabanı ayrı tutulur
+     */
+    public void onSample(String upstream, long nanos) {
+        if (!enabled || nanos <= 0) {
+            return;
+        }
+        synchronized (this) {
+            Latency latency = latencies.computeIfAbsent(upstream, key -> new Latency());
+            latency.add(nanos);
+
+            // En çok yavaşlamış upstream belirleyicidir
+            double gradient = 1.0;
+            for (Latency observed : latencies.values()) {
+                if (observed.samples >= 10) {
+                    gradient = Math.min(gradient, tolerance * observed.baseline / observed.recent);
+                }
+            }
+            gradient = Math.max(0.5, gradient);
+            double current = limit;
+            // Trafik sınırın yarısına bile ulaşmıyorsa sınırı büyütmenin anlamı yok
+            double queue = inFlight.get() >= current / 2 ? Math.sqrt(current) : 0;
+            double next = current * gradient + queue;
+            next = current * (1 - smoothing) + next * smoothing;
+            limit = Math.max(minLimit, Math.min(maxLimit, next));
+            if ((int) limit != (int) current) {
+                log.debug("Concurrency limit {} -> {} ({} recent {} ms, baseline {} ms)", (int) current, (int) limit, upstream,
+                        Math.round(latency.recent / 1_000_000), Math.round(latency.baseline / 1_000_000));
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * recent: son ~10 örneğin üstel ortalaması
+     * baseline: yüksüz gecikme; daha hızlı örneklerle hızla düşer, yavaş örneklerle çok yavaş yükselir
+     * (kalıcı bir upstream yavaşlamasında ~500 örnekte yeni seviyeye oturur, sınır sürekli düşük kalmaz)
+     */
+    private static final class Latency {
+        private double recent;
+        private double baseline;
+        private long samples;
+
+        private void add(long nanos) {
+            if (samples++ == 0) {
+                recent = nanos;
+                baseline = nanos;
+                return;
+            }
+            recent = recent * 0.9 + nanos * 0.1;
+            baseline = nanos < baseline ? baseline * 0.9 + nanos * 0.1 : baseline * 0.998 + nanos * 0.002;
+        }
+    }
+}
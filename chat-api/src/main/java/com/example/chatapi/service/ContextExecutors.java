@@ -0,0 +1,21 @@
+package com.example.chatapi.service;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Gönderilen işleri, gönderen thread'in bağlamıyla (trace, log MDC) çalıştıran executor sarmalayıcısı
+ */
+public final class ContextExecutors {
+
+    private static final ContextSnapshotFactory SNAPSHOTS = ContextSnapshotFactory.builder().build();
+
+    private ContextExecutors() {
+    }
+
+    public static ExecutorService wrap(ExecutorService executor) {
+        return ContextExecutorService.wrap(executor, SNAPSHOTS::captureAll);
+    }
+}
@@ -1,13 +1,17 @@
 package com.example.chatapi.service;
 
+import com.example.chatapi.exception.RequestCancelledException;
 import com.example.chatapi.model.openai.OpenAIRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Slf4j
 @Service
@@ -16,12 +20,18 @@ public class ConversationHistoryService {
     // Session ID -> Conversation History
     private final Map<String, List<OpenAIRequest.Message>> conversationStore = new ConcurrentHashMap<>();
 
+    // Session ID -> süren turun kilidi; aynı session'ın turları (HTTP, WebSocket, yeniden bağlanma) sırayla çalışır
+    private final Map<String, ReentrantLock> turnLocks = new ConcurrentHashMap<>();
+
+    // Kilit beklenirken iptal ve süre sonu bu aralıkla kontrol edilir
+    private static final long TURN_WAIT_CHECK_MS = 100;
+
     /**
      * Yeni bir session için conversation başlatır
      */
     public void initializeSession(String sessionId, String systemPrompt) {
         if (!conversationStore.containsKey(sessionId)) {
-            List<OpenAIRequest.Message> messages = new ArrayList<>();
+            List<OpenAIRequest.Message> messages = Collections.synchronizedList(new ArrayList<>());
             messages.add(OpenAIRequest.Message.builder()
                     .role("system")
                     .content(systemPrompt)
@@ -42,16 +52,52 @@ public class ConversationHistoryService {
      * Session'a yeni mesaj ekler
      */
     public void addMessage(String sessionId, OpenAIRequest.Message message) {
-        List<OpenAIRequest.Message> history = conversationStore.computeIfAbsent(sessionId, k -> new ArrayList<>());
+        List<OpenAIRequest.Message> history = conversationStore.computeIfAbsent(sessionId, k -> Collections.synchronizedList(new ArrayList<>()));
         history.add(message);
         log.debug("Added message to session {}: role={}", sessionId, message.getRole());
     }
 
+    /**
+     * Session'ın turunu başlatır; aynı session'da süren bir tur varsa onun bitmesini bekler.
+     * Dönen kilit tur bitince bırakılmalıdır. Beklerken süre dolarsa veya istek iptal edilirse
+     * DeadlineExceededException / RequestCancelledException fırlatılır.
+     */
+    public ReentrantLock beginTurn(String sessionId) {
+        ReentrantLock lock = turnLocks.computeIfAbsent(sessionId, k -> new ReentrantLock());
+        try {
+            while (!lock.tryLock(TURN_WAIT_CHECK_MS, TimeUnit.MILLISECONDS)) {
+                RequestDeadline.check("Chat turn of session " + sessionId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RequestCancelledException("Chat turn of session " + sessionId + " interrupted while waiting");
+        }
+        return lock;
+    }
+
+    /**
+     * Session'ın geçmişini ilk size mesaja geri alır (yarıda kalan turun mesajlarını siler)
+     * Yalnızca beginTurn kilidini tutan tur çağırmalıdır; başka tur araya mesaj ekleyemez.
+     */
+    public void truncate(String sessionId, int size) {
+        List<OpenAIRequest.Message> history = conversationStore.get(sessionId);
+        if (history == null) {
+            return;
+        }
+        synchronized (history) {
+            if (history.size() > size) {
+                log.debug("Rolled back {} messages of session {}", history.size() - size, sessionId);
+                history.subList(size, history.size()).clear();
+            }
+        }
+    }
+
     /**
      * Session'ı temizler
      */
     public void clearSession(String sessionId) {
         conversationStore.remove(sessionId);
+        turnLocks.remove(sessionId);
         log.info("Cleared conversation for session: {}", sessionId);
     }
 
@@ -60,6 +106,7 @@ public class ConversationHistoryService {
      */
     public void clearAll() {
         conversationStore.clear();
+        turnLocks.clear();
         log.info("Cleared all conversations");
     }
 
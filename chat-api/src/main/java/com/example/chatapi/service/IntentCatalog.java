@@ -0,0 +1,53 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.Intent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Intent router'ın niyet tanımlarını (hazır yanıtlar, eşlenen araçlar, kurallar ve örnek cümleler) yükler
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IntentCatalog {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${chat.router.intents:classpath:intents/intents.json}")
+    private Resource definitions;
+
+    private List<Intent> intents = List.of();
+
+    @PostConstruct
+    public void load() {
+        try (InputStream input = definitions.getInputStream()) {
+            JsonNode root = objectMapper.readTree(input);
+            List<Intent> loaded = objectMapper.convertValue(root.path("intents"),
+                    objectMapper.getTypeFactory().constructCollectionType(List.class, Intent.class));
+            for (Intent intent : loaded) {
+                if (intent.getReply() != null && intent.getTool() != null) {
+                    throw new IllegalStateException("Intent " + intent.getName() + " has both a reply and a tool");
+                }
+            }
+            intents = Collections.unmodifiableList(loaded);
+            log.info("Loaded {} intents from {}", intents.size(), definitions);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load intents: " + e.getMessage(), e);
+        }
+    }
+
+    public List<Intent> getIntents() {
+        return intents;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.IntentMatch;
+
+/**
+ * Intent router'a takılabilen yerel sınıflandırıcı
+ * Router sınıflandırıcıları @Order sırasıyla dener; ilk yeterince güvenli sonuç kullanılır.
+ */
+public interface IntentClassifier {
+
+    /**
+     * Mesajın niyetini döndürür, karar veremiyorsa null
+     */
+    IntentMatch classify(String message);
+}
@@ -0,0 +1,117 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.IntentMatch;
+import com.example.chatapi.model.openai.OpenAIRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenAI'ye gitmeden önce mesajın basit bir niyet olup olmadığına bakar (selamlaşma, teşekkür, "siparişlerimi göster")
+ * Sınıflandırıcılar (IntentClassifier bean'leri) sırayla denenir; güven chat.router.min-confidence altındaysa,
+ * niyetin aracı salt okunur değilse veya argümanları mesajdan çıkarılamıyorsa mesaj her zamanki gibi LLM'e gider.
+ * Asistan son mesajında bir soru sorduysa yönlendirme yapılmaz; kısa cevaplar ("3 numaralı olan") o sorunun devamıdır.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IntentRouter {
+
+    private final List<IntentClassifier> classifiers;
+    private final McpClientService mcpClientService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.router.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.router.min-confidence:0.8}")
+    private double minConfidence;
+
+    // Uzun mesajlar genelde birden fazla istek içerir, LLM'e bırakılır
+    @Value("${chat.router.max-terms:8}")
+    private int maxTerms;
+
+    /**
+     * Mesaj yerelde yanıtlanabiliyorsa yönlendirmeyi, aksi halde null döndürür
+     *
+     * @param history Kullanıcı mesajı eklenmeden önceki konuşma geçmişi
+     */
+    public Route route(String userMessage, List<OpenAIRequest.Message> history) {
+        Route route = decide(userMessage, history);
+        meterRegistry.counter("chat.router",
+                "outcome", route == null ? "llm" : (route.getReply() != null ? "reply" : "tool"),
+                "intent", route == null ? "none" : route.getIntent()).increment();
+        return route;
+    }
+
+    Route decide(String userMessage, List<OpenAIRequest.Message> history) {
+        if (!enabled || userMessage == null || userMessage.isBlank() || awaitingAnswer(history)
+                || ToolSelector.tokenize(userMessage).size() > maxTerms) {
+            return null;
+        }
+
+        for (IntentClassifier classifier : classifiers) {
+            IntentMatch match = classifier.classify(userMessage);
+            if (match == null) {
+                continue;
+            }
+            if (!match.getIntent().isRoutable() || match.getConfidence() < minConfidence) {
+                log.debug("Intent {} ({}, {}) not routed", match.getIntent().getName(), match.getClassifier(),
+                        match.getConfidence());
+                return null;
+            }
+            return toRoute(match, userMessage);
+        }
+        return null;
+    }
+
+    private Route toRoute(IntentMatch match, String userMessage) {
+        String intent = match.getIntent().getName();
+        if (match.getIntent().getReply() != null) {
+            return new Route(intent, match.getIntent().getReply(), null, null, match.getConfidence());
+        }
+
+        Map<String, Object> tool = mcpClientService.findTool(match.getIntent().getTool());
+        if (tool == null || !ToolDefinitions.isReadOnly(tool)) {
+            // Değişiklik yapan araçlar sadece LLM kararıyla çağrılır
+            return null;
+        }
+        Map<String, Object> arguments = ToolDefinitions.argumentsFromMessage(tool, userMessage);
+        if (arguments == null) {
+            return null;
+        }
+        return new Route(intent, null, match.getIntent().getTool(), arguments, match.getConfidence());
+    }
+
+    private static boolean awaitingAnswer(List<OpenAIRequest.Message> history) {
+        for (int i = history.size() - 1; i >= 0; i--) {
+            OpenAIRequest.Message message = history.get(i);
+            if ("assistant".equals(message.getRole()) && message.getContent() != null) {
+                return message.getContent().trim().endsWith("?");
+            }
+            if ("user".equals(message.getRole())) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Yerelde yanıtlanacak niyet: hazır yanıt veya argümanlarıyla birlikte araç çağrısı
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class Route {
+        private final String intent;
+        private final String reply;
+        private final String tool;
+        private final Map<String, Object> arguments;
+        private final double confidence;
+    }
+}
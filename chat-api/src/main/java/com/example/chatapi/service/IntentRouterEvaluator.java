@@ -0,0 +1,99 @@
+package com.example.chatapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Etiketli mesajlar üzerinde intent router'ın precision/recall değerlerini ve LLM'den alınan trafik oranını ölçer
+ * Her satır: {"message": "...", "intent": "greeting" | ... | "none"}; "none" mesajın LLM'e gitmesi gerektiğini belirtir.
+ * Sadece chat.router.evaluation.enabled=true iken, uygulama açıldığında bir kez çalışır.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "chat.router.evaluation.enabled", havingValue = "true")
+public class IntentRouterEvaluator {
+
+    private static final String NONE = "none";
+
+    private final IntentRouter intentRouter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${chat.router.evaluation.dataset:classpath:eval/intents.jsonl}")
+    private Resource dataset;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void evaluate() {
+        try {
+            // intent -> [doğru yönlendirilen, yönlendirilen, etiketli]
+            Map<String, int[]> counts = new TreeMap<>();
+            int total = 0;
+            int routed = 0;
+            int correct = 0;
+            int shouldRoute = 0;
+
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(dataset.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    JsonNode labeled = objectMapper.readTree(line);
+                    String message = labeled.path("message").asText();
+                    String expected = labeled.path("intent").asText(NONE);
+                    IntentRouter.Route route = intentRouter.decide(message, List.of());
+                    String predicted = route != null ? route.getIntent() : NONE;
+
+                    total++;
+                    if (!NONE.equals(expected)) {
+                        shouldRoute++;
+                        counts.computeIfAbsent(expected, key -> new int[3])[2]++;
+                    }
+                    if (!NONE.equals(predicted)) {
+                        routed++;
+                        counts.computeIfAbsent(predicted, key -> new int[3])[1]++;
+                        if (predicted.equals(expected)) {
+                            correct++;
+                            counts.get(predicted)[0]++;
+                        }
+                    }
+                    if (!predicted.equals(expected)) {
+                        log.info("Intent router mismatch: expected {} but got {} for '{}'", expected, predicted, message);
+                    }
+                }
+            }
+
+            if (total == 0) {
+                log.warn("Intent router evaluation dataset is empty");
+                return;
+            }
+            counts.forEach((intent, c) -> log.info("Intent {}: precision {}/{}, recall {}/{}",
+                    intent, c[0], c[1], c[0], c[2]));
+            log.info("Intent router evaluation: {} messages, precision {}/{} ({}%), recall {}/{} ({}%), offloaded {}/{} ({}%)",
+                    total, correct, routed, percent(correct, routed), correct, shouldRoute, percent(correct, shouldRoute),
+                    routed, total, percent(routed, total));
+        } catch (Exception e) {
+            log.warn("Intent router evaluation failed: {}", e.getMessage());
+        }
+    }
+
+    private static long percent(int part, int whole) {
+        return whole == 0 ? 100 : Math.round(part * 100.0 / whole);
+    }
+}
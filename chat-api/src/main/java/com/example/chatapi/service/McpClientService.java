@@ -1,206 +1,410 @@
 package com.example.chatapi.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.chatapi.config.McpServersConfig;
+import com.example.chatapi.exception.DeadlineExceededException;
+import com.example.chatapi.model.McpToolCall;
+import com.example.chatapi.model.ToolResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpMethod;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
 import org.springframework.web.reactive.function.client.WebClient;
-
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Birden fazla MCP sunucusunu tek bir araç kataloğu olarak sunar
+ * Kataloglar paralel keşfedilir, çakışan araç adları sunucu adıyla öneklenir ve her çağrı
+ * indeks üzerinden doğrudan aracın sahibi olan sunucuya gider. Her sunucunun kendi bağlantı
+ * havuzu ve zaman aşımları vardır; yavaş veya çökmüş bir sunucu diğerlerini bekletmez.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class McpClientService {
 
+    // Çakışan araç adlarında sunucu adı ile araç adı arasına konur (örn: inventory__get_status)
+    private static final String NAME_SEPARATOR = "__";
+
     private final WebClient.Builder webClientBuilder;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final McpServersConfig serversConfig;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final UpstreamGuards upstreamGuards;
+    private final ToolResultReader toolResultReader;
+
+    @Value("${mcp.server.url:}")
+    private String defaultServerUrl;
+
+    @Value("${mcp.response-cache-size:128}")
+    private int responseCacheSize;
+
+    @Value("${mcp.jsonrpc.notification-retry-ms:5000}")
+    private long notificationRetryMillis;
+
+    // Sunucu adı -> istemci, kayıt sırasıyla
+    private final Map<String, McpServerClient> clients = new LinkedHashMap<>();
+    private final Map<String, Duration> responseTimeouts = new HashMap<>();
+    private final List<ConnectionProvider> connectionProviders = new ArrayList<>();
+
+    // Sunucu adı -> son başarılı keşifteki araçlar (sunucunun kendi araç adlarıyla)
+    private final Map<String, List<Map<String, Object>>> serverTools = new ConcurrentHashMap<>();
+
+    // Dışarıya açılan katalog ve araç adı -> sunucu indeksi, birlikte değiştirilir
+    private volatile ToolIndex toolIndex = new ToolIndex(List.of(), Map.of());
+    private volatile boolean discovered = false;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        List<McpServersConfig.Server> servers = new ArrayList<>(serversConfig.getServers());
+        if (servers.isEmpty()) {
+            // Geriye dönük uyumluluk: tek sunucu, mcp.server.url
+            McpServersConfig.Server server = new McpServersConfig.Server();
+            server.setName("orders");
+            server.setUrl(defaultServerUrl);
+            servers.add(server);
+        }
+
+        for (McpServersConfig.Server server : servers) {
+            if (server.getName() == null || !server.getName().matches("[a-zA-Z0-9_-]+")) {
+                throw new IllegalStateException("MCP server name must match [a-zA-Z0-9_-]+: " + server.getName());
+            }
+            if (server.getUrl() == null || server.getUrl().isBlank()) {
+                throw new IllegalStateException("MCP server " + server.getName() + " has no url");
+            }
+            if (clients.containsKey(server.getName())) {
+                throw new IllegalStateException("Duplicate MCP server name: " + server.getName());
+            }
+            clients.put(server.getName(), createClient(server));
+            responseTimeouts.put(server.getName(), Duration.ofMillis(server.getResponseTimeoutMs()));
+        }
 
-    @Value("${mcp.server.url}")
-    private String mcpServerUrl;
+        AtomicInteger threadCount = new AtomicInteger();
+        // Paralel araç çağrıları turun trace'ini taşısın (traceparent başlığı da buradan gider)
+        executor = ContextExecutors.wrap(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mcp-client-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+        log.info("Registered {} MCP servers: {}", clients.size(), clients.keySet());
+    }
 
-    // Cache for tool definitions
-    private List<Map<String, Object>> cachedTools = null;
+    @PreDestroy
+    public void shutdown() {
+        clients.values().forEach(McpServerClient::close);
+        connectionProviders.forEach(ConnectionProvider::dispose);
+        executor.shutdownNow();
+    }
 
     /**
-     * MCP sunucusundan mevcut araçları (tools) getirir
-     * İlk çağrıda cache'ler, sonraki çağrılarda cache'ten döner
+     * Uygulama açılınca tüm sunucuların kataloglarını paralel olarak keşfeder
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void discoverOnStartup() {
+        refreshTools(clients.values());
+    }
+
+    /**
+     * Tüm sunuculardaki araçları döndürür (çakışan adlar sunucu adıyla öneklenmiş)
+     * Henüz keşif yapılmadıysa önce keşfeder
      */
     public List<Map<String, Object>> getAvailableTools() {
-        if (cachedTools != null) {
-            return cachedTools;
+        if (!discovered) {
+            refreshTools(clients.values());
         }
+        return toolIndex.tools;
+    }
 
-        try {
-            log.info("Fetching available MCP tools from: {}", mcpServerUrl);
+    /**
+     * Bildirim göndermeyen sunucuların kataloglarını periyodik olarak yeniden doğrular
+     * REST sunucularında ETag değişmemişse sunucu 304 döner ve gövde aktarılmaz
+     */
+    @Scheduled(initialDelayString = "${mcp.tools.refresh-interval-ms:60000}",
+            fixedDelayString = "${mcp.tools.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        List<McpServerClient> polled = clients.values().stream()
+                .filter(client -> !client.isReceivingToolChanges())
+                .toList();
+        if (!polled.isEmpty()) {
+            refreshTools(polled);
+        }
+    }
 
-            WebClient webClient = webClientBuilder.baseUrl(mcpServerUrl).build();
+    /**
+     * MCP sunucusu tools/list_changed bildirdiğinde sadece o sunucunun kataloğunu yeniler
+     */
+    @EventListener
+    public void onToolsChanged(McpToolsChangedEvent event) {
+        McpServerClient client = clients.get(event.getServerName());
+        if (client != null) {
+            refreshTools(List.of(client));
+        }
+    }
 
-            Map<String, Object> response = webClient.get()
-                    .uri("/mcp/tools")
-                    .retrieve()
-                    .bodyToMono(new org.springframework.core.ParameterizedTypeReference<Map<String, Object>>() {})
-                    .block();
+    /**
+     * Verilen sunucuların kataloglarını paralel olarak alır ve indeksi yeniden kurar
+     * Keşfi başarısız olan veya zaman aşımına uğrayan sunucunun önceki araçları korunur
+     */
+    private synchronized void refreshTools(Collection<McpServerClient> targets) {
+        Map<String, CompletableFuture<List<Map<String, Object>>>> futures = new LinkedHashMap<>();
+        for (McpServerClient client : targets) {
+            futures.put(client.getServerName(), CompletableFuture
+                    .supplyAsync(client::listTools, executor)
+                    .orTimeout(serversConfig.getDiscoveryTimeoutMs(), TimeUnit.MILLISECONDS));
+        }
 
-            if (response != null && response.containsKey("tools")) {
-                cachedTools = (List<Map<String, Object>>) response.get("tools");
-                log.info("Found and cached {} MCP tools", cachedTools.size());
-                return cachedTools;
+        futures.forEach((serverName, future) -> {
+            try {
+                List<Map<String, Object>> tools = future.join();
+                if (tools != null) {
+                    serverTools.put(serverName, tools);
+                }
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.warn("MCP tool discovery failed for {}, keeping {} previously known tools: {}",
+                        serverName, serverTools.getOrDefault(serverName, List.of()).size(), cause.toString());
             }
+        });
 
-            return List.of();
-        } catch (Exception e) {
-            log.error("Error fetching MCP tools", e);
-            return List.of();
+        rebuildIndex();
+        discovered = true;
+    }
+
+    /**
+     * Araç adı -> sunucu indeksini kurar
+     * Birden fazla sunucuda bulunan araç adları sunucu adıyla öneklenir
+     */
+    private void rebuildIndex() {
+        Map<String, Long> nameCounts = serverTools.values().stream()
+                .flatMap(List::stream)
+                .map(tool -> (String) tool.get("name"))
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+
+        List<Map<String, Object>> tools = new ArrayList<>();
+        Map<String, ToolRoute> routes = new HashMap<>();
+        for (String serverName : clients.keySet()) {
+            for (Map<String, Object> tool : serverTools.getOrDefault(serverName, List.of())) {
+                String toolName = (String) tool.get("name");
+                Map<String, Object> exposed = new LinkedHashMap<>(tool);
+                if (nameCounts.get(toolName) > 1) {
+                    exposed.put("name", serverName + NAME_SEPARATOR + toolName);
+                    exposed.put("description", "[" + serverName + "] " + tool.getOrDefault("description", ""));
+                }
+                tools.add(Collections.unmodifiableMap(exposed));
+                routes.put((String) exposed.get("name"), new ToolRoute(serverName, toolName));
+            }
+        }
+
+        toolIndex = new ToolIndex(Collections.unmodifiableList(tools), routes);
+        log.info("MCP tool index rebuilt: {} tools from {} servers", tools.size(), serverTools.size());
+    }
+
+    /**
+     * Katalogdaki araç tanımını (OpenAI'ye verilen adıyla) döndürür, yoksa null
+     */
+    public Map<String, Object> findTool(String functionName) {
+        for (Map<String, Object> tool : getAvailableTools()) {
+            if (functionName.equals(tool.get("name"))) {
+                return tool;
+            }
         }
+        return null;
     }
 
     /**
-     * MCP fonksiyonunu dinamik olarak çağırır
-     * Tool definitions'dan endpoint ve method bilgisini alıp çağrıyı yapar
+     * OpenAI'ye verilen adın sunucudaki araç adı (inventory__get_status -> get_status); bilinmeyen adlar aynen döner
+     */
+    public String originalToolName(String functionName) {
+        ToolRoute route = toolIndex.routes.get(functionName);
+        return route != null ? route.toolName : functionName;
+    }
+
+    /**
+     * MCP fonksiyonunu sahibi olan sunucuda çağırır
      *
      * @param functionName Fonksiyon adı (örn: "get_all_orders", "get_order_by_id")
      * @param arguments Fonksiyon parametreleri
-     * @return Fonksiyon sonucu
+     * @return Fonksiyon sonucu; bilinmeyen fonksiyon veya çağrı hatası hata sonucu olarak döner
      */
-    public String callFunction(String functionName, Map<String, Object> arguments) {
+    public ToolResult callFunction(String functionName, Map<String, Object> arguments) {
         try {
-            log.info("Calling MCP function: {} with arguments: {}", functionName, arguments);
+            log.info("Calling MCP function: {}", kv("function", functionName));
+            log.debug("MCP function arguments: {}", arguments);
 
-            // Tool definition'ı bul
-            Map<String, Object> toolDef = findToolDefinition(functionName);
-            if (toolDef == null) {
+            ToolRoute route = resolve(functionName);
+            if (route == null) {
                 log.warn("Unknown function: {}", functionName);
-                return "{\"error\": \"Unknown function: " + functionName + "\"}";
+                return toolResultReader.error("Unknown function: " + functionName);
             }
 
-            String endpoint = (String) toolDef.get("endpoint");
-            String method = (String) toolDef.get("method");
-
-            // Path parametrelerini değiştir (örn: /mcp/orders/{id} -> /mcp/orders/123)
-            String uri = replacePlaceholders(endpoint, arguments);
-
-            // Query parametrelerini ekle (PATCH için address gibi)
-            Map<String, Object> queryParams = extractQueryParams(arguments, endpoint);
-
-            WebClient webClient = webClientBuilder.baseUrl(mcpServerUrl).build();
-
-            // HTTP metoduna göre çağrı yap
-            String response = executeRequest(webClient, method, uri, queryParams);
-
-            log.info("MCP function {} executed successfully", functionName);
+            // Salt okunur araçlar yavaş yanıtta hedge edilir; değişiklik yapanlar sadece devre kesici ve bulkhead'den geçer
+            McpServerClient client = clients.get(route.serverName);
+            UpstreamGuard guard = upstreamGuards.get("mcp:" + route.serverName);
+            Map<String, Object> tool = findTool(functionName);
+            long startedAt = System.nanoTime();
+            ToolResult response;
+            try {
+                response = tool != null && ToolDefinitions.isReadOnly(tool)
+                        ? guard.callHedged(() -> client.callTool(route.toolName, arguments), responseTimeouts.get(route.serverName))
+                        : guard.call(() -> client.callTool(route.toolName, arguments));
+            } finally {
+                concurrencyLimiter.onSample("mcp", System.nanoTime() - startedAt);
+            }
+            log.info("MCP function {} executed on {}: {} {}", functionName, route.serverName,
+                    kv("status", response.getStatus()), kv("resultSize", response.getSize()));
             return response;
 
+        } catch (DeadlineExceededException e) {
+            // Kullanıcı artık beklemiyor, turu devam ettirmenin anlamı yok
+            throw e;
         } catch (Exception e) {
             log.error("Error calling MCP function: {}", functionName, e);
-            return "{\"error\": \"" + e.getMessage() + "\"}";
+            return toolResultReader.error(e.getMessage());
         }
     }
 
     /**
-     * Tool definition'ı bul
+     * Birden fazla MCP fonksiyonunu çağırır, sonuçlar istek sırasıyla döner
+     * Çağrılar sunuculara göre gruplanır; her sunucuya tek istek (JSON-RPC batch) gider ve
+     * sunucular paralel çağrılır
      */
-    private Map<String, Object> findToolDefinition(String functionName) {
-        List<Map<String, Object>> tools = getAvailableTools();
-        for (Map<String, Object> tool : tools) {
-            if (functionName.equals(tool.get("name"))) {
-                return tool;
+    public List<ToolResult> callFunctions(List<McpToolCall> calls) {
+        ToolResult[] results = new ToolResult[calls.size()];
+        Map<String, List<Integer>> positionsByServer = new LinkedHashMap<>();
+        Map<String, List<McpToolCall>> callsByServer = new LinkedHashMap<>();
+
+        for (int i = 0; i < calls.size(); i++) {
+            McpToolCall call = calls.get(i);
+            ToolRoute route = resolve(call.getName());
+            if (route == null) {
+                results[i] = toolResultReader.error("Unknown function: " + call.getName());
+                continue;
             }
+            positionsByServer.computeIfAbsent(route.serverName, key -> new ArrayList<>()).add(i);
+            callsByServer.computeIfAbsent(route.serverName, key -> new ArrayList<>())
+                    .add(new McpToolCall(route.toolName, call.getArguments()));
         }
-        return null;
-    }
 
-    /**
-     * Endpoint içindeki placeholder'ları değiştir
-     * Örn: /mcp/orders/{id} + {orderId: 123} -> /mcp/orders/123
-     */
-    private String replacePlaceholders(String endpoint, Map<String, Object> arguments) {
-        String result = endpoint;
+        Map<String, CompletableFuture<List<ToolResult>>> futures = new LinkedHashMap<>();
+        callsByServer.forEach((serverName, serverCalls) -> futures.put(serverName,
+                CompletableFuture.supplyAsync(RequestDeadline.wrapSupplier(() -> upstreamGuards.get("mcp:" + serverName)
+                        .call(() -> clients.get(serverName).callTools(serverCalls))), executor)));
+
+        futures.forEach((serverName, future) -> {
+            List<Integer> positions = positionsByServer.get(serverName);
+            try {
+                List<ToolResult> serverResults = future.join();
+                for (int i = 0; i < positions.size(); i++) {
+                    results[positions.get(i)] = serverResults.get(i);
+                }
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.error("Error calling MCP functions on {}", serverName, cause);
+                positions.forEach(position -> results[position] = toolResultReader.error(cause.getMessage()));
+            }
+        });
+        return List.of(results);
+    }
 
-        // {id} gibi placeholder'ları bul ve değiştir
-        if (result.contains("{id}") && arguments.containsKey("orderId")) {
-            result = result.replace("{id}", String.valueOf(arguments.get("orderId")));
+    private ToolRoute resolve(String functionName) {
+        if (!discovered) {
+            refreshTools(clients.values());
         }
-
-        return result;
+        return toolIndex.routes.get(functionName);
     }
 
     /**
-     * Query parametrelerini çıkar (path parametresi olmayanlar)
+     * Sunucu için kendi bağlantı havuzu ve zaman aşımları olan istemci oluşturur
      */
-    private Map<String, Object> extractQueryParams(Map<String, Object> arguments, String endpoint) {
-        Map<String, Object> queryParams = new HashMap<>();
-
-        for (Map.Entry<String, Object> entry : arguments.entrySet()) {
-            String key = entry.getKey();
-            // orderId path parametresi olduğu için query'ye ekleme
-            if (!"orderId".equals(key)) {
-                queryParams.put(key, entry.getValue());
-            }
+    private McpServerClient createClient(McpServersConfig.Server server) {
+        ConnectionProvider provider = ConnectionProvider.builder("mcp-" + server.getName())
+                .maxConnections(server.getMaxConnections())
+                .pendingAcquireTimeout(Duration.ofMillis(server.getPendingAcquireTimeoutMs()))
+                .build();
+        connectionProviders.add(provider);
+
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) server.getConnectTimeoutMs())
+                .responseTimeout(Duration.ofMillis(server.getResponseTimeoutMs()))
+                // Sunucu büyük yanıtları gzip'lerse açılır (server.compression)
+                .compress(true);
+        WebClient webClient = webClientBuilder.clone()
+                .baseUrl(server.getUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(McpClientService::propagateDeadline)
+                .build();
+
+        String transport = server.getTransport() != null ? server.getTransport() : serversConfig.getTransport();
+        log.info("MCP server {} at {} ({} transport, {} connections)",
+                server.getName(), server.getUrl(), transport, server.getMaxConnections());
+        if ("rest".equalsIgnoreCase(transport)) {
+            return new McpRestClient(server.getName(), webClient, toolResultReader, responseCacheSize);
         }
-
-        return queryParams;
+        boolean smile = server.getSmile() != null ? server.getSmile() : serversConfig.isSmile();
+        return new McpJsonRpcClient(server.getName(), webClient, objectMapper, toolResultReader, eventPublisher,
+                notificationRetryMillis, smile);
     }
 
     /**
-     * HTTP isteğini yürüt
+     * İsteğin kalan süresini MCP sunucusuna iletir ve istemci bağlantıyı kapatırsa yanıtı beklemeyi bırakıp
+     * bağlantıyı keser; filtre isteği block() eden thread'de çalışır
      */
-    private String executeRequest(WebClient webClient, String method, String uri, Map<String, Object> queryParams) {
-        WebClient.RequestHeadersSpec<?> spec;
-
-        switch (method.toUpperCase()) {
-            case "GET":
-                spec = webClient.get().uri(uriBuilder -> {
-                    uriBuilder.path(uri);
-                    queryParams.forEach((key, value) -> uriBuilder.queryParam(key, value));
-                    return uriBuilder.build(false); // false = encode
-                });
-                break;
-
-            case "POST":
-                spec = webClient.post().uri(uri);
-                break;
-
-            case "PUT":
-                spec = webClient.put().uri(uri);
-                break;
-
-            case "DELETE":
-                spec = webClient.delete().uri(uri);
-                break;
-
-            case "PATCH":
-                spec = webClient.patch().uri(uriBuilder -> {
-                    uriBuilder.path(uri);
-                    queryParams.forEach((key, value) -> uriBuilder.queryParam(key, value));
-                    return uriBuilder.build(false); // false = encode
-                });
-                break;
-
-            default:
-                throw new IllegalArgumentException("Unsupported HTTP method: " + method);
+    private static Mono<ClientResponse> propagateDeadline(ClientRequest request, ExchangeFunction next) {
+        if (!RequestDeadline.isSet()) {
+            return next.exchange(request);
         }
+        return next.exchange(ClientRequest.from(request)
+                        .header(RequestDeadline.HEADER, String.valueOf(Math.max(0, RequestDeadline.remainingMillis())))
+                        .build())
+                .or(RequestDeadline.whenCancelled("MCP request " + request.url().getPath()));
+    }
 
-        return spec.retrieve()
-                .bodyToMono(String.class)
-                .block();
+    @AllArgsConstructor
+    private static final class ToolRoute {
+        private final String serverName;
+        private final String toolName;
     }
 
-    private Long getLongValue(Object value) {
-        if (value == null) {
-            return null;
-        }
-        if (value instanceof Number) {
-            return ((Number) value).longValue();
-        }
-        if (value instanceof String) {
-            return Long.parseLong((String) value);
-        }
-        return null;
+    @AllArgsConstructor
+    private static final class ToolIndex {
+        private final List<Map<String, Object>> tools;
+        private final Map<String, ToolRoute> routes;
     }
 }
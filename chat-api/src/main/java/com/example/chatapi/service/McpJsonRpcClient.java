@@ -0,0 +1,321 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.McpToolCall;
+import com.example.chatapi.model.ToolResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.PrematureCloseException;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MCP JSON-RPC istemcisi (streamable HTTP), sunucu başına bir tane
+ * initialize ile tek bir oturum açar ve tüm çağrılarda Mcp-Session-Id ile yeniden kullanır.
+ * Birden fazla tool çağrısı tek bir JSON-RPC batch'i olarak gönderilir; WebClient bağlantı havuzu
+ * sayesinde istekler aynı keep-alive bağlantı üzerinden gider.
+ */
+@Slf4j
+public class McpJsonRpcClient implements McpServerClient {
+
+    private static final String SESSION_HEADER = "Mcp-Session-Id";
+    private static final String PROTOCOL_VERSION = "2025-03-26";
+    private static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+    private static final MediaType JSON_FALLBACK = new MediaType(MediaType.APPLICATION_JSON, Map.of("q", "0.9"));
+
+    private final String serverName;
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper;
+    private final ToolResultReader toolResultReader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long notificationRetryMillis;
+    // Smile istenirse sunucu destekliyorsa ikili, desteklemiyorsa JSON yanıt döner
+    private final MediaType[] responseTypes;
+
+    private final AtomicLong requestIds = new AtomicLong();
+
+    private volatile String sessionId;
+    private volatile Disposable notificationStream;
+    private volatile boolean notificationStreamConnected;
+
+    public McpJsonRpcClient(String serverName, WebClient webClient, ObjectMapper objectMapper,
+                            ToolResultReader toolResultReader, ApplicationEventPublisher eventPublisher,
+                            long notificationRetryMillis, boolean smile) {
+        this.serverName = serverName;
+        this.webClient = webClient;
+        this.objectMapper = objectMapper;
+        this.toolResultReader = toolResultReader;
+        this.eventPublisher = eventPublisher;
+        this.notificationRetryMillis = notificationRetryMillis;
+        this.responseTypes = smile
+                ? new MediaType[] {APPLICATION_SMILE, JSON_FALLBACK}
+                : new MediaType[] {MediaType.APPLICATION_JSON};
+    }
+
+    @Override
+    public String getServerName() {
+        return serverName;
+    }
+
+    /**
+     * tools/list ile araç listesini getirir
+     */
+    @Override
+    public List<Map<String, Object>> listTools() {
+        Map<String, Object> message = request("tools/list", Map.of());
+        JsonNode response = exchange(List.of(message)).get(idOf(message));
+        if (response == null || response.has("error")) {
+            throw new IllegalStateException("tools/list failed: " + (response != null ? response.get("error") : "no response"));
+        }
+        return objectMapper.convertValue(response.path("result").path("tools"), new TypeReference<>() {});
+    }
+
+    /**
+     * Tek bir tool çağrısı yapar, sonucun metin içeriğini ayrıştırılmış olarak döndürür
+     */
+    @Override
+    public ToolResult callTool(String name, Map<String, Object> arguments) {
+        return callTools(List.of(new McpToolCall(name, arguments))).get(0);
+    }
+
+    /**
+     * Tool çağrılarını tek bir JSON-RPC batch'i olarak gönderir
+     * Sonuçlar istek sırasıyla döner; hatalı çağrılar hata sonucu olarak raporlanır
+     */
+    @Override
+    public List<ToolResult> callTools(List<McpToolCall> calls) {
+        List<Map<String, Object>> messages = new ArrayList<>(calls.size());
+        for (McpToolCall call : calls) {
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("name", call.getName());
+            params.put("arguments", call.getArguments() != null ? call.getArguments() : Map.of());
+            messages.add(request("tools/call", params));
+        }
+
+        Map<Long, JsonNode> responses = exchange(messages);
+        return messages.stream()
+                .map(message -> toolResult(responses.get(idOf(message))))
+                .toList();
+    }
+
+    /**
+     * Sunucudan gelen bildirim akışı açık mı (açıksa katalog değişiklikleri anında bildirilir)
+     */
+    @Override
+    public boolean isReceivingToolChanges() {
+        return notificationStreamConnected;
+    }
+
+    @Override
+    public void close() {
+        Disposable stream = notificationStream;
+        if (stream != null) {
+            stream.dispose();
+        }
+        String session = sessionId;
+        if (session != null) {
+            try {
+                webClient.delete().uri("/mcp").header(SESSION_HEADER, session)
+                        .retrieve().toBodilessEntity().block(Duration.ofSeconds(2));
+                log.info("MCP session {} on {} closed", session, serverName);
+            } catch (Exception e) {
+                log.debug("Could not close MCP session {}: {}", session, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Mesajları gönderir ve yanıtları id'ye göre döndürür
+     * Oturum sunucuda sona ermişse (404) yeni oturum açıp bir kez tekrar dener
+     */
+    private Map<Long, JsonNode> exchange(List<Map<String, Object>> messages) {
+        String session = ensureSession();
+        try {
+            return post(messages, session);
+        } catch (WebClientResponseException.NotFound e) {
+            log.info("MCP session {} on {} expired, re-initializing", session, serverName);
+            resetSession(session);
+            return post(messages, ensureSession());
+        }
+    }
+
+    private Map<Long, JsonNode> post(List<Map<String, Object>> messages, String session) {
+        Object body = messages.size() == 1 ? messages.get(0) : messages;
+        JsonNode response = webClient.post()
+                .uri("/mcp")
+                .header(SESSION_HEADER, session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(responseTypes)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .block();
+
+        Map<Long, JsonNode> byId = new HashMap<>();
+        if (response != null) {
+            List<JsonNode> items = new ArrayList<>();
+            if (response.isArray()) {
+                response.forEach(items::add);
+            } else {
+                items.add(response);
+            }
+            items.forEach(item -> byId.put(item.path("id").asLong(), item));
+        }
+        return byId;
+    }
+
+    /**
+     * Oturum yoksa initialize + notifications/initialized ile açar
+     */
+    private synchronized String ensureSession() {
+        if (sessionId != null) {
+            return sessionId;
+        }
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("protocolVersion", PROTOCOL_VERSION);
+        params.put("capabilities", Map.of());
+        params.put("clientInfo", Map.of("name", "chat-api", "version", "1.0.0"));
+
+        ResponseEntity<JsonNode> response = webClient.post()
+                .uri("/mcp")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(responseTypes)
+                .bodyValue(request("initialize", params))
+                .retrieve()
+                .toEntity(JsonNode.class)
+                // Yanıt gövdesi yarıda kesilirse (bağlantı erken kapandı) initialize bir kez tekrarlanır;
+                // sunucuda yarım kalan oturum kullanılmadığı için zaman aşımıyla kapanır
+                .retryWhen(Retry.max(1).filter(McpJsonRpcClient::isPrematureClose))
+                .block();
+
+        String session = response != null ? response.getHeaders().getFirst(SESSION_HEADER) : null;
+        if (session == null || response.getBody() == null || response.getBody().has("error")) {
+            throw new IllegalStateException("MCP initialize failed: " + (response != null ? response.getBody() : "no response"));
+        }
+
+        Map<String, Object> initialized = new LinkedHashMap<>();
+        initialized.put("jsonrpc", "2.0");
+        initialized.put("method", "notifications/initialized");
+        webClient.post()
+                .uri("/mcp")
+                .header(SESSION_HEADER, session)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(initialized)
+                .retrieve()
+                .toBodilessEntity()
+                .block();
+
+        sessionId = session;
+        log.info("MCP session {} opened on {} (protocol {})", session, serverName,
+                response.getBody().path("result").path("protocolVersion").asText());
+        openNotificationStream(session);
+        return session;
+    }
+
+    private static boolean isPrematureClose(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PrematureCloseException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private synchronized void resetSession(String expired) {
+        if (expired.equals(sessionId)) {
+            sessionId = null;
+            Disposable stream = notificationStream;
+            if (stream != null) {
+                stream.dispose();
+            }
+        }
+    }
+
+    /**
+     * GET /mcp ile sunucu bildirimlerini dinler, koparsa aynı oturum için yeniden bağlanır
+     */
+    private void openNotificationStream(String session) {
+        notificationStream = webClient.get()
+                .uri("/mcp")
+                .header(SESSION_HEADER, session)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .doOnSubscribe(subscription -> notificationStreamConnected = true)
+                .doFinally(signal -> notificationStreamConnected = false)
+                .repeat(() -> session.equals(sessionId))
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, Duration.ofMillis(notificationRetryMillis))
+                        .filter(error -> session.equals(sessionId)))
+                // Bildirim işleyicileri bloklayan çağrılar yapar, Netty event loop'unda çalışmamalı
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(this::onNotification,
+                        error -> log.debug("MCP notification stream of session {} on {} ended: {}",
+                                session, serverName, error.getMessage()));
+    }
+
+    private void onNotification(ServerSentEvent<String> event) {
+        if (event.data() == null) {
+            return;
+        }
+        try {
+            String method = objectMapper.readTree(event.data()).path("method").asText();
+            log.info("MCP notification received from {}: {}", serverName, method);
+            if ("notifications/tools/list_changed".equals(method)) {
+                eventPublisher.publishEvent(new McpToolsChangedEvent(serverName));
+            }
+        } catch (Exception e) {
+            log.warn("Invalid MCP notification: {}", event.data());
+        }
+    }
+
+    private ToolResult toolResult(JsonNode response) {
+        if (response == null) {
+            return toolResultReader.error("No response from MCP server");
+        }
+        if (response.has("error")) {
+            return toolResultReader.error(response.path("error").path("message").asText());
+        }
+        JsonNode result = response.path("result");
+        StringBuilder text = new StringBuilder();
+        result.path("content").forEach(content -> {
+            if ("text".equals(content.path("type").asText())) {
+                text.append(content.path("text").asText());
+            }
+        });
+        if (result.path("isError").asBoolean(false)) {
+            return toolResultReader.error(text.toString());
+        }
+        return toolResultReader.read(text.toString());
+    }
+
+    private Map<String, Object> request(String method, Map<String, Object> params) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("jsonrpc", "2.0");
+        message.put("id", requestIds.incrementAndGet());
+        message.put("method", method);
+        message.put("params", params);
+        return message;
+    }
+
+    private static long idOf(Map<String, Object> message) {
+        return (Long) message.get("id");
+    }
+}
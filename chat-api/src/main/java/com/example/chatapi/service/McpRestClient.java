@@ -0,0 +1,294 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.McpToolCall;
+import com.example.chatapi.model.ToolResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tool başına REST endpoint'i sunan MCP sunucusu istemcisi
+ * Katalog /mcp/tools'tan ETag ile koşullu alınır; her tool çağrısı kataloğdaki method/endpoint'e gider
+ */
+@Slf4j
+public class McpRestClient implements McpServerClient {
+
+    private final String serverName;
+    private final WebClient webClient;
+    private final ToolResultReader toolResultReader;
+
+    // Cache for tool definitions
+    private volatile List<Map<String, Object>> cachedTools = null;
+
+    // Katalog sürümü ve ETag'i (koşullu yenileme için)
+    private volatile String toolsVersion = null;
+    private volatile String toolsEtag = null;
+
+    // GET yanıtları ve ETag'leri (URI -> yanıt), LRU
+    private final Map<String, CachedResponse> responseCache;
+
+    public McpRestClient(String serverName, WebClient webClient, ToolResultReader toolResultReader,
+                         int responseCacheSize) {
+        this.serverName = serverName;
+        this.webClient = webClient;
+        this.toolResultReader = toolResultReader;
+        this.responseCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > responseCacheSize;
+            }
+        };
+    }
+
+    @Override
+    public String getServerName() {
+        return serverName;
+    }
+
+    /**
+     * Katalog ETag'i ile koşullu GET yapar, sadece değişiklik varsa cache'i günceller
+     */
+    @Override
+    public synchronized List<Map<String, Object>> listTools() {
+        log.debug("Revalidating MCP tool catalog of {} (etag={})", serverName, toolsEtag);
+        String etag = toolsEtag;
+
+        ResponseEntity<Map<String, Object>> response = webClient.get()
+                .uri("/mcp/tools")
+                .headers(headers -> {
+                    if (etag != null && cachedTools != null) {
+                        headers.setIfNoneMatch(etag);
+                    }
+                })
+                .exchangeToMono(clientResponse -> {
+                    if (clientResponse.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                        return clientResponse.releaseBody()
+                                .then(Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                                        .<Map<String, Object>>build()));
+                    }
+                    return clientResponse.toEntity(new ParameterizedTypeReference<Map<String, Object>>() {});
+                })
+                .block();
+
+        if (response == null || response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+            log.debug("MCP tool catalog of {} unchanged (version {})", serverName, toolsVersion);
+            return cachedTools;
+        }
+
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new IllegalStateException("MCP tool catalog request failed: " + response.getStatusCode());
+        }
+
+        Map<String, Object> body = response.getBody();
+        if (body != null && body.containsKey("tools")) {
+            cachedTools = (List<Map<String, Object>>) body.get("tools");
+            toolsVersion = (String) body.get("version");
+            toolsEtag = response.getHeaders().getETag();
+            log.info("Fetched {} MCP tools from {} (catalog version {})", cachedTools.size(), serverName, toolsVersion);
+        }
+        return cachedTools;
+    }
+
+    /**
+     * Tool definitions'dan endpoint ve method bilgisini alıp çağrıyı yapar
+     */
+    @Override
+    public ToolResult callTool(String name, Map<String, Object> arguments) {
+        // Tool definition'ı bul
+        Map<String, Object> toolDef = findToolDefinition(name);
+        if (toolDef == null) {
+            log.warn("Unknown function on {}: {}", serverName, name);
+            return toolResultReader.error("Unknown function: " + name);
+        }
+
+        String endpoint = (String) toolDef.get("endpoint");
+        String method = (String) toolDef.get("method");
+
+        // Path parametrelerini değiştir (örn: /mcp/orders/{id} -> /mcp/orders/123)
+        String uri = replacePlaceholders(endpoint, arguments);
+
+        // Query/body parametrelerini ekle (PATCH için address, POST için orderIds gibi)
+        Map<String, Object> queryParams = extractQueryParams(arguments);
+
+        // HTTP metoduna göre çağrı yap
+        return toolResultReader.read(executeRequest(method, uri, queryParams));
+    }
+
+    /**
+     * REST'te batch yoktur, çağrılar sırayla yapılır
+     */
+    @Override
+    public List<ToolResult> callTools(List<McpToolCall> calls) {
+        return calls.stream()
+                .map(call -> callTool(call.getName(), call.getArguments()))
+                .toList();
+    }
+
+    @Override
+    public boolean isReceivingToolChanges() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        // Oturum yok, kapatılacak bir şey yok
+    }
+
+    /**
+     * Tool definition'ı bul
+     */
+    private Map<String, Object> findToolDefinition(String functionName) {
+        List<Map<String, Object>> tools = cachedTools != null ? cachedTools : listTools();
+        if (tools == null) {
+            return null;
+        }
+        for (Map<String, Object> tool : tools) {
+            if (functionName.equals(tool.get("name"))) {
+                return tool;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Endpoint içindeki placeholder'ları değiştir
+     * Örn: /mcp/orders/{id} + {orderId: 123} -> /mcp/orders/123
+     */
+    private String replacePlaceholders(String endpoint, Map<String, Object> arguments) {
+        String result = endpoint;
+
+        // {id} gibi placeholder'ları bul ve değiştir
+        if (result.contains("{id}") && arguments.containsKey("orderId")) {
+            result = result.replace("{id}", String.valueOf(arguments.get("orderId")));
+        }
+
+        return result;
+    }
+
+    /**
+     * Query parametrelerini çıkar (path parametresi olmayanlar)
+     * POST/PUT çağrılarında bunlar request body olarak gönderilir
+     */
+    private Map<String, Object> extractQueryParams(Map<String, Object> arguments) {
+        Map<String, Object> queryParams = new HashMap<>();
+
+        for (Map.Entry<String, Object> entry : arguments.entrySet()) {
+            String key = entry.getKey();
+            // orderId path parametresi olduğu için query'ye ekleme
+            if (!"orderId".equals(key)) {
+                queryParams.put(key, entry.getValue());
+            }
+        }
+
+        return queryParams;
+    }
+
+    /**
+     * HTTP isteğini yürüt
+     */
+    private String executeRequest(String method, String uri, Map<String, Object> queryParams) {
+        WebClient.RequestHeadersSpec<?> spec;
+
+        switch (method.toUpperCase()) {
+            case "GET":
+                spec = webClient.get().uri(uriBuilder -> {
+                    uriBuilder.path(uri);
+                    queryParams.forEach((key, value) -> uriBuilder.queryParam(key, value));
+                    return uriBuilder.build(false); // false = encode
+                });
+                break;
+
+            case "POST":
+                // Path parametresi olmayan argümanlar JSON body olarak gönderilir (örn: batch işlemleri)
+                spec = webClient.post().uri(uri)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(queryParams);
+                break;
+
+            case "PUT":
+                spec = webClient.put().uri(uri)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(queryParams);
+                break;
+
+            case "DELETE":
+                spec = webClient.delete().uri(uri);
+                break;
+
+            case "PATCH":
+                spec = webClient.patch().uri(uriBuilder -> {
+                    uriBuilder.path(uri);
+                    queryParams.forEach((key, value) -> uriBuilder.queryParam(key, value));
+                    return uriBuilder.build(false); // false = encode
+                });
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unsupported HTTP method: " + method);
+        }
+
+        if ("GET".equalsIgnoreCase(method)) {
+            return executeConditionalGet(spec, uri + (queryParams.isEmpty() ? "" : "?" + new TreeMap<>(queryParams)));
+        }
+
+        return spec.retrieve()
+                .bodyToMono(String.class)
+                .block();
+    }
+
+    /**
+     * GET çağrılarını ETag ile yeniden doğrular
+     * MCP sunucusu 304 dönerse gövde tekrar aktarılmaz, cache'teki yanıt kullanılır
+     */
+    private String executeConditionalGet(WebClient.RequestHeadersSpec<?> spec, String cacheKey) {
+        CachedResponse cached;
+        synchronized (responseCache) {
+            cached = responseCache.get(cacheKey);
+        }
+        if (cached != null) {
+            spec = spec.header(HttpHeaders.IF_NONE_MATCH, cached.etag);
+        }
+
+        return spec.exchangeToMono(response -> {
+                    if (cached != null && response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                        log.debug("MCP response not modified: {} (etag={})", cacheKey, cached.etag);
+                        return response.releaseBody().thenReturn(cached.body);
+                    }
+                    if (response.statusCode().isError()) {
+                        return response.createException().flatMap(Mono::error);
+                    }
+                    String etag = response.headers().asHttpHeaders().getETag();
+                    return response.bodyToMono(String.class)
+                            .defaultIfEmpty("")
+                            .doOnNext(body -> {
+                                if (etag != null) {
+                                    synchronized (responseCache) {
+                                        responseCache.put(cacheKey, new CachedResponse(etag, body));
+                                    }
+                                }
+                            });
+                })
+                .block();
+    }
+
+    private static final class CachedResponse {
+        private final String etag;
+        private final String body;
+
+        private CachedResponse(String etag, String body) {
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.McpToolCall;
+import com.example.chatapi.model.ToolResult;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tek bir MCP sunucusuyla konuşan istemci (transport'a göre JSON-RPC veya REST)
+ */
+public interface McpServerClient {
+
+    String getServerName();
+
+    /**
+     * Sunucunun güncel araç listesi
+     */
+    List<Map<String, Object>> listTools();
+
+    /**
+     * Aracı sunucudaki kendi adıyla çağırır, sonuç bir kez ayrıştırılmış olarak döner
+     */
+    ToolResult callTool(String name, Map<String, Object> arguments);
+
+    /**
+     * Birden fazla aracı çağırır, sonuçlar istek sırasıyla döner
+     */
+    List<ToolResult> callTools(List<McpToolCall> calls);
+
+    /**
+     * Sunucu katalog değişikliklerini kendisi bildiriyorsa periyodik yoklamaya gerek yoktur
+     */
+    boolean isReceivingToolChanges();
+
+    void close();
+}
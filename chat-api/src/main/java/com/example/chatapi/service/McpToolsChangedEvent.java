@@ -0,0 +1,13 @@
+package com.example.chatapi.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * MCP sunucusu tools/list_changed bildirimi gönderdiğinde yayınlanır
+ */
+@Getter
+@AllArgsConstructor
+public class McpToolsChangedEvent {
+    private final String serverName;
+}
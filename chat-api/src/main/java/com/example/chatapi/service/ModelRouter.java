@@ -0,0 +1,175 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.openai.OpenAIRequest;
+import com.example.chatapi.model.openai.OpenAIResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Her OpenAI çağrısı için model seçer: hızlı/ucuz model (openai.fast-model) veya premium model (openai.model)
+ * Fonksiyon sonucunu cümleye dökme (follow-up) ve tek, belirgin araca giden kısa mesajlar hızlı modele;
+ * çok adımlı veya belirsiz mesajlar premium modele gider. Hızlı modelin yanıtı doğrulamadan geçmezse
+ * (boş/kesik metin, sunulmayan fonksiyon, eksik zorunlu argüman) aynı istek premium modelle tekrarlanır.
+ * openai.fast-model boşsa her şey premium modele gider.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ModelRouter {
+
+    public static final String PHASE_DISPATCH = "dispatch";
+    public static final String PHASE_FOLLOW_UP = "follow-up";
+
+    private static final Locale TURKISH = Locale.forLanguageTag("tr");
+
+    private final McpClientService mcpClientService;
+    private final ToolSelector toolSelector;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${openai.model:gpt-4}")
+    private String premiumModel;
+
+    @Value("${openai.api.url:https://api.openai.com/v1/chat/completions}")
+    private String premiumUrl;
+
+    @Value("${openai.fast-model:}")
+    private String fastModel;
+
+    // Hızlı model farklı bir OpenAI uyumlu uç noktada olabilir (boşsa openai.api.url)
+    @Value("${openai.fast-api-url:}")
+    private String fastUrl;
+
+    @Value("${chat.model-routing.max-terms:12}")
+    private int maxTerms;
+
+    // Bu kelimelerle başlayan terimler birden fazla adım istendiğini gösterir ("önce listele sonra iptal et")
+    @Value("${chat.model-routing.multi-step-words:sonra,ardından,ayrıca,önce,hepsi,tümü}")
+    private List<String> multiStepWords;
+
+    public boolean isEnabled() {
+        return fastModel != null && !fastModel.isBlank();
+    }
+
+    public String getPremiumModel() {
+        return premiumModel;
+    }
+
+    /**
+     * Kullanıcı mesajının ilk (fonksiyon seçen) çağrısı için model
+     */
+    public String forTurn(String userMessage) {
+        if (!isEnabled()) {
+            return premiumModel;
+        }
+        if (userMessage == null || ToolSelector.tokenize(userMessage).size() > maxTerms || isMultiStep(userMessage)) {
+            return premiumModel;
+        }
+        // Mesaj tek bir araca açık ara işaret etmiyorsa belirsizdir, premium model karar versin
+        return toolSelector.best(mcpClientService.getAvailableTools(), userMessage) != null ? fastModel : premiumModel;
+    }
+
+    /**
+     * Fonksiyon sonucunu cümleye döken takip çağrısı için model
+     */
+    public String forFollowUp() {
+        return isEnabled() ? fastModel : premiumModel;
+    }
+
+    public boolean isFast(String model) {
+        return isEnabled() && fastModel.equals(model) && !fastModel.equals(premiumModel);
+    }
+
+    public String urlFor(String model) {
+        return isFast(model) && fastUrl != null && !fastUrl.isBlank() ? fastUrl : premiumUrl;
+    }
+
+    /**
+     * Yanıt kullanılabilir mi; değilse nedenini (metrik etiketi olarak), kullanılabilirse null döner
+     */
+    public String validate(OpenAIResponse response, List<OpenAIRequest.Function> functions) {
+        if (response == null || response.getChoices() == null || response.getChoices().isEmpty()
+                || response.getChoices().get(0).getMessage() == null) {
+            return "empty";
+        }
+        OpenAIResponse.Choice choice = response.getChoices().get(0);
+        if ("length".equals(choice.getFinishReason())) {
+            return "truncated";
+        }
+
+        OpenAIRequest.FunctionCall call = choice.getMessage().getFunctionCall();
+        if (call == null) {
+            String content = choice.getMessage().getContent();
+            return content == null || content.isBlank() ? "empty" : null;
+        }
+
+        OpenAIRequest.Function function = functions == null ? null : functions.stream()
+                .filter(candidate -> candidate.getName().equals(call.getName()))
+                .findFirst()
+                .orElse(null);
+        if (function == null) {
+            return "unknown-function";
+        }
+        JsonNode arguments;
+        try {
+            arguments = objectMapper.readTree(call.getArguments() == null ? "{}" : call.getArguments());
+        } catch (Exception e) {
+            return "invalid-arguments";
+        }
+        if (arguments == null || !arguments.isObject()) {
+            return "invalid-arguments";
+        }
+        List<String> required = function.getParameters() != null ? function.getParameters().getRequired() : null;
+        if (required != null) {
+            for (String parameter : required) {
+                if (!arguments.hasNonNull(parameter)) {
+                    return "missing-arguments";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Model ve aşama bazında gecikme ve token kullanımını kaydeder
+     */
+    public void record(String model, String phase, long nanos, OpenAIResponse response) {
+        Timer.builder("chat.openai.latency")
+                .description("OpenAI chat completion latency")
+                .tag("model", model)
+                .tag("phase", phase)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(nanos));
+        if (response != null && response.getUsage() != null) {
+            meterRegistry.counter("chat.openai.tokens", "model", model, "phase", phase, "type", "prompt")
+                    .increment(response.getUsage().getPromptTokens());
+            meterRegistry.counter("chat.openai.tokens", "model", model, "phase", phase, "type", "completion")
+                    .increment(response.getUsage().getCompletionTokens());
+        }
+    }
+
+    public void recordEscalation(String phase, String reason) {
+        meterRegistry.counter("chat.openai.escalation", "phase", phase, "reason", reason).increment();
+    }
+
+    private boolean isMultiStep(String userMessage) {
+        for (String token : userMessage.toLowerCase(TURKISH).split("[^\\p{L}]+")) {
+            for (String word : multiStepWords) {
+                if (!word.isBlank() && token.startsWith(word.trim())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
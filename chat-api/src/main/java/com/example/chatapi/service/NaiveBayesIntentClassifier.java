@@ -0,0 +1,105 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.Intent;
+import com.example.chatapi.model.IntentMatch;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Niyet tanımlarındaki örnek cümlelerle açılışta eğitilen multinomial Naive Bayes sınıflandırıcı
+ * Terimler ToolSelector ile aynı şekilde çıkarılır; mesajdaki sayılar tek bir "#sayı" terimi olarak sayılır.
+ * Mesaj terimlerinin yarısından azı eğitim sözlüğündeyse (alan dışı mesaj) karar verilmez.
+ */
+@Slf4j
+@Component
+@Order(2)
+@RequiredArgsConstructor
+public class NaiveBayesIntentClassifier implements IntentClassifier {
+
+    private static final String NUMBER_TERM = "#sayı";
+
+    private final IntentCatalog intentCatalog;
+
+    private final List<Intent> classes = new ArrayList<>();
+    private final List<Map<String, Integer>> termCounts = new ArrayList<>();
+    private final List<Integer> totalTerms = new ArrayList<>();
+    private final List<Double> logPriors = new ArrayList<>();
+    private final Set<String> vocabulary = new HashSet<>();
+
+    @PostConstruct
+    public void train() {
+        int totalExamples = intentCatalog.getIntents().stream().mapToInt(intent -> intent.getExamples().size()).sum();
+        for (Intent intent : intentCatalog.getIntents()) {
+            if (intent.getExamples().isEmpty()) {
+                continue;
+            }
+            Map<String, Integer> counts = new HashMap<>();
+            int total = 0;
+            for (String example : intent.getExamples()) {
+                for (String term : terms(example)) {
+                    counts.merge(term, 1, Integer::sum);
+                    vocabulary.add(term);
+                    total++;
+                }
+            }
+            classes.add(intent);
+            termCounts.add(counts);
+            totalTerms.add(total);
+            logPriors.add(Math.log((double) intent.getExamples().size() / totalExamples));
+        }
+        log.info("Intent classifier trained on {} examples, {} intents, {} terms", totalExamples, classes.size(), vocabulary.size());
+    }
+
+    @Override
+    public IntentMatch classify(String message) {
+        List<String> terms = terms(message);
+        long known = terms.stream().filter(vocabulary::contains).count();
+        if (classes.isEmpty() || terms.isEmpty() || known * 2 < terms.size()) {
+            return null;
+        }
+
+        double[] scores = new double[classes.size()];
+        for (int i = 0; i < classes.size(); i++) {
+            double score = logPriors.get(i);
+            Map<String, Integer> counts = termCounts.get(i);
+            double denominator = totalTerms.get(i) + vocabulary.size();
+            for (String term : terms) {
+                if (vocabulary.contains(term)) {
+                    score += Math.log((counts.getOrDefault(term, 0) + 1) / denominator);
+                }
+            }
+            scores[i] = score;
+        }
+
+        // Log olasılıklarından softmax ile sonsal olasılık
+        int best = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        double sum = 0;
+        for (double score : scores) {
+            sum += Math.exp(score - scores[best]);
+        }
+        return new IntentMatch(classes.get(best), 1 / sum, "naive-bayes");
+    }
+
+    private static List<String> terms(String text) {
+        List<String> terms = ToolSelector.tokenize(text);
+        if (text.chars().anyMatch(Character::isDigit)) {
+            terms.add(NUMBER_TERM);
+        }
+        return terms;
+    }
+}
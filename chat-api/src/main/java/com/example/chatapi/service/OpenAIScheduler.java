@@ -0,0 +1,308 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.exception.OpenAIRateLimitException;
+import com.example.chatapi.model.openai.OpenAIRequest;
+import com.example.chatapi.model.openai.OpenAIResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * OpenAI çağrılarını hesabın istek/token limitlerine göre sıraya koyar ve hızını ayarlar
+ * Her model için istek ve token kovası tutulur; kovalar yanıtlardaki x-ratelimit-* başlıklarıyla güncellenir.
+ * Gönderilmeden önce isteğin token'ı tahmin edilir, kovada yer yoksa çağrı bekler. Bekleyen çağrılar oturumlar
+ * arasında sırayla (round-robin) ilerler, tek bir oturum diğerlerini bekletemez.
+ * 429 yanıtları Retry-After ve jitter'lı üstel bekleme ile chat.openai.rate-limit.deadline-ms içinde tekrarlanır;
+ * süre dolarsa OpenAIRateLimitException fırlatılır.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OpenAIScheduler {
+
+    // "1s", "6m0s", "20ms", "1m30.5s"
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|s|m|h)");
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${openai.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    // Başlıklar gelene kadar varsayılan limitler
+    @Value("${openai.rate-limit.requests-per-minute:500}")
+    private long requestsPerMinute;
+
+    @Value("${openai.rate-limit.tokens-per-minute:30000}")
+    private long tokensPerMinute;
+
+    // OpenAI limiti prompt + beklenen yanıt token'ı üzerinden sayar
+    @Value("${openai.rate-limit.completion-tokens:256}")
+    private int completionTokens;
+
+    @Value("${openai.rate-limit.deadline-ms:20000}")
+    private long deadlineMillis;
+
+    @Value("${openai.rate-limit.max-retries:4}")
+    private int maxRetries;
+
+    @Value("${openai.rate-limit.backoff-ms:500}")
+    private long backoffMillis;
+
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+
+    /**
+     * İsteği sırası ve bütçesi geldiğinde gönderir, 429 alırsa bekleyip tekrarlar
+     *
+     * @param send Asıl HTTP çağrısı; sadece bu sürenin gecikme olarak ölçülmesi için ayrı verilir
+     */
+    public OpenAIResponse execute(String sessionId, OpenAIRequest request, Supplier<ResponseEntity<OpenAIResponse>> send) {
+        if (!enabled) {
+            ResponseEntity<OpenAIResponse> response = send.get();
+            return response != null ? response.getBody() : null;
+        }
+
+        String model = request.getModel();
+        Budget budget = budgets.computeIfAbsent(model, key -> new Budget(requestsPerMinute, tokensPerMinute));
+        int tokens = estimateTokens(request);
+        long startedAt = System.nanoTime();
+        // İsteğin kalan süresinden uzun beklemenin anlamı yok
+        long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(Math.min(deadlineMillis, RequestDeadline.remainingMillis()));
+
+        for (int attempt = 0; ; attempt++) {
+            long queuedAt = System.nanoTime();
+            try {
+                budget.acquire(sessionId != null ? sessionId : "", tokens, deadline);
+            } catch (OpenAIRateLimitException e) {
+                RequestDeadline.check("OpenAI call for model " + model);
+                throw e;
+            }
+            meterRegistry.timer("chat.openai.queue", "model", model).record(Duration.ofNanos(System.nanoTime() - queuedAt));
+
+            try {
+                ResponseEntity<OpenAIResponse> response = send.get();
+                OpenAIResponse body = response != null ? response.getBody() : null;
+                budget.update(response != null ? response.getHeaders() : null, tokens,
+                        body != null && body.getUsage() != null ? body.getUsage().getTotalTokens() : 0);
+                return body;
+            } catch (WebClientResponseException.TooManyRequests e) {
+                long wait = budget.rateLimited(e.getHeaders(), attempt, backoffMillis);
+                if (attempt >= maxRetries || System.nanoTime() + wait > deadline) {
+                    meterRegistry.counter("chat.openai.rate-limited", "model", model, "outcome", "gave-up").increment();
+                    throw new OpenAIRateLimitException("OpenAI rate limit not cleared within "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt) + " ms for model " + model);
+                }
+                meterRegistry.counter("chat.openai.rate-limited", "model", model, "outcome", "retried").increment();
+                log.warn("OpenAI rate limited {} (attempt {}), retrying in {} ms", model, attempt + 1,
+                        TimeUnit.NANOSECONDS.toMillis(wait));
+                sleep(wait);
+            }
+        }
+    }
+
+    /**
+     * İsteğin limitten düşeceği token sayısının kaba tahmini: JSON gövdesi ~4 karakter/token + beklenen yanıt
+     */
+    int estimateTokens(OpenAIRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request).length() / 4 + completionTokens;
+        } catch (Exception e) {
+            return completionTokens;
+        }
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OpenAIRateLimitException("Interrupted while waiting for OpenAI rate limit");
+        }
+    }
+
+    static long parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        Matcher matcher = DURATION_PART.matcher(value);
+        double millis = 0;
+        boolean found = false;
+        while (matcher.find()) {
+            found = true;
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += switch (matcher.group(2)) {
+                case "ms" -> amount;
+                case "s" -> amount * 1000;
+                case "m" -> amount * 60_000;
+                default -> amount * 3_600_000;
+            };
+        }
+        return found ? TimeUnit.MILLISECONDS.toNanos(Math.round(millis)) : -1;
+    }
+
+    private static long headerLong(HttpHeaders headers, String name) {
+        String value = headers != null ? headers.getFirst(name) : null;
+        try {
+            return value != null ? Long.parseLong(value.trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Zamanla dolan kova; OpenAI'nin bildirdiği kalan miktar ve sıfırlanma süresiyle düzeltilir
+     */
+    private static final class Bucket {
+        private double capacity;
+        private double available;
+        private double refillPerNano;
+        private long refilledAt = System.nanoTime();
+
+        private Bucket(long perMinute) {
+            capacity = perMinute;
+            available = perMinute;
+            refillPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        }
+
+        private void refill(long now) {
+            available = Math.min(capacity, available + (now - refilledAt) * refillPerNano);
+            refilledAt = now;
+        }
+
+        private long nanosUntil(double amount) {
+            double missing = Math.min(amount, capacity) - available;
+            return missing <= 0 ? 0 : (long) Math.ceil(missing / refillPerNano);
+        }
+
+        private void update(long limit, long remaining, long resetNanos) {
+            if (remaining < 0) {
+                return;
+            }
+            if (limit > 0) {
+                capacity = limit;
+            }
+            available = remaining;
+            refillPerNano = resetNanos > 0 && capacity > remaining
+                    ? (capacity - remaining) / (double) resetNanos
+                    : capacity / (double) TimeUnit.MINUTES.toNanos(1);
+            refilledAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Bir modelin istek/token kovaları ve bekleyen çağrıların oturum bazında sırası
+     */
+    private static final class Budget {
+        private final Bucket requests;
+        private final Bucket tokens;
+        private final Map<String, ArrayDeque<Object>> waiting = new LinkedHashMap<>();
+        private final ArrayDeque<String> rotation = new ArrayDeque<>();
+
+        private Budget(long requestsPerMinute, long tokensPerMinute) {
+            requests = new Bucket(requestsPerMinute);
+            tokens = new Bucket(tokensPerMinute);
+        }
+
+        private synchronized void acquire(String session, int cost, long deadline) {
+            Object ticket = new Object();
+            waiting.computeIfAbsent(session, key -> {
+                rotation.add(key);
+                return new ArrayDeque<>();
+            }).add(ticket);
+
+            while (true) {
+                long now = System.nanoTime();
+                requests.refill(now);
+                tokens.refill(now);
+                boolean turn = session.equals(rotation.peek()) && waiting.get(session).peek() == ticket;
+                long shortfall = turn ? Math.max(requests.nanosUntil(1), tokens.nanosUntil(cost)) : Long.MAX_VALUE;
+                if (shortfall == 0) {
+                    requests.available -= 1;
+                    tokens.available -= cost;
+                    leave(session, ticket);
+                    return;
+                }
+                long remaining = deadline - now;
+                if (remaining <= 0) {
+                    leave(session, ticket);
+                    throw new OpenAIRateLimitException("Timed out waiting for OpenAI rate limit budget");
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, Math.max(TimeUnit.MILLISECONDS.toNanos(1), Math.min(remaining, shortfall)));
+                } catch (InterruptedException e) {
+                    leave(session, ticket);
+                    Thread.currentThread().interrupt();
+                    throw new OpenAIRateLimitException("Interrupted while waiting for OpenAI rate limit budget");
+                }
+            }
+        }
+
+        /**
+         * Çağrıyı sıradan çıkarır; oturumun başka çağrısı varsa oturum sıranın sonuna geçer
+         */
+        private void leave(String session, Object ticket) {
+            ArrayDeque<Object> queue = waiting.get(session);
+            boolean wasHead = queue.peek() == ticket;
+            queue.remove(ticket);
+            if (queue.isEmpty()) {
+                waiting.remove(session);
+                rotation.remove(session);
+            } else if (wasHead && session.equals(rotation.peek())) {
+                rotation.add(rotation.poll());
+            }
+            notifyAll();
+        }
+
+        private synchronized void update(HttpHeaders headers, int estimated, int actual) {
+            long remainingTokens = headerLong(headers, "x-ratelimit-remaining-tokens");
+            requests.update(headerLong(headers, "x-ratelimit-limit-requests"),
+                    headerLong(headers, "x-ratelimit-remaining-requests"),
+                    parseDuration(headers != null ? headers.getFirst("x-ratelimit-reset-requests") : null));
+            tokens.update(headerLong(headers, "x-ratelimit-limit-tokens"), remainingTokens,
+                    parseDuration(headers != null ? headers.getFirst("x-ratelimit-reset-tokens") : null));
+            if (remainingTokens < 0 && actual > 0) {
+                // Başlık yoksa tahmini gerçek kullanımla düzelt
+                tokens.available -= actual - estimated;
+            }
+            notifyAll();
+        }
+
+        /**
+         * 429 sonrası kovaları boşaltır ve tekrar denemeden önce beklenecek süreyi döndürür
+         */
+        private synchronized long rateLimited(HttpHeaders headers, int attempt, long backoffMillis) {
+            long now = System.nanoTime();
+            requests.refill(now);
+            tokens.refill(now);
+            requests.available = Math.min(requests.available, 0);
+            tokens.available = Math.min(tokens.available, 0);
+
+            long hinted = headerLong(headers, "retry-after-ms");
+            long wait = hinted >= 0 ? TimeUnit.MILLISECONDS.toNanos(hinted) : -1;
+            if (wait < 0 && headerLong(headers, "retry-after") >= 0) {
+                wait = TimeUnit.SECONDS.toNanos(headerLong(headers, "retry-after"));
+            }
+            // Full jitter: aynı anda 429 alan çağrılar aynı anda tekrar denemesin
+            long backoff = (long) (ThreadLocalRandom.current().nextDouble()
+                    * TimeUnit.MILLISECONDS.toNanos(backoffMillis << Math.min(attempt, 10)));
+            return Math.max(wait, 0) + backoff;
+        }
+    }
+}
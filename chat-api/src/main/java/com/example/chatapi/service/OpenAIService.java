@@ -1,18 +1,36 @@
 package com.example.chatapi.service;
 
+import com.example.chatapi.exception.DeadlineExceededException;
+import com.example.chatapi.exception.OpenAIRateLimitException;
+import com.example.chatapi.exception.UpstreamUnavailableException;
 import com.example.chatapi.model.ChatResponse;
 import com.example.chatapi.model.FunctionCallInfo;
+import com.example.chatapi.model.ToolResult;
 import com.example.chatapi.model.openai.OpenAIRequest;
 import com.example.chatapi.model.openai.OpenAIResponse;
+import com.example.chatapi.model.openai.OpenAIStreamChunk;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Slf4j
 @Service
@@ -23,15 +41,24 @@ public class OpenAIService {
     private final McpClientService mcpClientService;
     private final ObjectMapper objectMapper;
     private final ConversationHistoryService conversationHistoryService;
+    private final ToolSelector toolSelector;
+    private final ResponseTemplateRenderer responseTemplateRenderer;
+    private final ToolResultShaper toolResultShaper;
+    private final ToolPrefetcher toolPrefetcher;
+    private final IntentRouter intentRouter;
+    private final ModelRouter modelRouter;
+    private final ConcurrencyLimiter concurrencyLimiter;
+    private final OpenAIScheduler openAIScheduler;
+    private final UpstreamGuards upstreamGuards;
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
 
     @Value("${openai.api.key}")
     private String apiKey;
 
-    @Value("${openai.api.url:https://api.openai.com/v1/chat/completions}")
-    private String apiUrl;
-
-    @Value("${openai.model:gpt-4}")
-    private String model;
+    // Tek bir OpenAI çağrısının (hedge dahil) en fazla süresi
+    @Value("${openai.timeout-ms:30000}")
+    private long timeoutMillis;
 
     private static final String SYSTEM_PROMPT_BASE = """
             Sen bir e-ticaret müşteri destek asistanısın. Müşterilere siparişleriyle ilgili yardımcı oluyorsun.
@@ -51,11 +78,21 @@ public class OpenAIService {
     // Thread-local storage for tracking function calls
     private static final ThreadLocal<List<FunctionCallInfo>> functionCallsTracker = ThreadLocal.withInitial(ArrayList::new);
 
+    // Sonucu henüz gelmemiş, sipariş değiştirebilecek araç çağrısı; tur bu sırada kesilirse geçmişte kalır
+    private static final ThreadLocal<OpenAIRequest.Message> pendingChange = new ThreadLocal<>();
+
+    // Turun ara olaylarını (araç çağrıları, akışla gelen yanıt parçaları) dinleyen kanal
+    private static final ThreadLocal<ChatTurnListener> turnListener = ThreadLocal.withInitial(() -> ChatTurnListener.NONE);
+
     /**
      * MCP tool'larından dinamik olarak system prompt oluşturur
+     * Araç seçimi aktifse yetenek listesi eklenmez; araçlar zaten her istekte fonksiyon olarak gider
      */
     private String buildSystemPrompt() {
         List<Map<String, Object>> tools = mcpClientService.getAvailableTools();
+        if (toolSelector.isPruning(tools)) {
+            return SYSTEM_PROMPT_BASE;
+        }
 
         StringBuilder capabilities = new StringBuilder();
         capabilities.append("\n\nYapabileceklerin:\n");
@@ -73,18 +110,42 @@ public class OpenAIService {
      * Gerekirse MCP fonksiyonlarını çağırır
      */
     public ChatResponse chat(String userMessage, String sessionId) {
+        return chat(userMessage, sessionId, ChatTurnListener.NONE);
+    }
+
+    /**
+     * chat() ile aynı; araç çağrıları ve (listener isterse) akışla gelen takip yanıtı listener'a da iletilir
+     */
+    public ChatResponse chat(String userMessage, String sessionId, ChatTurnListener listener) {
+        // Turun her aşaması (prompt, OpenAI çağrıları, araç, takip yanıtı) bu span'in altında görünür
+        return Observation.createNotStarted("chat.turn", observationRegistry)
+                .highCardinalityKeyValue("session.id", sessionId)
+                .observe(() -> runTurn(userMessage, sessionId, listener));
+    }
+
+    private ChatResponse runTurn(String userMessage, String sessionId, ChatTurnListener listener) {
         // Clear previous function calls
         functionCallsTracker.get().clear();
+        turnListener.set(listener);
 
+        ToolPrefetcher.Prefetch prefetch = null;
+        ReentrantLock turnLock = null;
+        int turnStart = -1;
         try {
+            // Aynı session'ın önceki turu bitmeden geçmişe dokunulmaz; geri alma yalnızca bu turun mesajlarını siler
+            turnLock = conversationHistoryService.beginTurn(sessionId);
+
             // Dinamik system prompt oluştur
-            String systemPrompt = buildSystemPrompt();
+            String systemPrompt = Observation.createNotStarted("chat.prompt", observationRegistry)
+                    .lowCardinalityKeyValue("part", "system")
+                    .observe(this::buildSystemPrompt);
 
             // Session için conversation history'yi başlat (yoksa)
             conversationHistoryService.initializeSession(sessionId, systemPrompt);
+            turnStart = conversationHistoryService.getMessageCount(sessionId);
 
-            // MCP araçlarını al ve OpenAI fonksiyonlarına dönüştür
-            List<OpenAIRequest.Function> functions = buildFunctionsFromMcpTools();
+            // Basit niyetler (selamlaşma, "siparişlerimi göster") OpenAI'ye gitmeden yanıtlanır
+            IntentRouter.Route route = intentRouter.route(userMessage, conversationHistoryService.getHistory(sessionId));
 
             // Kullanıcı mesajını history'e ekle
             OpenAIRequest.Message userMessageObj = OpenAIRequest.Message.builder()
@@ -93,23 +154,39 @@ public class OpenAIService {
                     .build();
             conversationHistoryService.addMessage(sessionId, userMessageObj);
 
+            if (route != null) {
+                return ChatResponse.builder()
+                        .response(answerLocally(route, sessionId, userMessage))
+                        .sessionId(sessionId)
+                        .functionsCalled(new ArrayList<>(functionCallsTracker.get()))
+                        .build();
+            }
+
             // Mevcut conversation history'yi al
             List<OpenAIRequest.Message> messages = new ArrayList<>(conversationHistoryService.getHistory(sessionId));
 
+            // Konuşmayla ilgili MCP araçlarını seç ve OpenAI fonksiyonlarına dönüştür
+            List<OpenAIRequest.Function> functions = Observation.createNotStarted("chat.prompt", observationRegistry)
+                    .lowCardinalityKeyValue("part", "functions")
+                    .observe(() -> buildFunctionsFromMcpTools(messages));
+
             log.info("Session {}: Sending {} messages to OpenAI", sessionId, messages.size());
 
             OpenAIRequest request = OpenAIRequest.builder()
-                    .model(model)
+                    .model(modelRouter.forTurn(userMessage))
                     .messages(messages)
                     .functions(functions)
                     .functionCall("auto")
                     .build();
 
+            // Modelin isteyeceği tahmin edilen salt okunur aracı OpenAI yanıtını beklerken çağır
+            prefetch = toolPrefetcher.start(userMessage);
+
             // OpenAI'ye istek gönder
-            OpenAIResponse response = callOpenAI(request);
+            OpenAIResponse response = complete(request, ModelRouter.PHASE_DISPATCH, sessionId);
 
             // Yanıtı işle ve history'e ekle
-            String responseText = processResponse(response, sessionId);
+            String responseText = processResponse(response, sessionId, userMessage, prefetch);
 
             // Get the list of called functions
             List<FunctionCallInfo> calledFunctions = new ArrayList<>(functionCallsTracker.get());
@@ -120,6 +197,17 @@ public class OpenAIService {
                     .functionsCalled(calledFunctions)
                     .build();
 
+        } catch (DeadlineExceededException e) {
+            // Kullanıcı yanıtı beklemeyi bıraktı (süre doldu veya bağlantıyı kapattı); ChatController 504 döner
+            abandonTurn(sessionId, turnStart);
+            throw e;
+        } catch (OpenAIRateLimitException | UpstreamUnavailableException e) {
+            log.warn("Session {}: {}", sessionId, e.getMessage());
+            return ChatResponse.builder()
+                    .response("Şu anda yoğunluk nedeniyle yanıt veremiyorum. Lütfen biraz sonra tekrar deneyin.")
+                    .sessionId(sessionId)
+                    .functionsCalled(new ArrayList<>())
+                    .build();
         } catch (Exception e) {
             log.error("Error in chat", e);
             return ChatResponse.builder()
@@ -128,28 +216,266 @@ public class OpenAIService {
                     .functionsCalled(new ArrayList<>())
                     .build();
         } finally {
+            toolPrefetcher.discard(prefetch);
+            if (turnLock != null) {
+                turnLock.unlock();
+            }
             // Clean up thread-local
             functionCallsTracker.remove();
+            pendingChange.remove();
+            turnListener.remove();
+        }
+    }
+
+    /**
+     * Yarıda kalan turu geçmişten geri alır; kullanıcı yanıt görmediği için soru sonraki turda yeniden sorulur.
+     * Tur içinde sipariş değiştiren bir araç çalıştıysa fonksiyon çağrısı ve sonucu geçmişte kalır, model
+     * değişikliğin yapıldığını bilmelidir. Araç yanıtı beklenirken kesildiyse Order API değişikliği yapmış olabilir;
+     * çağrı "sonucu bilinmiyor" yanıtıyla geçmişe yazılır. Geçmiş her durumda fonksiyon çağrısı/sonuç çiftleriyle tutarlıdır.
+     */
+    private void abandonTurn(String sessionId, int turnStart) {
+        if (turnStart < 0) {
+            return;
+        }
+        OpenAIRequest.Message pending = pendingChange.get();
+        if (pending != null) {
+            String functionName = pending.getFunctionCall().getName();
+            conversationHistoryService.addMessage(sessionId, pending);
+            conversationHistoryService.addMessage(sessionId, OpenAIRequest.Message.builder()
+                    .role("function")
+                    .name(functionName)
+                    .content(unknownOutcome())
+                    .build());
+            log.info("Session {}: turn abandoned while {} was in flight, its outcome is unknown", sessionId, functionName);
+            return;
+        }
+        boolean changedOrders = functionCallsTracker.get().stream().anyMatch(call -> {
+            Map<String, Object> tool = mcpClientService.findTool(call.getFunctionName());
+            return tool == null || !ToolDefinitions.isReadOnly(tool);
+        });
+        if (changedOrders) {
+            log.info("Session {}: turn abandoned after a state-changing tool call, keeping its result in history", sessionId);
+            return;
+        }
+        conversationHistoryService.truncate(sessionId, turnStart);
+        log.info("Session {}: abandoned turn rolled back", sessionId);
+    }
+
+    private String unknownOutcome() {
+        try {
+            return objectMapper.writeValueAsString(Map.of(
+                    "status", "unknown",
+                    "message", "İstek yanıt gelmeden kesildi; işlem uygulanmış olabilir. Sonraki adımdan önce siparişin güncel durumunu kontrol et."));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to write tool result", e);
         }
     }
 
-    private OpenAIResponse callOpenAI(OpenAIRequest request) {
+    /**
+     * Router'ın bulduğu niyeti yanıtlar; konuşma geçmişine LLM yanıtlamış gibi yazılır ki sonraki turlar bağlamı görsün
+     * Araç niyetlerinde modelin yapacağı fonksiyon çağrısı taklit edilir (şablon yoksa sonuç yine OpenAI ile cümleye dökülür)
+     */
+    private String answerLocally(IntentRouter.Route route, String sessionId, String userMessage) throws Exception {
+        log.info("Session {}: intent {} answered locally (confidence {})", sessionId, route.getIntent(),
+                String.format("%.2f", route.getConfidence()));
+        if (route.getReply() != null) {
+            conversationHistoryService.addMessage(sessionId, OpenAIRequest.Message.builder()
+                    .role("assistant")
+                    .content(route.getReply())
+                    .build());
+            return route.getReply();
+        }
+
+        OpenAIRequest.Message functionCallMessage = OpenAIRequest.Message.builder()
+                .role("assistant")
+                .functionCall(OpenAIRequest.FunctionCall.builder()
+                        .name(route.getTool())
+                        .arguments(objectMapper.writeValueAsString(route.getArguments()))
+                        .build())
+                .build();
+        return handleFunctionCall(functionCallMessage, sessionId, userMessage, null);
+    }
+
+    /**
+     * İsteği seçilen modele gönderir; hızlı modelin yanıtı hatalı veya geçersizse premium modelle tekrarlar
+     */
+    private OpenAIResponse complete(OpenAIRequest request, String phase, String sessionId) {
+        if (!modelRouter.isFast(request.getModel())) {
+            return callOpenAI(request, phase, sessionId);
+        }
+
+        String problem;
+        try {
+            OpenAIResponse response = callOpenAI(request, phase, sessionId);
+            problem = modelRouter.validate(response, request.getFunctions());
+            if (problem == null) {
+                return response;
+            }
+        } catch (OpenAIRateLimitException | DeadlineExceededException e) {
+            // Bekleme süresi zaten harcandı, premium modelle tekrar denemek süreyi ikiye katlar
+            throw e;
+        } catch (Exception e) {
+            log.warn("Fast model {} failed: {}", request.getModel(), e.getMessage());
+            problem = "error";
+        }
+
+        if (Boolean.TRUE.equals(request.getStream())) {
+            turnListener.get().onAnswerRestarted();
+        }
+        log.info("Escalating {} call from {} to {}: {}", phase, request.getModel(), modelRouter.getPremiumModel(), problem);
+        modelRouter.recordEscalation(phase, problem);
+        request.setModel(modelRouter.getPremiumModel());
+        return callOpenAI(request, phase, sessionId);
+    }
+
+    /**
+     * İsteği OpenAIScheduler üzerinden gönderir: hesabın istek/token limitine göre sıraya girer, 429'da tekrar dener
+     */
+    private OpenAIResponse callOpenAI(OpenAIRequest request, String phase, String sessionId) {
         WebClient webClient = webClientBuilder.build();
 
-        log.info("Calling OpenAI API: model={}, functions={}", request.getModel(),
+        log.info("Calling OpenAI API: model={}, phase={}, functions={}", request.getModel(), phase,
                 request.getFunctions() != null ? request.getFunctions().size() : 0);
 
+        // Fonksiyonsuz takip yanıtı, dinleyen bir kanal varsa akışla istenir; parçalar geldikçe iletilir
+        ChatTurnListener listener = turnListener.get();
+        boolean streaming = listener.isStreaming() && ModelRouter.PHASE_FOLLOW_UP.equals(phase);
+        if (streaming) {
+            request.setStream(true);
+            request.setStreamOptions(OpenAIRequest.StreamOptions.builder().includeUsage(true).build());
+        }
+
+        // Model başına devre kesici; yanıt p95 içinde gelmezse istek bir kez daha gönderilir, ilk yanıt alınır.
+        // Akışlı istekler hedge edilmez, iki akışın parçaları karışırdı
+        UpstreamGuard guard = upstreamGuards.get("openai:" + request.getModel());
+        Observation observation = Observation.createNotStarted("chat.openai", observationRegistry)
+                .lowCardinalityKeyValue("model", request.getModel())
+                .lowCardinalityKeyValue("phase", phase)
+                .lowCardinalityKeyValue("stream", String.valueOf(streaming));
+        return observation.observe(() -> {
+            OpenAIResponse response = sendToOpenAI(request, phase, sessionId, webClient, guard, streaming, listener);
+            if (response != null && response.getUsage() != null) {
+                observation.highCardinalityKeyValue("gen_ai.usage.prompt_tokens",
+                        String.valueOf(response.getUsage().getPromptTokens()));
+                observation.highCardinalityKeyValue("gen_ai.usage.completion_tokens",
+                        String.valueOf(response.getUsage().getCompletionTokens()));
+                observation.highCardinalityKeyValue("gen_ai.usage.total_tokens",
+                        String.valueOf(response.getUsage().getTotalTokens()));
+            }
+            return response;
+        });
+    }
+
+    private OpenAIResponse sendToOpenAI(OpenAIRequest request, String phase, String sessionId, WebClient webClient,
+                                        UpstreamGuard guard, boolean streaming, ChatTurnListener listener) {
+        return openAIScheduler.execute(sessionId, request, () -> {
+            long startedAt = System.nanoTime();
+            try {
+                ResponseEntity<OpenAIResponse> response = streaming
+                        ? guard.single(() -> stream(webClient, request, listener), Duration.ofMillis(timeoutMillis)).block()
+                        : guard.hedged(() -> webClient.post()
+                                .uri(modelRouter.urlFor(request.getModel()))
+                                .header("Authorization", "Bearer " + apiKey)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .bodyValue(request)
+                                .retrieve()
+                                .toEntity(OpenAIResponse.class), Duration.ofMillis(timeoutMillis))
+                        .block();
+                modelRouter.record(request.getModel(), phase, System.nanoTime() - startedAt,
+                        response != null ? response.getBody() : null);
+                return response;
+            } finally {
+                // Hatalı/zaman aşımına uğrayan çağrıların süresi de upstream yavaşlığının işaretidir
+                concurrencyLimiter.onSample("openai", System.nanoTime() - startedAt);
+            }
+        });
+    }
+
+    /**
+     * stream=true isteğini gönderir; her içerik parçası listener'a iletilir, parçalar tek bir OpenAIResponse'ta
+     * birleştirilir (kullanım bilgisi son parçada gelir)
+     */
+    private Mono<ResponseEntity<OpenAIResponse>> stream(WebClient webClient, OpenAIRequest request, ChatTurnListener listener) {
         return webClient.post()
-                .uri(apiUrl)
+                .uri(modelRouter.urlFor(request.getModel()))
                 .header("Authorization", "Bearer " + apiKey)
                 .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
                 .bodyValue(request)
                 .retrieve()
-                .bodyToMono(OpenAIResponse.class)
-                .block();
+                .toEntityFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {
+                })
+                .flatMap(entity -> {
+                    StreamedAnswer answer = new StreamedAnswer();
+                    return entity.getBody()
+                            .mapNotNull(ServerSentEvent::data)
+                            .takeWhile(data -> !"[DONE]".equals(data))
+                            .doOnNext(data -> {
+                                String text = answer.append(readChunk(data));
+                                if (text != null && !text.isEmpty()) {
+                                    listener.onToken(text);
+                                }
+                            })
+                            .then(Mono.fromSupplier(() -> new ResponseEntity<>(answer.toResponse(), entity.getHeaders(),
+                                    entity.getStatusCode())));
+                });
     }
 
-    private String processResponse(OpenAIResponse response, String sessionId) {
+    private OpenAIStreamChunk readChunk(String data) {
+        try {
+            return objectMapper.readValue(data, OpenAIStreamChunk.class);
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid OpenAI stream chunk: " + data, e);
+        }
+    }
+
+    /**
+     * Akışla gelen parçaları toplar
+     */
+    private static class StreamedAnswer {
+
+        private final StringBuilder content = new StringBuilder();
+        private String id;
+        private String model;
+        private String finishReason;
+        private OpenAIResponse.Usage usage;
+
+        /**
+         * Parçayı ekler ve içerdiği yeni metni döndürür
+         */
+        String append(OpenAIStreamChunk chunk) {
+            id = chunk.getId() != null ? chunk.getId() : id;
+            model = chunk.getModel() != null ? chunk.getModel() : model;
+            usage = chunk.getUsage() != null ? chunk.getUsage() : usage;
+            if (chunk.getChoices() == null || chunk.getChoices().isEmpty()) {
+                return null;
+            }
+            OpenAIStreamChunk.Choice choice = chunk.getChoices().get(0);
+            finishReason = choice.getFinishReason() != null ? choice.getFinishReason() : finishReason;
+            String text = choice.getDelta() != null ? choice.getDelta().getContent() : null;
+            if (text != null) {
+                content.append(text);
+            }
+            return text;
+        }
+
+        OpenAIResponse toResponse() {
+            OpenAIRequest.Message message = OpenAIRequest.Message.builder()
+                    .role("assistant")
+                    .content(content.toString())
+                    .build();
+            return OpenAIResponse.builder()
+                    .id(id)
+                    .object("chat.completion")
+                    .model(model)
+                    .choices(List.of(new OpenAIResponse.Choice(0, message, finishReason)))
+                    .usage(usage)
+                    .build();
+        }
+    }
+
+    private String processResponse(OpenAIResponse response, String sessionId, String userMessage,
+                                   ToolPrefetcher.Prefetch prefetch) {
         if (response == null || response.getChoices() == null || response.getChoices().isEmpty()) {
             return "Üzgünüm, yanıt alamadım.";
         }
@@ -160,7 +486,7 @@ public class OpenAIService {
         // Eğer fonksiyon çağrısı varsa
         if ("function_call".equals(choice.getFinishReason()) && assistantMessage.getFunctionCall() != null) {
             log.info("Function call detected: {}", assistantMessage.getFunctionCall().getName());
-            return handleFunctionCall(assistantMessage, sessionId);
+            return handleFunctionCall(assistantMessage, sessionId, userMessage, prefetch);
         }
 
         // Normal mesaj yanıtı - assistant response'u history'e ekle
@@ -168,37 +494,54 @@ public class OpenAIService {
         return assistantMessage.getContent();
     }
 
-    private String handleFunctionCall(OpenAIRequest.Message assistantMessage, String sessionId) {
+    private String handleFunctionCall(OpenAIRequest.Message assistantMessage, String sessionId, String userMessage,
+                                      ToolPrefetcher.Prefetch prefetch) {
         try {
             String functionName = assistantMessage.getFunctionCall().getName();
             String argumentsJson = assistantMessage.getFunctionCall().getArguments();
 
-            log.info("Calling function: {} with arguments: {}", functionName, argumentsJson);
+            log.info("Calling function: {}", kv("function", functionName));
+            log.debug("Function arguments: {}", argumentsJson);
 
             // Argümanları parse et
             Map<String, Object> arguments = objectMapper.readValue(argumentsJson, Map.class);
 
-            // MCP fonksiyonunu çağır
-            String functionResult = mcpClientService.callFunction(functionName, arguments);
-
-            log.info("Function result: {}", functionResult);
+            turnListener.get().onToolStarted(functionName, arguments);
 
-            // Parse function result to Object
-            Object parsedResponse;
-            try {
-                parsedResponse = objectMapper.readValue(functionResult, Object.class);
-            } catch (Exception e) {
-                // If parsing fails, use the raw string
-                parsedResponse = functionResult;
+            // Sipariş değiştirebilecek araç sunucuya gitmeden işaretlenir; yanıt beklenirken tur kesilirse değişiklik
+            // yapılmış olabilir (readOnlyHint taşımayan veya katalogda olmayan araçlar)
+            Map<String, Object> tool = mcpClientService.findTool(functionName);
+            if (tool == null || !ToolDefinitions.isReadOnly(tool)) {
+                pendingChange.set(assistantMessage);
             }
 
+            // MCP fonksiyonunu çağır (önceden alınmış sonuç varsa onu kullan)
+            Observation toolObservation = Observation.createNotStarted("chat.tool", observationRegistry)
+                    .lowCardinalityKeyValue("function", functionName);
+            ToolResult functionResult = toolObservation.observe(() -> {
+                ToolResult prefetched = toolPrefetcher.take(prefetch, functionName, arguments);
+                toolObservation.lowCardinalityKeyValue("prefetched", String.valueOf(prefetched != null));
+                ToolResult result = prefetched != null ? prefetched : mcpClientService.callFunction(functionName, arguments);
+                toolObservation.lowCardinalityKeyValue("status", result.getStatus().name());
+                toolObservation.highCardinalityKeyValue("result.size", String.valueOf(result.getSize()));
+                return result;
+            });
+
+            // Sonuç sipariş ve müşteri bilgisi taşır; sadece DEBUG'da (maskelenip kısaltılarak) yazılır
+            log.debug("Function result ({} chars{}): {}", functionResult.getSize(),
+                    functionResult.isTruncated() ? ", truncated" : "", functionResult.getText());
+
+            // Modele sadece gereken alanlar gider; UI tam sonucu alır
+            functionResult = toolResultShaper.shape(functionName, functionResult);
+
             // Track this function call with request and response
             FunctionCallInfo callInfo = FunctionCallInfo.builder()
                     .functionName(functionName)
                     .request(arguments)
-                    .response(parsedResponse)
+                    .response(functionResult.getData())
                     .build();
             functionCallsTracker.get().add(callInfo);
+            turnListener.get().onToolFinished(callInfo);
 
             // Konuşma geçmişine ekle (assistant'ın function call mesajı)
             conversationHistoryService.addMessage(sessionId, assistantMessage);
@@ -207,20 +550,40 @@ public class OpenAIService {
             OpenAIRequest.Message functionResultMessage = OpenAIRequest.Message.builder()
                     .role("function")
                     .name(functionName)
-                    .content(functionResult)
+                    .content(functionResult.getText())
+                    .encodedContent(functionResult.getEncodedText())
                     .build();
             conversationHistoryService.addMessage(sessionId, functionResultMessage);
+            pendingChange.remove();
+
+            // Basit sonuçlar katalogdaki şablonla yerelde cümleye dökülür, ikinci OpenAI çağrısı yapılmaz
+            Timer.Sample answerTimer = Timer.start(meterRegistry);
+            Optional<String> directAnswer = responseTemplateRenderer.render(
+                    tool, userMessage, functionResult);
+            if (directAnswer.isPresent()) {
+                conversationHistoryService.addMessage(sessionId, OpenAIRequest.Message.builder()
+                        .role("assistant")
+                        .content(directAnswer.get())
+                        .build());
+                recordFunctionAnswer(answerTimer, functionName, "template");
+                log.info("Answered {} from its response template, follow-up OpenAI call skipped", functionName);
+                return directAnswer.get();
+            }
 
             // Güncel history'yi al
             List<OpenAIRequest.Message> updatedHistory = new ArrayList<>(conversationHistoryService.getHistory(sessionId));
 
             // OpenAI'ye tekrar gönder (fonksiyon sonucuyla)
             OpenAIRequest followUpRequest = OpenAIRequest.builder()
-                    .model(model)
+                    .model(modelRouter.forFollowUp())
                     .messages(updatedHistory)
                     .build();
 
-            OpenAIResponse followUpResponse = callOpenAI(followUpRequest);
+            // Hızlı model reddedilirse premium modelle yapılan ikinci çağrı da bu span'in altında kalır
+            OpenAIResponse followUpResponse = Observation.createNotStarted("chat.follow-up", observationRegistry)
+                    .lowCardinalityKeyValue("function", functionName)
+                    .observe(() -> complete(followUpRequest, ModelRouter.PHASE_FOLLOW_UP, sessionId));
+            recordFunctionAnswer(answerTimer, functionName, "llm");
 
             // Final yanıtı al ve history'e ekle
             if (followUpResponse != null && !followUpResponse.getChoices().isEmpty()) {
@@ -231,18 +594,32 @@ public class OpenAIService {
 
             return "Fonksiyon başarıyla çalıştı.";
 
+        } catch (OpenAIRateLimitException | UpstreamUnavailableException | DeadlineExceededException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error handling function call", e);
             return "Fonksiyon çağrısında bir hata oluştu: " + e.getMessage();
         }
     }
 
+    /**
+     * Fonksiyon sonucundan son yanıta kadar geçen süre; mode=template atlanan, mode=llm yapılan takip çağrılarıdır
+     */
+    private void recordFunctionAnswer(Timer.Sample sample, String functionName, String mode) {
+        sample.stop(Timer.builder("chat.function.answer")
+                .description("Time from tool result to final answer")
+                .tag("function", functionName)
+                .tag("mode", mode)
+                .register(meterRegistry));
+    }
+
     /**
      * MCP araçlarını OpenAI fonksiyon formatına dönüştürür
      * Tool definitions'dan gelen inputSchema'yı direkt kullanır
+     * Sadece ToolSelector'ın konuşmaya göre seçtiği araçlar gönderilir
      */
-    private List<OpenAIRequest.Function> buildFunctionsFromMcpTools() {
-        List<Map<String, Object>> mcpTools = mcpClientService.getAvailableTools();
+    private List<OpenAIRequest.Function> buildFunctionsFromMcpTools(List<OpenAIRequest.Message> history) {
+        List<Map<String, Object>> mcpTools = toolSelector.select(mcpClientService.getAvailableTools(), history);
         List<OpenAIRequest.Function> functions = new ArrayList<>();
 
         for (Map<String, Object> tool : mcpTools) {
@@ -0,0 +1,148 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.exception.DeadlineExceededException;
+import com.example.chatapi.exception.RequestCancelledException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * İsteğin bitmesi gereken an ve iptal durumu (thread'e bağlı)
+ * ChatController ve ChatWebSocketHandler her tur için oluşturur; upstream çağrıları kalan süreyi aşmaz ve MCP sunucusuna
+ * X-Request-Timeout-Ms başlığıyla kalan süreyi iletir. Süre dolduysa çağrı hiç yapılmaz.
+ * İstemci bağlantıyı kapatırsa veya turu iptal ederse cancel() çağrılır: süre hemen dolmuş sayılır ve devam eden
+ * OpenAI/MCP HTTP istekleri whenCancelled() ile yarıda kesilir.
+ * Başka thread'de çalışan işler wrap() ile sarılmalıdır, yoksa süre sınırı o thread'e geçmez.
+ */
+public final class RequestDeadline {
+
+    /**
+     * Kalan süre (milisaniye); saat farkından etkilenmemek için mutlak zaman yerine gönderilir
+     */
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadline;
+    private final Sinks.Empty<Void> cancelSignal = Sinks.empty();
+    private volatile boolean cancelled;
+
+    private RequestDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    public static RequestDeadline create(long timeoutMillis) {
+        return new RequestDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    /**
+     * İşi bu süre sınırıyla çalışacak şekilde sarar
+     */
+    public <T> Supplier<T> bind(Supplier<T> task) {
+        return () -> {
+            RequestDeadline previous = CURRENT.get();
+            set(this);
+            try {
+                return task.get();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    /**
+     * İsteği iptal eder; bekleyen upstream istekleri kesilir, sonraki adımlar yapılmaz
+     */
+    public void cancel() {
+        cancelled = true;
+        cancelSignal.tryEmitEmpty();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public static boolean isSet() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Kalan süre; süre sınırı yoksa Long.MAX_VALUE, dolduysa veya istek iptal edildiyse 0 veya negatif
+     */
+    public static long remainingMillis() {
+        RequestDeadline current = CURRENT.get();
+        if (current == null) {
+            return Long.MAX_VALUE;
+        }
+        return current.cancelled ? 0 : TimeUnit.NANOSECONDS.toMillis(current.deadline - System.nanoTime());
+    }
+
+    /**
+     * Verilen zaman aşımını kalan süreyle sınırlar
+     */
+    public static Duration cap(Duration timeout) {
+        long remaining = remainingMillis();
+        return remaining < timeout.toMillis() ? Duration.ofMillis(Math.max(0, remaining)) : timeout;
+    }
+
+    /**
+     * Süre dolduysa DeadlineExceededException, istek iptal edildiyse RequestCancelledException fırlatır
+     *
+     * @param work Atlanan işin adı (log ve hata mesajı için)
+     */
+    public static void check(String work) {
+        RequestDeadline current = CURRENT.get();
+        if (current != null && current.cancelled) {
+            throw new RequestCancelledException(work + " skipped, request cancelled");
+        }
+        if (remainingMillis() <= 0) {
+            throw new DeadlineExceededException(work + " skipped, request deadline exceeded");
+        }
+    }
+
+    /**
+     * İstek iptal edildiğinde RequestCancelledException ile biten, aksi halde hiç bitmeyen Mono
+     * Bir HTTP isteğiyle yarıştırılırsa (Mono.or) iptalde istek aboneliği bırakılır ve bağlantı kapanır.
+     */
+    public static <T> Mono<T> whenCancelled(String work) {
+        RequestDeadline current = CURRENT.get();
+        if (current == null) {
+            return Mono.never();
+        }
+        return current.cancelSignal.asMono()
+                .then(Mono.error(() -> new RequestCancelledException(work + " aborted, request cancelled")));
+    }
+
+    /**
+     * İşi çağıran thread'in süre sınırıyla çalışacak şekilde sarar
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        RequestDeadline current = CURRENT.get();
+        return () -> {
+            RequestDeadline previous = CURRENT.get();
+            set(current);
+            try {
+                return task.call();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    public static <T> Supplier<T> wrapSupplier(Supplier<T> task) {
+        RequestDeadline current = CURRENT.get();
+        return current == null ? task : current.bind(task);
+    }
+
+    private static void set(RequestDeadline deadline) {
+        if (deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.ToolResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Basit tool sonuçlarını katalogdaki _meta.responseTemplate ile yerelde Türkçe yanıta dönüştürür
+ * Böylece sonucu sadece cümleye dökmek için ikinci bir OpenAI çağrısı yapılmaz.
+ * Şablon: {"text": "{id} numaralı siparişiniz {status}", "labels": {"status": {"SHIPPED": "kargoda"}}}
+ * {alan|varsayılan} sözdizimi alan boşsa varsayılan değeri kullanır; alan adları noktalı yol olabilir (items.0.itemName).
+ * Liste dönen araçlarda her eleman "item" şablonuyla satır satır yazılır ve text içindeki {items} yerine konur
+ * ({count} eleman sayısıdır); liste boşsa "empty" metni kullanılır.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ResponseTemplateRenderer {
+
+    private static final Locale TURKISH = Locale.forLanguageTag("tr");
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([\\w.]+)(?:\\|([^}]*))?}");
+
+    @Value("${chat.direct-answer.enabled:true}")
+    private boolean enabled;
+
+    // Bu kelimeleri içeren mesajlar sonucun yorumlanmasını istiyor demektir, LLM'e bırakılır
+    // Kelime başı eşleşir: "açıkla" -> "açıklar mısın"
+    @Value("${chat.direct-answer.follow-up-words:ayrıca,sonra,neden,niye,niçin,karşılaştır,öner,açıkla,yorumla}")
+    private List<String> followUpWords;
+
+    /**
+     * Şablon uygulanabiliyorsa yanıt metnini döndürür
+     * Şablon yoksa, sonuç hata içeriyorsa veya kısaltılmışsa, bir alan bulunamazsa veya kullanıcı ek bir şey
+     * istiyorsa boş döner
+     */
+    public Optional<String> render(Map<String, Object> tool, String userMessage, ToolResult functionResult) {
+        if (!enabled || tool == null || !(tool.get("_meta") instanceof Map<?, ?> meta)
+                || !(meta.get("responseTemplate") instanceof Map<?, ?> template)
+                || !(template.get("text") instanceof String text)) {
+            return Optional.empty();
+        }
+        if (needsReasoning(userMessage)) {
+            log.debug("Direct answer skipped for {}: message asks for more than the result", tool.get("name"));
+            return Optional.empty();
+        }
+
+        if (functionResult == null || functionResult.isError() || functionResult.isTruncated()) {
+            return Optional.empty();
+        }
+
+        JsonNode result = functionResult.getData();
+        Map<?, ?> labels = template.get("labels") instanceof Map<?, ?> map ? map : Map.of();
+        if (result != null && result.isArray() && template.get("item") instanceof String item) {
+            if (result.isEmpty() && template.get("empty") instanceof String empty) {
+                return Optional.of(empty);
+            }
+            StringJoiner lines = new StringJoiner("\n");
+            for (JsonNode element : result) {
+                String line = fill(item, element, labels);
+                if (line == null) {
+                    log.debug("Direct answer skipped for {}: list item could not be rendered", tool.get("name"));
+                    return Optional.empty();
+                }
+                lines.add(line);
+            }
+            return Optional.of(text.replace("{items}", lines.toString()).replace("{count}", String.valueOf(result.size())));
+        }
+        if (result == null || !result.isObject() || result.has("error")) {
+            return Optional.empty();
+        }
+
+        String rendered = fill(text, result, labels);
+        if (rendered == null) {
+            log.debug("Direct answer skipped for {}: result is missing a template field", tool.get("name"));
+        }
+        return Optional.ofNullable(rendered);
+    }
+
+    /**
+     * Yer tutucuları doldurur; değeri ve varsayılanı olmayan bir alan varsa null döner
+     */
+    private static String fill(String text, JsonNode node, Map<?, ?> labels) {
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        StringBuilder rendered = new StringBuilder();
+        while (matcher.find()) {
+            String field = matcher.group(1);
+            String value = valueOf(node, field);
+            if (value == null) {
+                value = matcher.group(2);
+            } else if (labels.get(field) instanceof Map<?, ?> fieldLabels && fieldLabels.get(value) != null) {
+                value = fieldLabels.get(value).toString();
+            }
+            if (value == null) {
+                return null;
+            }
+            matcher.appendReplacement(rendered, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(rendered);
+        return rendered.toString();
+    }
+
+    private boolean needsReasoning(String userMessage) {
+        if (userMessage == null) {
+            return false;
+        }
+        for (String token : userMessage.toLowerCase(TURKISH).split("[^\\p{L}]+")) {
+            for (String word : followUpWords) {
+                if (!word.isBlank() && token.startsWith(word.trim())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Noktalı yol ile skaler değeri okur (items.0.itemName); nesne/dizi veya null ise null döner
+     */
+    private static String valueOf(JsonNode result, String path) {
+        JsonNode node = result;
+        for (String part : path.split("\\.")) {
+            node = node.isArray() && part.chars().allMatch(Character::isDigit)
+                    ? node.path(Integer.parseInt(part))
+                    : node.path(part);
+        }
+        if (node.isMissingNode() || node.isNull() || node.isContainerNode() || node.asText().isBlank()) {
+            return null;
+        }
+        return node.asText();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.Intent;
+import com.example.chatapi.model.IntentMatch;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Niyet tanımlarındaki düzenli ifadelerle birebir eşleşen mesajları tam güvenle sınıflandırır
+ */
+@Component
+@Order(1)
+@RequiredArgsConstructor
+public class RuleIntentClassifier implements IntentClassifier {
+
+    private static final Locale TURKISH = Locale.forLanguageTag("tr");
+
+    private final IntentCatalog intentCatalog;
+
+    private final List<Map.Entry<Pattern, Intent>> rules = new ArrayList<>();
+
+    @PostConstruct
+    public void init() {
+        for (Intent intent : intentCatalog.getIntents()) {
+            for (String pattern : intent.getPatterns()) {
+                rules.add(Map.entry(Pattern.compile(pattern), intent));
+            }
+        }
+    }
+
+    @Override
+    public IntentMatch classify(String message) {
+        String normalized = message.trim().toLowerCase(TURKISH);
+        for (Map.Entry<Pattern, Intent> rule : rules) {
+            if (rule.getKey().matcher(normalized).matches()) {
+                return new IntentMatch(rule.getValue(), 1.0, "rule");
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.chatapi.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Katalogdaki araç tanımları üzerinde LLM'siz kararlar (önceden çağırma ve intent router için)
+ */
+final class ToolDefinitions {
+
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d{1,18}\\b");
+
+    private ToolDefinitions() {
+    }
+
+    /**
+     * Katalogda annotations.readOnlyHint=true olarak işaretli mi (değişiklik yapmayan araç)
+     */
+    static boolean isReadOnly(Map<String, Object> tool) {
+        return tool.get("annotations") instanceof Map<?, ?> annotations
+                && Boolean.TRUE.equals(annotations.get("readOnlyHint"));
+    }
+
+    /**
+     * Zorunlu parametreleri mesajdaki sayılardan doldurur
+     * Tek sayı parametresi için mesajda tam bir sayı, sayı dizisi için en az bir sayı gerekir;
+     * başka tipte zorunlu parametre varsa veya eşleme belirsizse null döner
+     */
+    static Map<String, Object> argumentsFromMessage(Map<String, Object> tool, String userMessage) {
+        Map<?, ?> schema = tool.get("inputSchema") instanceof Map<?, ?> map ? map : Map.of();
+        Map<?, ?> properties = schema.get("properties") instanceof Map<?, ?> map ? map : Map.of();
+        List<?> required = schema.get("required") instanceof List<?> list ? list : List.of();
+        if (required.size() > 1) {
+            return null;
+        }
+
+        Map<String, Object> arguments = new LinkedHashMap<>();
+        if (required.isEmpty()) {
+            return arguments;
+        }
+
+        List<Long> numbers = new ArrayList<>();
+        Matcher matcher = NUMBER.matcher(userMessage);
+        while (matcher.find()) {
+            numbers.add(Long.parseLong(matcher.group()));
+        }
+
+        String name = String.valueOf(required.get(0));
+        Map<?, ?> property = properties.get(name) instanceof Map<?, ?> map ? map : Map.of();
+        Object type = property.get("type");
+        if (("number".equals(type) || "integer".equals(type)) && numbers.size() == 1) {
+            arguments.put(name, numbers.get(0));
+            return arguments;
+        }
+        if ("array".equals(type) && !numbers.isEmpty() && property.get("items") instanceof Map<?, ?> items
+                && ("number".equals(items.get("type")) || "integer".equals(items.get("type")))) {
+            arguments.put(name, numbers);
+            return arguments;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.ToolResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * OpenAI yanıtı beklenirken modelin büyük ihtimalle çağıracağı salt okunur aracı önceden çağırır
+ * Araç ToolSelector ile mesaja göre seçilir, argümanlar ToolDefinitions ile mesajdaki sayılardan çıkarılır.
+ * Sadece katalogda annotations.readOnlyHint=true olan araçlar önceden çağrılır; değişiklik yapan araçlar asla.
+ * Model aynı aracı aynı argümanlarla isterse hazır sonuç kullanılır (hit), aksi halde sonuç atılır.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ToolPrefetcher {
+
+    // Sayıları tiplerinden bağımsız karşılaştırır (model 5 veya 5.0 gönderebilir)
+    private static final Comparator<JsonNode> NUMERIC_EQUALITY = (a, b) ->
+            a.isNumber() && b.isNumber()
+                    ? Double.compare(a.doubleValue(), b.doubleValue())
+                    : (a.equals(b) ? 0 : 1);
+
+    private final McpClientService mcpClientService;
+    private final ToolSelector toolSelector;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.prefetch.enabled:true}")
+    private boolean enabled;
+
+    // Aynı anda en fazla bu kadar tahmini çağrı; dolarsa tahmin yapılmaz (yük altında ek istek üretmez)
+    @Value("${chat.prefetch.max-concurrent:8}")
+    private int maxConcurrent;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "tool-prefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        // Ön çağrı, turun trace'i altında görünsün
+        executor = ContextExecutors.wrap(pool);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Mesajdan tahmin edilebilen salt okunur araç çağrısını başlatır, tahmin yoksa null döner
+     */
+    public Prefetch start(String userMessage) {
+        if (!enabled || userMessage == null) {
+            return null;
+        }
+        Map<String, Object> tool = toolSelector.best(mcpClientService.getAvailableTools(), userMessage);
+        if (tool == null || !ToolDefinitions.isReadOnly(tool)) {
+            return null;
+        }
+        Map<String, Object> arguments = ToolDefinitions.argumentsFromMessage(tool, userMessage);
+        if (arguments == null) {
+            return null;
+        }
+
+        String functionName = (String) tool.get("name");
+        Prefetch prefetch = new Prefetch(functionName, arguments);
+        try {
+            prefetch.result = CompletableFuture.supplyAsync(RequestDeadline.wrapSupplier(() -> {
+                ToolResult result = mcpClientService.callFunction(functionName, arguments);
+                prefetch.completedAt = System.nanoTime();
+                return result;
+            }), executor);
+        } catch (RejectedExecutionException e) {
+            log.debug("Prefetch skipped, {} speculative calls already running", maxConcurrent);
+            return null;
+        }
+        log.info("Prefetching {}", kv("function", functionName));
+        log.debug("Prefetch arguments: {}", arguments);
+        return prefetch;
+    }
+
+    /**
+     * Model tahmin edilen çağrıyı istediyse önceden alınan sonucu döndürür, aksi halde null (çağrı normal yapılır)
+     */
+    public ToolResult take(Prefetch prefetch, String functionName, Map<String, Object> arguments) {
+        if (prefetch == null || prefetch.taken) {
+            return null;
+        }
+        prefetch.taken = true;
+        if (!prefetch.matches(functionName, arguments, objectMapper)) {
+            log.info("Prefetch miss: predicted {} {}, model called {} {}",
+                    prefetch.functionName, prefetch.arguments, functionName, arguments);
+            record("miss");
+            return null;
+        }
+
+        long askedAt = System.nanoTime();
+        ToolResult result;
+        try {
+            result = prefetch.result.join();
+        } catch (CompletionException e) {
+            // İsteğin süresi dolmuş olabilir; normal yol süreyi yeniden kontrol eder
+            record("error");
+            return null;
+        }
+        if (result.isError()) {
+            // Hata geçici olabilir, çağrı normal yoldan tekrarlansın
+            record("error");
+            return null;
+        }
+        long saved = Math.min(askedAt, prefetch.completedAt) - prefetch.startedAt;
+        meterRegistry.timer("chat.prefetch.saved", "function", functionName).record(Duration.ofNanos(saved));
+        record("hit");
+        log.info("Prefetch hit for {}, saved {} ms", functionName, TimeUnit.NANOSECONDS.toMillis(saved));
+        return result;
+    }
+
+    /**
+     * Model fonksiyon çağırmadıysa tahmini kullanılmadı olarak sayar
+     */
+    public void discard(Prefetch prefetch) {
+        if (prefetch != null && !prefetch.taken) {
+            prefetch.taken = true;
+            record("unused");
+        }
+    }
+
+    private void record(String outcome) {
+        meterRegistry.counter("chat.prefetch", "outcome", outcome).increment();
+    }
+
+    /**
+     * Başlatılmış tahmini çağrı
+     */
+    public static final class Prefetch {
+        private final String functionName;
+        private final Map<String, Object> arguments;
+        private final long startedAt = System.nanoTime();
+        private volatile long completedAt = Long.MAX_VALUE;
+        private CompletableFuture<ToolResult> result;
+        private boolean taken;
+
+        private Prefetch(String functionName, Map<String, Object> arguments) {
+            this.functionName = functionName;
+            this.arguments = arguments;
+        }
+
+        private boolean matches(String name, Map<String, Object> requested, ObjectMapper objectMapper) {
+            if (!functionName.equals(name) || requested == null) {
+                return false;
+            }
+            JsonNode predicted = objectMapper.valueToTree(arguments);
+            return predicted.equals(NUMERIC_EQUALITY, objectMapper.valueToTree(requested));
+        }
+    }
+}
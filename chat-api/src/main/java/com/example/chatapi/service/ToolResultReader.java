@@ -0,0 +1,106 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.ToolResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * MCP sunucusundan gelen araç sonucunu bir kez ayrıştırıp ToolResult'a çevirir
+ * Sonuç chat.tools.max-result-chars karakterden uzunsa kısaltılır: listelerde sığan ilk elemanlar
+ * {"items": [...], "total": n, "truncated": true} olarak, diğerlerinde metnin başı "preview" olarak tutulur.
+ * Böylece tek bir büyük yanıt prompt'u, geçmişi ve UI yanıtını şişirmez.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ToolResultReader {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${chat.tools.max-result-chars:16000}")
+    private int maxResultChars;
+
+    /**
+     * Sunucunun döndürdüğü metni ayrıştırır; {"error": ...} nesneleri hata sonucu olur
+     */
+    public ToolResult read(String raw) {
+        String body = raw != null ? raw : "";
+        JsonNode data;
+        try {
+            data = objectMapper.readTree(body);
+        } catch (JsonProcessingException e) {
+            data = null;
+        }
+        if (data == null || data.isMissingNode()) {
+            data = TextNode.valueOf(body);
+        }
+        if (data.isObject() && data.has("error")) {
+            return build(ToolResult.Status.ERROR, data.path("error").asText(), data, body.length());
+        }
+        return build(ToolResult.Status.OK, null, data, body.length());
+    }
+
+    /**
+     * Çağrı sunucuya ulaşmadıysa veya sunucu hata döndürdüyse kullanılır
+     */
+    public ToolResult error(String message) {
+        String text = message != null ? message : "Unknown error";
+        ObjectNode data = objectMapper.createObjectNode().put("error", text);
+        return build(ToolResult.Status.ERROR, text, data, 0);
+    }
+
+    private ToolResult build(ToolResult.Status status, String error, JsonNode data, int size) {
+        try {
+            String text = objectMapper.writeValueAsString(data);
+            boolean truncated = false;
+            if (maxResultChars > 0 && text.length() > maxResultChars) {
+                data = truncate(data, text);
+                text = objectMapper.writeValueAsString(data);
+                truncated = true;
+                log.info("Tool result truncated from {} to {} chars", size, text.length());
+            }
+            return ToolResult.builder()
+                    .status(status)
+                    .error(error)
+                    .data(data)
+                    .text(text)
+                    .encodedText(objectMapper.writeValueAsString(text))
+                    .size(size > 0 ? size : text.length())
+                    .truncated(truncated)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to write tool result", e);
+        }
+    }
+
+    private JsonNode truncate(JsonNode data, String text) throws JsonProcessingException {
+        ObjectNode capped = objectMapper.createObjectNode();
+        if (data.isArray()) {
+            ArrayNode items = capped.putArray("items");
+            int length = 2;
+            for (JsonNode element : data) {
+                length += objectMapper.writeValueAsString(element).length() + 1;
+                if (length > maxResultChars) {
+                    break;
+                }
+                items.add(element);
+            }
+            capped.put("total", data.size());
+        } else {
+            // Kesme noktası bir surrogate çiftini (emoji vb.) bölmesin, önizlemede tek başına surrogate kalmasın
+            int end = Character.isHighSurrogate(text.charAt(maxResultChars - 1)) ? maxResultChars - 1 : maxResultChars;
+            capped.put("preview", text.substring(0, end));
+            capped.put("size", text.length());
+        }
+        capped.put("truncated", true);
+        return capped;
+    }
+}
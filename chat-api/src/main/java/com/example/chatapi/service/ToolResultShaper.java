@@ -0,0 +1,193 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.config.ToolResultShapingConfig;
+import com.example.chatapi.model.ToolResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Araç sonucunu konuşma geçmişine yazılmadan önce token açısından sadeleştirir
+ * Araç için tanımlı alanlar dışındakiler ve null değerler atılır, aynı yapıdaki nesne listeleri sütun/satır tablosuna
+ * çevrilir, uzun listeler chat.tools.shaping.max-rows elemanda kesilip kalan sayı "more" ile belirtilir.
+ * Sadece modele giden metin değişir; UI'a giden ayrıştırılmış sonuç (ToolResult.data) olduğu gibi kalır.
+ */
+@Service
+@RequiredArgsConstructor
+public class ToolResultShaper {
+
+    // Daha kısa listelerde sütun başlıkları anahtarların tekrarından tasarruf ettirmez
+    private static final int TABLE_MIN_ROWS = 3;
+    private static final Pattern LOCAL_DATE_TIME = Pattern.compile("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(\\.\\d+)?");
+
+    private final ObjectMapper objectMapper;
+    private final ToolResultShapingConfig config;
+    private final MeterRegistry meterRegistry;
+    private final McpClientService mcpClientService;
+
+    // Araç adı -> alan ağacı (chat.tools.shaping.fields)
+    private final Map<String, Projection> projections = new ConcurrentHashMap<>();
+
+    /**
+     * Modele gidecek metni sadeleştirilmiş haliyle değiştirir; hata sonuçları olduğu gibi döner
+     */
+    public ToolResult shape(String functionName, ToolResult result) {
+        if (!config.isEnabled() || result == null || result.isError()) {
+            return result;
+        }
+
+        JsonNode data = result.getData();
+        int more = 0;
+        if (result.isTruncated() && data.path("items").isArray()) {
+            // ToolResultReader listeyi zaten kısalttı; atlanan elemanlar da "more" sayısına girer
+            more = data.path("total").asInt() - data.path("items").size();
+            data = data.get("items");
+        }
+
+        String text;
+        try {
+            text = objectMapper.writeValueAsString(shape(data, projection(functionName), more));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to write shaped tool result", e);
+        }
+        record(functionName, "raw", result.getText().length());
+        if (text.length() >= result.getText().length()) {
+            record(functionName, "shaped", result.getText().length());
+            return result;
+        }
+        record(functionName, "shaped", text.length());
+        try {
+            return result.toBuilder()
+                    .text(text)
+                    .encodedText(objectMapper.writeValueAsString(text))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to write shaped tool result", e);
+        }
+    }
+
+    private JsonNode shape(JsonNode node, Projection projection, int more) {
+        if (node.isArray()) {
+            return shapeArray(node, projection, more);
+        }
+        if (node.isObject()) {
+            ObjectNode shaped = objectMapper.createObjectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (projection != null && !projection.includes(field.getKey())) {
+                    continue;
+                }
+                JsonNode value = shape(field.getValue(), projection != null ? projection.child(field.getKey()) : null, 0);
+                if (config.isStripNulls() && (value.isNull() || (value.isObject() && value.isEmpty()))) {
+                    continue;
+                }
+                shaped.set(field.getKey(), value);
+            }
+            return shaped;
+        }
+        if (config.isTrimTimestamps() && node.isTextual() && LOCAL_DATE_TIME.matcher(node.asText()).matches()) {
+            return TextNode.valueOf(node.asText().substring(0, 16));
+        }
+        return node;
+    }
+
+    private JsonNode shapeArray(JsonNode array, Projection projection, int more) {
+        int limit = config.getMaxRows() > 0 ? Math.min(array.size(), config.getMaxRows()) : array.size();
+        int remaining = array.size() - limit + more;
+        List<JsonNode> elements = new ArrayList<>(limit);
+        boolean allObjects = true;
+        for (int i = 0; i < limit; i++) {
+            JsonNode element = shape(array.get(i), projection, 0);
+            allObjects &= element.isObject();
+            elements.add(element);
+        }
+
+        if (config.isTabular() && allObjects && elements.size() >= TABLE_MIN_ROWS) {
+            Set<String> columns = new LinkedHashSet<>();
+            elements.forEach(element -> element.fieldNames().forEachRemaining(columns::add));
+            ObjectNode table = objectMapper.createObjectNode();
+            ArrayNode columnNames = table.putArray("columns");
+            columns.forEach(columnNames::add);
+            ArrayNode rows = table.putArray("rows");
+            for (JsonNode element : elements) {
+                ArrayNode row = rows.addArray();
+                columns.forEach(column -> row.add(element.has(column) ? element.get(column) : NullNode.getInstance()));
+            }
+            if (remaining > 0) {
+                table.put("more", remaining);
+            }
+            return table;
+        }
+
+        ArrayNode shaped = objectMapper.createArrayNode();
+        elements.forEach(shaped::add);
+        if (remaining > 0) {
+            shaped.add(remaining + " more");
+        }
+        return shaped;
+    }
+
+    private Projection projection(String functionName) {
+        // Çakışma nedeniyle sunucu adıyla öneklenen araçlar (inventory__get_status) kendi adlarıyla da tanımlanabilir
+        String configured = config.getFields().containsKey(functionName)
+                ? functionName : mcpClientService.originalToolName(functionName);
+        List<String> paths = config.getFields().get(configured);
+        if (paths == null || paths.isEmpty()) {
+            return null;
+        }
+        return projections.computeIfAbsent(configured, name -> {
+            Projection root = new Projection();
+            for (String path : paths) {
+                Projection node = root;
+                for (String part : path.trim().split("\\.")) {
+                    node = node.fields.computeIfAbsent(part, key -> new Projection());
+                }
+            }
+            return root;
+        });
+    }
+
+    private void record(String functionName, String form, int chars) {
+        DistributionSummary.builder("chat.tool.result.chars")
+                .description("Tool result size sent to the model, before and after shaping")
+                .tag("function", functionName)
+                .tag("form", form)
+                .register(meterRegistry)
+                .record(chars);
+    }
+
+    /**
+     * Bir nesnede tutulacak alanlar; alt alanı olmayan alan tümüyle tutulur
+     */
+    private static final class Projection {
+        private final Map<String, Projection> fields = new LinkedHashMap<>();
+
+        private boolean includes(String field) {
+            return fields.containsKey(field);
+        }
+
+        private Projection child(String field) {
+            Projection child = fields.get(field);
+            return child == null || child.fields.isEmpty() ? null : child;
+        }
+    }
+}
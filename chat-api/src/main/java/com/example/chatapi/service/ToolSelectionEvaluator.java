@@ -0,0 +1,120 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.openai.OpenAIRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kayıtlı konuşmalar üzerinde araç seçiminin isabetini ve prompt tasarrufunu ölçer
+ * Her satır: {"messages": [...], "expected": ["tool_adi", ...]}
+ * Sadece chat.tools.evaluation.enabled=true iken, uygulama açıldığında bir kez çalışır.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "chat.tools.evaluation.enabled", havingValue = "true")
+public class ToolSelectionEvaluator {
+
+    // Token sayısı için kaba tahmin: ~4 karakter = 1 token
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final McpClientService mcpClientService;
+    private final ToolSelector toolSelector;
+    private final ObjectMapper objectMapper;
+
+    @Value("${chat.tools.evaluation.dataset:classpath:eval/tool-selection.jsonl}")
+    private Resource dataset;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void evaluate() {
+        try {
+            List<Map<String, Object>> tools = mcpClientService.getAvailableTools();
+            long allChars = schemaChars(tools);
+
+            int cases = 0;
+            int withTools = 0;
+            int hits = 0;
+            long selectedTools = 0;
+            long selectedChars = 0;
+
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(dataset.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    EvaluationCase evaluationCase = objectMapper.readValue(line, EvaluationCase.class);
+                    List<Map<String, Object>> selected = toolSelector.select(tools, evaluationCase.getMessages());
+                    List<Object> names = selected.stream().map(tool -> tool.get("name")).toList();
+
+                    cases++;
+                    selectedTools += selected.size();
+                    selectedChars += schemaChars(selected);
+                    if (!evaluationCase.getExpected().isEmpty()) {
+                        withTools++;
+                        if (names.containsAll(evaluationCase.getExpected())) {
+                            hits++;
+                        } else {
+                            log.info("Tool selection miss: expected {} but selected {} for '{}'", evaluationCase.getExpected(),
+                                    names, evaluationCase.getMessages().get(evaluationCase.getMessages().size() - 1).getContent());
+                        }
+                    }
+                }
+            }
+
+            if (cases == 0) {
+                log.warn("Tool selection evaluation dataset is empty");
+                return;
+            }
+            double averageChars = (double) selectedChars / cases;
+            log.info("Tool selection evaluation (top-k={}): {} cases, recall {}/{} ({}%), avg {} of {} tools selected",
+                    toolSelector.getTopK(), cases, hits, withTools, withTools == 0 ? 100 : hits * 100 / withTools,
+                    String.format("%.2f", (double) selectedTools / cases), tools.size());
+            log.info("Function schema size per request: all={} chars (~{} tokens), selected avg={} chars (~{} tokens), saved {}% (token counts estimated as chars/{})",
+                    allChars, allChars / CHARS_PER_TOKEN, Math.round(averageChars), Math.round(averageChars / CHARS_PER_TOKEN),
+                    allChars == 0 ? 0 : Math.round(100 - averageChars * 100 / allChars), CHARS_PER_TOKEN);
+        } catch (Exception e) {
+            log.warn("Tool selection evaluation failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * OpenAI'ye fonksiyon olarak gidecek kısmın (ad, açıklama, şema) JSON uzunluğu
+     */
+    private long schemaChars(List<Map<String, Object>> tools) throws Exception {
+        long chars = 0;
+        for (Map<String, Object> tool : tools) {
+            Map<String, Object> function = new LinkedHashMap<>();
+            function.put("name", tool.get("name"));
+            function.put("description", tool.get("description"));
+            function.put("parameters", tool.get("inputSchema"));
+            chars += objectMapper.writeValueAsString(function).length();
+        }
+        return chars;
+    }
+
+    @Data
+    @NoArgsConstructor
+    private static class EvaluationCase {
+        private List<OpenAIRequest.Message> messages = new ArrayList<>();
+        private List<String> expected = new ArrayList<>();
+    }
+}
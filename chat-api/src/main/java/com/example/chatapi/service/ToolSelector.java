@@ -0,0 +1,259 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.model.openai.OpenAIRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Konuşmaya göre en ilgili araçları seçer (BM25)
+ * Her araç için ad, açıklama, parametre açıklamaları ve katalogdaki _meta.keywords indekslenir.
+ * Böylece her istekte tüm fonksiyon şemaları yerine sadece top-k tanesi OpenAI'ye gönderilir.
+ */
+@Slf4j
+@Service
+public class ToolSelector {
+
+    private static final Locale TURKISH = Locale.forLanguageTag("tr");
+
+    // Türkçe için basit ve etkili kök bulma: kelimenin ilk 5 harfi (siparişlerim -> sipar)
+    private static final int STEM_LENGTH = 5;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Mevcut mesajdaki terimler önceki mesajlardakilerden daha ağırlıklı sayılır
+    private static final int CURRENT_MESSAGE_WEIGHT = 2;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "ve", "ile", "bir", "bu", "şu", "o", "da", "de", "mi", "mı", "mu", "mü", "ne", "için",
+            "ben", "benim", "bana", "lütfen", "acaba", "the", "a", "an", "of", "by", "to");
+
+    @Value("${chat.tools.top-k:3}")
+    private int topK;
+
+    // Sorguya katılan son kullanıcı mesajı sayısı (takip soruları için: "peki onu iptal et")
+    @Value("${chat.tools.query-window:3}")
+    private int queryWindow;
+
+    // Catalog değişince yeniden kurulur
+    private volatile Index index;
+
+    /**
+     * Konuşma geçmişinden son kullanıcı mesajlarını ve bu mesajlardan sonra çağrılan araçları çıkarıp seçim yapar
+     */
+    public List<Map<String, Object>> select(List<Map<String, Object>> tools, List<OpenAIRequest.Message> history) {
+        if (!isPruning(tools)) {
+            return tools;
+        }
+
+        List<String> userMessages = new ArrayList<>();
+        Set<String> recentToolNames = new HashSet<>();
+        for (int i = history.size() - 1; i >= 0 && userMessages.size() < queryWindow; i--) {
+            OpenAIRequest.Message message = history.get(i);
+            if ("user".equals(message.getRole())) {
+                userMessages.add(0, message.getContent());
+            } else if ("function".equals(message.getRole()) && message.getName() != null) {
+                recentToolNames.add(message.getName());
+            }
+        }
+        return select(tools, userMessages, recentToolNames);
+    }
+
+    /**
+     * Araçları konuşmaya göre seçer, katalog sırasını korur
+     *
+     * @param tools Tüm araçlar
+     * @param userMessages Son kullanıcı mesajları, en yenisi sonda
+     * @param recentToolNames Konuşmada yakın zamanda çağrılan araçlar (her zaman dahil edilir)
+     */
+    public List<Map<String, Object>> select(List<Map<String, Object>> tools, List<String> userMessages,
+                                            Collection<String> recentToolNames) {
+        if (!isPruning(tools)) {
+            return tools;
+        }
+
+        double[] scores = score(tools, userMessages);
+        List<Integer> ranked = new ArrayList<>();
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > 0) {
+                ranked.add(i);
+            }
+        }
+        if (ranked.isEmpty()) {
+            // Hiçbir araç eşleşmedi, karar verilemiyor: hepsini gönder
+            log.debug("No tool matched the conversation, keeping all {} tools", tools.size());
+            return tools;
+        }
+        ranked.sort(Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+
+        Set<Integer> selected = new HashSet<>(ranked.subList(0, Math.min(topK, ranked.size())));
+        for (int i = 0; i < tools.size(); i++) {
+            if (recentToolNames.contains(tools.get(i).get("name"))) {
+                selected.add(i);
+            }
+        }
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (int i = 0; i < tools.size(); i++) {
+            if (selected.contains(i)) {
+                result.add(tools.get(i));
+            }
+        }
+        log.debug("Selected tools {} of {}", result.stream().map(tool -> tool.get("name")).toList(), tools.size());
+        return result;
+    }
+
+    /**
+     * Mesaja açık ara en uygun tek aracı döndürür; hiçbir araç eşleşmezse veya ilk sırada eşitlik varsa null
+     */
+    public Map<String, Object> best(List<Map<String, Object>> tools, String userMessage) {
+        if (tools.isEmpty()) {
+            return null;
+        }
+        double[] scores = score(tools, List.of(userMessage));
+        int best = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        for (int i = 0; i < scores.length; i++) {
+            if (i != best && scores[i] >= scores[best]) {
+                return null;
+            }
+        }
+        return scores[best] > 0 ? tools.get(best) : null;
+    }
+
+    /**
+     * Katalog top-k'dan büyükse seçim yapılır
+     */
+    public boolean isPruning(List<Map<String, Object>> tools) {
+        return topK > 0 && tools.size() > topK;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    private double[] score(List<Map<String, Object>> tools, List<String> userMessages) {
+        Map<String, Integer> queryTerms = new HashMap<>();
+        for (int i = 0; i < userMessages.size(); i++) {
+            int weight = i == userMessages.size() - 1 ? CURRENT_MESSAGE_WEIGHT : 1;
+            for (String term : tokenize(userMessages.get(i))) {
+                queryTerms.merge(term, weight, Integer::sum);
+            }
+        }
+        return indexFor(tools).score(queryTerms);
+    }
+
+    private Index indexFor(List<Map<String, Object>> tools) {
+        Index current = index;
+        if (current == null || current.tools != tools) {
+            current = new Index(tools);
+            index = current;
+        }
+        return current;
+    }
+
+    /**
+     * Küçük harfe çevirir, harf/rakam olmayan yerlerden böler, stop word'leri atar ve kökleri alır
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String token : text.toLowerCase(TURKISH).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty() || STOP_WORDS.contains(token) || token.chars().allMatch(Character::isDigit)) {
+                continue;
+            }
+            terms.add(token.length() > STEM_LENGTH ? token.substring(0, STEM_LENGTH) : token);
+        }
+        return terms;
+    }
+
+    /**
+     * Araç metinlerinden kurulan BM25 indeksi
+     */
+    private static final class Index {
+        private final List<Map<String, Object>> tools;
+        private final List<Map<String, Integer>> termFrequencies = new ArrayList<>();
+        private final Map<String, Integer> documentFrequencies = new HashMap<>();
+        private final int[] lengths;
+        private final double averageLength;
+
+        private Index(List<Map<String, Object>> tools) {
+            this.tools = tools;
+            this.lengths = new int[tools.size()];
+            int totalLength = 0;
+            for (int i = 0; i < tools.size(); i++) {
+                List<String> terms = tokenize(documentText(tools.get(i)));
+                Map<String, Integer> frequencies = new HashMap<>();
+                terms.forEach(term -> frequencies.merge(term, 1, Integer::sum));
+                frequencies.keySet().forEach(term -> documentFrequencies.merge(term, 1, Integer::sum));
+                termFrequencies.add(frequencies);
+                lengths[i] = terms.size();
+                totalLength += terms.size();
+            }
+            this.averageLength = tools.isEmpty() ? 0 : (double) totalLength / tools.size();
+        }
+
+        private double[] score(Map<String, Integer> queryTerms) {
+            int documentCount = tools.size();
+            double[] scores = new double[documentCount];
+            queryTerms.forEach((term, queryWeight) -> {
+                Integer df = documentFrequencies.get(term);
+                if (df == null) {
+                    return;
+                }
+                double idf = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+                for (int i = 0; i < documentCount; i++) {
+                    Integer tf = termFrequencies.get(i).get(term);
+                    if (tf == null) {
+                        continue;
+                    }
+                    double norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * lengths[i] / averageLength));
+                    scores[i] += queryWeight * idf * norm;
+                }
+            });
+            return scores;
+        }
+
+        /**
+         * Ad (alt çizgilerden bölünmüş), açıklama, parametre açıklamaları ve _meta.keywords
+         */
+        private static String documentText(Map<String, Object> tool) {
+            Set<String> parts = new LinkedHashSet<>();
+            parts.add(String.valueOf(tool.get("name")).replace('_', ' '));
+            parts.add(String.valueOf(tool.getOrDefault("description", "")));
+
+            Object schema = tool.get("inputSchema");
+            if (schema instanceof Map<?, ?> inputSchema && inputSchema.get("properties") instanceof Map<?, ?> properties) {
+                properties.values().forEach(property -> {
+                    if (property instanceof Map<?, ?> definition && definition.get("description") != null) {
+                        parts.add(definition.get("description").toString());
+                    }
+                });
+            }
+
+            Object meta = tool.get("_meta");
+            if (meta instanceof Map<?, ?> metadata && metadata.get("keywords") instanceof List<?> keywords) {
+                keywords.forEach(keyword -> parts.add(String.valueOf(keyword)));
+            }
+            return String.join(" ", parts);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.example.chatapi.service;
+
+import com.example.chatapi.exception.DeadlineExceededException;
+import com.example.chatapi.exception.UpstreamUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Tek bir upstream (OpenAI veya bir MCP sunucusu) için devre kesici, bölme (bulkhead) ve hedge'li çağrılar
+ * Devre kesici: son chat.resilience.window çağrının hata oranı eşiği aşarsa devre açılır ve çağrılar
+ * chat.resilience.open-ms boyunca beklemeden reddedilir; sonra tek bir deneme çağrısına izin verilir.
+ * Bulkhead: aynı anda en fazla chat.resilience.max-concurrent çağrı, fazlası beklemeden reddedilir. Hedge'in kaybedeni
+ * ve süre dolduğu için beklenmeyen bloklayan çağrılar da bitene kadar yer tutar; boş yer yoksa hedge gönderilmez.
+ * Hedge: yanıt p95 gecikme içinde gelmezse aynı istek bir kez daha gönderilir, ilk başarılı yanıt alınır,
+ * diğeri iptal edilir. Sadece yan etkisi olmayan çağrılar hedge edilmelidir. Hedge'ler çağrıların
+ * chat.resilience.hedge.max-ratio oranıyla sınırlıdır, yavaşlayan upstream'e yükü katlamaz.
+ * 4xx yanıtları upstream'in sağlığıyla ilgili olmadığından hata sayılmaz.
+ * Zaman aşımları isteğin kalan süresiyle (RequestDeadline) sınırlanır; süre dolduğu için kesilen çağrılar
+ * da hata sayılmaz, upstream'in değil isteğin süresi bitmiştir.
+ */
+@Slf4j
+public class UpstreamGuard {
+
+    private static final int LATENCY_WINDOW = 200;
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final boolean hedgeEnabled;
+    private final double hedgeMaxRatio;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final Semaphore bulkhead;
+
+    // Son çağrıların sonucu (true = hata), halka tampon
+    private final boolean[] outcomes;
+    private int outcomeIndex;
+    private int outcomeCount;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyIndex;
+    private int latencyCount;
+    private double calls;
+    private double hedges;
+
+    UpstreamGuard(String name, int window, double failureRateThreshold, long openMillis, int maxConcurrent,
+                  boolean hedgeEnabled, double hedgeMaxRatio, MeterRegistry meterRegistry, ExecutorService executor) {
+        this.name = name;
+        this.outcomes = new boolean[window];
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeMaxRatio = hedgeMaxRatio;
+        this.meterRegistry = meterRegistry;
+        this.executor = executor;
+        Gauge.builder("chat.upstream.circuit", this, guard -> guard.state.ordinal())
+                .description("Circuit state: 0 closed, 1 open, 2 half-open")
+                .tag("upstream", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Hedge'siz korumalı çağrı (yan etkisi olan çağrılar için)
+     */
+    public <T> T call(Supplier<T> call) {
+        RequestDeadline.check(name + " call");
+        boolean probe = admit();
+        long startedAt = System.nanoTime();
+        try {
+            T result = call.get();
+            onSuccess(probe, System.nanoTime() - startedAt);
+            return result;
+        } catch (RuntimeException e) {
+            onError(probe, e);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Bloklayan çağrıyı hedge ederek yapar; yanıt timeout içinde gelmezse UpstreamUnavailableException fırlatır
+     * Kaybeden çağrının sonucu yok sayılır; thread'i kesilmez, çağrı kendi yanıt zaman aşımıyla biter.
+     * Her deneme kendi bulkhead yerini bitene kadar tutar, upstream'e giden gerçek çağrı sayısı sınırı aşmaz.
+     */
+    public <T> T callHedged(Callable<T> call, Duration timeout) {
+        RequestDeadline.check(name + " call");
+        Duration limit = RequestDeadline.cap(timeout);
+        boolean probe = admit();
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + limit.toNanos();
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        // Hedge thread'leri de isteğin süre sınırını görsün (MCP'ye giden X-Request-Timeout-Ms başlığı için)
+        AtomicBoolean settled = new AtomicBoolean();
+        Callable<T> task = attempt(RequestDeadline.wrap(call), settled);
+        Future<T> primary = null;
+        Future<T> secondary = null;
+        try {
+            // admit() ile alınan yer ilk denemeye geçer
+            primary = completion.submit(task);
+            long hedgeDelay = hedgeDelayNanos();
+            Exception lastError = null;
+            int pending = 1;
+            while (pending > 0) {
+                long now = System.nanoTime();
+                boolean canHedge = secondary == null && hedgeDelay >= 0 && startedAt + hedgeDelay < deadline;
+                long waitUntil = canHedge ? startedAt + hedgeDelay : deadline;
+                Future<T> done = completion.poll(Math.max(0, waitUntil - now), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    if (!canHedge) {
+                        throw timeoutError(timeout, limit);
+                    }
+                    if (!bulkhead.tryAcquire()) {
+                        // Upstream zaten dolu; yükü katlamak yerine ilk denemeyi beklemeye devam et
+                        recordHedge("skipped");
+                        hedgeDelay = -1;
+                        continue;
+                    }
+                    recordHedge("sent");
+                    secondary = completion.submit(task);
+                    pending++;
+                    continue;
+                }
+                pending--;
+                try {
+                    T result = done.get();
+                    if (done == secondary) {
+                        recordHedge("won");
+                    }
+                    onSuccess(probe, System.nanoTime() - startedAt);
+                    return result;
+                } catch (ExecutionException e) {
+                    lastError = e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+            throw lastError instanceof RuntimeException runtime ? runtime
+                    : new RuntimeException(lastError.getMessage(), lastError);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onError(probe, e);
+            throw new UpstreamUnavailableException(name + " call interrupted");
+        } catch (RuntimeException e) {
+            onError(probe, e);
+            throw e;
+        } finally {
+            // Kaybeden çağrı kesilmez (interrupt), kendi yanıt zaman aşımıyla biter ve yerini o zaman bırakır: sınıf
+            // yüklerken kesilen thread Spring Boot 3.2.0'ın iç içe jar kanalını kapatıyor ve uygulama yeni sınıf
+            // yükleyemez hale geliyor. Henüz başlamamış deneme upstream'e gitmeden döner
+            settled.set(true);
+            if (primary == null) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    /**
+     * Bloklayan çağrının tek denemesi; bulkhead yerini deneme bitince bırakır. Çağıran sonucunu almış ya da
+     * beklemeyi bırakmışsa başlamamış deneme upstream'e gitmez.
+     */
+    private <T> Callable<T> attempt(Callable<T> call, AtomicBoolean settled) {
+        return () -> {
+            try {
+                if (settled.get()) {
+                    throw new CancellationException(name + " call no longer needed");
+                }
+                return call.call();
+            } finally {
+                bulkhead.release();
+            }
+        };
+    }
+
+    /**
+     * Reaktif isteği hedge ederek yapar; ilk yanıt (veya hata) alınır, diğer abonelik iptal edilir
+     */
+    public <T> Mono<T> hedged(Supplier<Mono<T>> request, Duration timeout) {
+        return guarded(request, timeout, true);
+    }
+
+    /**
+     * Reaktif isteği hedge etmeden yapar; akışla gelen yanıtlar için (iki akışın parçaları karışmasın)
+     */
+    public <T> Mono<T> single(Supplier<Mono<T>> request, Duration timeout) {
+        return guarded(request, timeout, false);
+    }
+
+    private <T> Mono<T> guarded(Supplier<Mono<T>> request, Duration timeout, boolean hedgeable) {
+        return Mono.defer(() -> {
+            RequestDeadline.check(name + " call");
+            Duration limit = RequestDeadline.cap(timeout);
+            boolean probe = admit();
+            long startedAt = System.nanoTime();
+            long hedgeDelay = hedgeable ? hedgeDelayNanos() : -1;
+            Mono<T> attempt = request.get();
+            if (hedgeDelay >= 0 && hedgeDelay < limit.toNanos()) {
+                Mono<T> hedge = Mono.delay(Duration.ofNanos(hedgeDelay))
+                        .then(Mono.defer(() -> {
+                            recordHedge("sent");
+                            return request.get().doOnNext(value -> recordHedge("won"));
+                        }));
+                attempt = Mono.firstWithSignal(attempt, hedge);
+            }
+            // İstemci bağlantıyı kapatırsa bekleyen istek(ler) iptal edilir, bağlantı kapanır
+            attempt = attempt.or(RequestDeadline.whenCancelled(name + " call"));
+            boolean[] finished = new boolean[1];
+            return attempt
+                    .timeout(limit)
+                    .onErrorMap(TimeoutException.class, error -> timeoutError(timeout, limit))
+                    .doOnSuccess(value -> {
+                        finished[0] = true;
+                        onSuccess(probe, System.nanoTime() - startedAt);
+                    })
+                    .doOnError(error -> {
+                        finished[0] = true;
+                        onError(probe, error);
+                    })
+                    .doFinally(signal -> {
+                        if (signal == SignalType.CANCEL && !finished[0]) {
+                            releaseProbe(probe);
+                        }
+                        bulkhead.release();
+                    });
+        });
+    }
+
+    /**
+     * Zaman aşımı isteğin kalan süresinden geldiyse DeadlineExceededException, upstream'in kendi süresinden geldiyse
+     * UpstreamUnavailableException
+     */
+    private RuntimeException timeoutError(Duration timeout, Duration limit) {
+        if (limit.compareTo(timeout) < 0) {
+            return new DeadlineExceededException(name + " call cut off at " + limit.toMillis() + " ms, request deadline exceeded");
+        }
+        return new UpstreamUnavailableException(name + " did not answer within " + timeout.toMillis() + " ms");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Devre ve bulkhead izin veriyorsa yer ayırır; dönen değer bu çağrının yarı açık devrede deneme çağrısı olup olmadığı
+     */
+    private boolean admit() {
+        boolean probe;
+        synchronized (this) {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == State.OPEN || (state == State.HALF_OPEN && probeInFlight)) {
+                reject("open");
+                throw new UpstreamUnavailableException(name + " circuit is open");
+            }
+            probe = state == State.HALF_OPEN;
+            if (probe) {
+                probeInFlight = true;
+            }
+        }
+        if (!bulkhead.tryAcquire()) {
+            releaseProbe(probe);
+            reject("bulkhead");
+            throw new UpstreamUnavailableException(name + " has too many calls in flight");
+        }
+        return probe;
+    }
+
+    private void reject(String reason) {
+        meterRegistry.counter("chat.upstream.rejected", "upstream", name, "reason", reason).increment();
+    }
+
+    private void recordHedge(String outcome) {
+        meterRegistry.counter("chat.upstream.hedge", "upstream", name, "outcome", outcome).increment();
+        if ("sent".equals(outcome)) {
+            synchronized (this) {
+                hedges++;
+            }
+        }
+    }
+
+    private synchronized void releaseProbe(boolean probe) {
+        if (probe) {
+            probeInFlight = false;
+        }
+    }
+
+    private synchronized void onSuccess(boolean probe, long nanos) {
+        latencies[latencyIndex] = nanos;
+        latencyIndex = (latencyIndex + 1) % latencies.length;
+        latencyCount = Math.min(latencyCount + 1, latencies.length);
+        record(probe, false);
+    }
+
+    private synchronized void onError(boolean probe, Throwable error) {
+        if (error instanceof DeadlineExceededException) {
+            releaseProbe(probe);
+            return;
+        }
+        // 4xx istemci hatasıdır (geçersiz istek, rate limit), upstream sağlıklı
+        boolean clientError = error instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError();
+        record(probe, !clientError);
+    }
+
+    private void record(boolean probe, boolean failed) {
+        calls++;
+        // Hedge oranı son ~1000 çağrı üzerinden hesaplanır
+        if (calls > 1000) {
+            calls /= 2;
+            hedges /= 2;
+        }
+        if (probe) {
+            probeInFlight = false;
+            if (failed) {
+                open();
+            } else {
+                state = State.CLOSED;
+                Arrays.fill(outcomes, false);
+                outcomeCount = 0;
+                failures = 0;
+                log.info("{} circuit closed", name);
+            }
+            return;
+        }
+
+        if (outcomeCount == outcomes.length && outcomes[outcomeIndex]) {
+            failures--;
+        }
+        outcomes[outcomeIndex] = failed;
+        outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+        outcomeCount = Math.min(outcomeCount + 1, outcomes.length);
+        if (failed) {
+            failures++;
+        }
+        if (state == State.CLOSED && outcomeCount == outcomes.length
+                && failures >= failureRateThreshold * outcomes.length) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        log.warn("{} circuit opened ({} of last {} calls failed)", name, failures, outcomeCount);
+    }
+
+    /**
+     * Hedge gecikmesi: başarılı çağrıların p95'i; yeterli örnek yoksa veya hedge bütçesi dolduysa -1
+     */
+    private synchronized long hedgeDelayNanos() {
+        if (!hedgeEnabled || latencyCount < MIN_LATENCY_SAMPLES || hedges >= hedgeMaxRatio * calls) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.chatapi.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upstream başına bir UpstreamGuard ("openai", "mcp:orders"); hepsi chat.resilience.* ayarlarını paylaşır
+ */
+@Component
+@RequiredArgsConstructor
+public class UpstreamGuards {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.resilience.window:20}")
+    private int window;
+
+    @Value("${chat.resilience.failure-rate:0.5}")
+    private double failureRate;
+
+    @Value("${chat.resilience.open-ms:10000}")
+    private long openMillis;
+
+    @Value("${chat.resilience.max-concurrent:64}")
+    private int maxConcurrent;
+
+    @Value("${chat.resilience.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${chat.resilience.hedge.max-ratio:0.1}")
+    private double hedgeMaxRatio;
+
+    private final Map<String, UpstreamGuard> guards = new ConcurrentHashMap<>();
+
+    private final List<ExecutorService> executors = new CopyOnWriteArrayList<>();
+
+    public UpstreamGuard get(String upstream) {
+        return guards.computeIfAbsent(upstream, name -> new UpstreamGuard(name, window, failureRate, openMillis,
+                maxConcurrent, hedgeEnabled, hedgeMaxRatio, meterRegistry, newExecutor()));
+    }
+
+    /**
+     * Hedge'li bloklayan çağrılar için upstream başına en fazla max-concurrent thread; her deneme bitene kadar
+     * bulkhead yerini tuttuğundan kuyruk da bu sayıyı aşmaz. Sarmalayıcı trace bağlamını çağrı thread'ine taşır.
+     */
+    private ExecutorService newExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "upstream-call");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        ExecutorService executor = ContextExecutors.wrap(pool);
+        executors.add(executor);
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executors.forEach(ExecutorService::shutdownNow);
+    }
+}
@@ -1,6 +1,7 @@
 import React, { useState, useEffect, useRef } from 'react';
-import { Message } from '../types/chat';
+import { ChatResponse, Message } from '../types/chat';
 import { chatService } from '../services/chatService';
+import { ChatSocket, SocketUnavailableError, TurnCancelledError } from '../services/chatSocket';
 import '../styles/Chat.css';
 
 const Chat: React.FC = () => {
@@ -10,7 +11,15 @@ const Chat: React.FC = () => {
   const [sessionId] = useState(() => `session-${Date.now()}-${Math.random().toString(36).substr(2, 9)}`);
   const [error, setError] = useState<string | null>(null);
   const [expandedFunctions, setExpandedFunctions] = useState<Set<string>>(new Set());
+  const [toolInProgress, setToolInProgress] = useState<string | null>(null);
   const messagesEndRef = useRef<HTMLDivElement>(null);
+  const socketRef = useRef<ChatSocket | null>(null);
+
+  useEffect(() => {
+    const socket = new ChatSocket(sessionId);
+    socketRef.current = socket;
+    return () => socket.close();
+  }, [sessionId]);
 
   const scrollToBottom = () => {
     messagesEndRef.current?.scrollIntoView({ behavior: 'smooth' });
@@ -38,11 +47,30 @@ const Chat: React.FC = () => {
     setIsLoading(true);
     setError(null);
 
+    // Yanıt WebSocket üzerinden parça parça gelir; bağlantı kurulamazsa HTTP ile gönderilir
+    const updateStreaming = (update: (message: Message) => Message) => {
+      setMessages(prev => prev.map(message => (message.streaming ? update(message) : message)));
+    };
+
     try {
-      const response = await chatService.sendMessage({
-        message: inputValue,
-        sessionId: sessionId,
-      });
+      let response: ChatResponse;
+      try {
+        setMessages(prev => [...prev, { role: 'assistant', content: '', timestamp: new Date(), streaming: true }]);
+        response = await socketRef.current!.sendMessage(inputValue, {
+          onToolStarted: (call) => setToolInProgress(call.functionName),
+          onToolFinished: () => setToolInProgress(null),
+          onToken: (text) => updateStreaming(message => ({ ...message, content: message.content + text })),
+          onRestart: () => updateStreaming(message => ({ ...message, content: '' })),
+        });
+      } catch (err) {
+        if (!(err instanceof SocketUnavailableError)) {
+          throw err;
+        }
+        response = await chatService.sendMessage({
+          message: inputValue,
+          sessionId: sessionId,
+        });
+      }
 
       const assistantMessage: Message = {
         role: 'assistant',
@@ -51,8 +79,12 @@ const Chat: React.FC = () => {
         functionsCalled: response.functionsCalled,
       };
 
-      setMessages(prev => [...prev, assistantMessage]);
+      setMessages(prev => [...prev.filter(message => !message.streaming), assistantMessage]);
     } catch (err) {
+      setMessages(prev => prev.filter(message => !message.streaming));
+      if (err instanceof TurnCancelledError) {
+        return;
+      }
       console.error('Error sending message:', err);
       setError('Mesaj gönderilemedi. Lütfen tekrar deneyin.');
 
@@ -65,6 +97,7 @@ const Chat: React.FC = () => {
       setMessages(prev => [...prev, errorMessage]);
     } finally {
       setIsLoading(false);
+      setToolInProgress(null);
     }
   };
 
@@ -117,7 +150,7 @@ const Chat: React.FC = () => {
           </div>
         )}
 
-        {messages.map((message, index) => (
+        {messages.filter(message => !message.streaming || message.content).map((message, index) => (
           <div key={index} className={`message ${message.role}`}>
             {message.role === 'assistant' && (
               <div className="message-avatar">AI</div>
@@ -178,7 +211,7 @@ const Chat: React.FC = () => {
           </div>
         ))}
 
-        {isLoading && (
+        {isLoading && !messages.some(message => message.streaming && message.content) && (
           <div className="message assistant">
             <div className="message-avatar">AI</div>
             <div className="loading-indicator">
@@ -187,7 +220,7 @@ const Chat: React.FC = () => {
                 <span></span>
                 <span></span>
               </div>
-              <span>Yazıyor...</span>
+              <span>{toolInProgress ? `${toolInProgress} çalışıyor...` : 'Yazıyor...'}</span>
             </div>
           </div>
         )}
@@ -204,9 +237,15 @@ const Chat: React.FC = () => {
             placeholder="Mesajınızı yazın..."
             disabled={isLoading}
           />
-          <button type="submit" disabled={isLoading || !inputValue.trim()}>
-            Gönder
-          </button>
+          {isLoading ? (
+            <button type="button" onClick={() => socketRef.current?.cancel()}>
+              Durdur
+            </button>
+          ) : (
+            <button type="submit" disabled={!inputValue.trim()}>
+              Gönder
+            </button>
+          )}
         </form>
       </div>
     </div>
@@ -0,0 +1,130 @@
+import { ChatResponse, ChatSocketEvent, FunctionCall } from '../types/chat';
+
+const API_BASE_URL = import.meta.env.VITE_API_URL || 'http://localhost:8082';
+const WS_URL = `${API_BASE_URL.replace(/^http/, 'ws')}/ws/chat`;
+
+export interface TurnHandlers {
+  onToolStarted?: (call: FunctionCall) => void;
+  onToolFinished?: (call: FunctionCall) => void;
+  onToken?: (text: string) => void;
+  onRestart?: () => void;
+}
+
+export class TurnCancelledError extends Error {
+  constructor() {
+    super('Turn cancelled');
+  }
+}
+
+export class SocketUnavailableError extends Error {
+  constructor() {
+    super('WebSocket connection failed');
+  }
+}
+
+interface PendingTurn {
+  handlers: TurnHandlers;
+  resolve: (response: ChatResponse) => void;
+  reject: (error: Error) => void;
+}
+
+/**
+ * Oturuma bağlı kalıcı WebSocket kanalı; bağlantı koparsa bir sonraki mesajda yeniden açılır
+ */
+export class ChatSocket {
+  private socket: WebSocket | null = null;
+  private opening: Promise<WebSocket> | null = null;
+  private turnCounter = 0;
+  private readonly pending = new Map<string, PendingTurn>();
+
+  constructor(private readonly sessionId: string) {}
+
+  private connect(): Promise<WebSocket> {
+    if (this.socket && this.socket.readyState === WebSocket.OPEN) {
+      return Promise.resolve(this.socket);
+    }
+    if (this.opening) {
+      return this.opening;
+    }
+
+    this.opening = new Promise<WebSocket>((resolve, reject) => {
+      const socket = new WebSocket(`${WS_URL}?sessionId=${encodeURIComponent(this.sessionId)}`);
+      socket.onopen = () => {
+        this.socket = socket;
+        this.opening = null;
+        resolve(socket);
+      };
+      socket.onerror = () => {
+        if (this.opening) {
+          this.opening = null;
+          reject(new SocketUnavailableError());
+        }
+      };
+      socket.onclose = () => {
+        this.socket = null;
+        this.pending.forEach(turn => turn.reject(new Error('WebSocket connection closed')));
+        this.pending.clear();
+      };
+      socket.onmessage = (message) => this.handleEvent(JSON.parse(message.data) as ChatSocketEvent);
+    });
+    return this.opening;
+  }
+
+  private handleEvent(event: ChatSocketEvent) {
+    const turn = event.turnId ? this.pending.get(event.turnId) : undefined;
+    if (!turn) {
+      return;
+    }
+
+    switch (event.type) {
+      case 'tool-started':
+        turn.handlers.onToolStarted?.(event.functionCall!);
+        break;
+      case 'tool-finished':
+        turn.handlers.onToolFinished?.(event.functionCall!);
+        break;
+      case 'token':
+        turn.handlers.onToken?.(event.text ?? '');
+        break;
+      case 'restart':
+        turn.handlers.onRestart?.();
+        break;
+      case 'response':
+        this.pending.delete(event.turnId!);
+        turn.resolve(event.response!);
+        break;
+      case 'cancelled':
+        this.pending.delete(event.turnId!);
+        turn.reject(new TurnCancelledError());
+        break;
+      case 'error':
+        this.pending.delete(event.turnId!);
+        turn.reject(new Error(event.text ?? 'Chat turn failed'));
+        break;
+    }
+  }
+
+  /**
+   * Mesajı gönderir; ara olaylar handlers'a iletilir, nihai yanıtla çözülür
+   */
+  async sendMessage(message: string, handlers: TurnHandlers = {}): Promise<ChatResponse> {
+    const socket = await this.connect();
+    const turnId = String(++this.turnCounter);
+    return new Promise<ChatResponse>((resolve, reject) => {
+      this.pending.set(turnId, { handlers, resolve, reject });
+      socket.send(JSON.stringify({ type: 'turn', turnId, message }));
+    });
+  }
+
+  /**
+   * Devam eden turu iptal eder; sunucu yarıda kalan turu oturum geçmişinden geri alır
+   */
+  cancel() {
+    this.socket?.send(JSON.stringify({ type: 'cancel' }));
+  }
+
+  close() {
+    this.socket?.close();
+    this.socket = null;
+  }
+}
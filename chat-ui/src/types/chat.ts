@@ -3,6 +3,7 @@ export interface Message {
   content: string;
   timestamp: Date;
   functionsCalled?: FunctionCall[];
+  streaming?: boolean;
 }
 
 export interface FunctionCall {
@@ -21,3 +22,24 @@ export interface ChatRequest {
   message: string;
   sessionId: string;
 }
+
+export type ChatSocketEventType =
+  | 'session'
+  | 'accepted'
+  | 'tool-started'
+  | 'tool-finished'
+  | 'token'
+  | 'restart'
+  | 'response'
+  | 'cancelled'
+  | 'error';
+
+export interface ChatSocketEvent {
+  type: ChatSocketEventType;
+  turnId?: string;
+  sessionId?: string;
+  text?: string;
+  functionCall?: FunctionCall;
+  response?: ChatResponse;
+  retryAfterSeconds?: number;
+}
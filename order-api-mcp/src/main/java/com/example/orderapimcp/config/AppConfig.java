@@ -1,29 +1,128 @@
 package com.example.orderapimcp.config;
 
+import com.example.orderapimcp.service.RequestDeadline;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.netty.channel.ChannelOption;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.io.IOException;
 import java.time.Duration;
 
 @Configuration
 public class AppConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
+    public RestTemplate restTemplate(OrderApiConfig config, ObjectProvider<RestTemplateBuilder> builder) {
         // Use Apache HttpClient for PATCH support
         HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
-        requestFactory.setHttpClient(HttpClients.createDefault());
+        requestFactory.setHttpClient(HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnPerRoute(config.getMaxConnections())
+                        .setMaxConnTotal(config.getMaxConnections() * 2)
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(config.getResponseTimeoutMs()))
+                        .build())
+                .build());
         requestFactory.setConnectTimeout(10000); // 10 seconds
 
-        RestTemplate restTemplate = new RestTemplate(requestFactory);
-        return restTemplate;
+        // Built from Boot's builder so calls are observed and carry the W3C traceparent header; Boot only provides
+        // the builder on the servlet stack, the reactive stack calls order API through orderApiWebClient
+        return builder.getIfAvailable(RestTemplateBuilder::new)
+                .requestFactory(() -> requestFactory)
+                .additionalInterceptors(AppConfig::propagateDeadline)
+                .build();
+    }
+
+    /**
+     * Pool of the reactive order API client; waiting for a free connection counts against the response timeout
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider orderApiConnectionProvider(OrderApiConfig config) {
+        return ConnectionProvider.builder("order-api")
+                .maxConnections(config.getMaxConnections())
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMillis(config.getResponseTimeoutMs()))
+                .build();
+    }
+
+    /**
+     * Non-blocking order API client of the reactive stack, with the same pool size and timeouts as restTemplate
+     */
+    @Bean
+    public WebClient orderApiWebClient(OrderApiConfig config, ConnectionProvider orderApiConnectionProvider,
+                                       WebClient.Builder builder) {
+        HttpClient httpClient = HttpClient.create(orderApiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10000)
+                .responseTimeout(Duration.ofMillis(config.getResponseTimeoutMs()));
+        // Built from Boot's builder so calls are observed and carry the W3C traceparent header
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(AppConfig::propagateDeadline)
+                .build();
+    }
+
+    /**
+     * Separate client for the long-lived change feed stream, which only times out when heartbeats stop arriving.
+     * Injected by name (changeFeedRestTemplate); every other RestTemplate field gets restTemplate.
+     */
+    @Bean
+    public RestTemplate changeFeedRestTemplate(OrderApiConfig config) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory();
+        requestFactory.setHttpClient(HttpClients.custom()
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.ofMilliseconds(config.getChangeFeedReadTimeoutMs()))
+                        .build())
+                .build());
+        requestFactory.setConnectTimeout(10000);
+        return new RestTemplate(requestFactory);
+    }
+
+    /**
+     * Pass the caller's remaining time on to order API
+     */
+    private static ClientHttpResponse propagateDeadline(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        if (RequestDeadline.isSet()) {
+            request.getHeaders().set(RequestDeadline.HEADER, String.valueOf(Math.max(0, RequestDeadline.remainingMillis())));
+        }
+        return execution.execute(request, body);
+    }
+
+    /**
+     * Pass the remaining time of a reactive request on to order API
+     */
+    private static Mono<ClientResponse> propagateDeadline(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> {
+            if (!RequestDeadline.isSet(context)) {
+                return next.exchange(request);
+            }
+            return next.exchange(ClientRequest.from(request)
+                    .header(RequestDeadline.HEADER, String.valueOf(Math.max(0, RequestDeadline.remainingMillis(context))))
+                    .build());
+        });
     }
 
     @Bean
@@ -0,0 +1,179 @@
+package com.example.orderapimcp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanId;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps finished spans for local inspection without a collector.
+ * The most recent spans stay in memory (GET /actuator/traces, /actuator/traces/{traceId});
+ * when tracing.local.file is set every span is also appended to it as a JSON line.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "traces")
+public class LocalTraceExporter implements SpanExporter {
+
+    private static final int TRACE_LIST_LIMIT = 50;
+    private static final AttributeKey<String> URI = AttributeKey.stringKey("uri");
+    // Fixed-width timestamp so spans can be ordered by comparing the text
+    private static final DateTimeFormatter START_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final ObjectMapper objectMapper;
+    private final int maxSpans;
+    private final Deque<Map<String, Object>> spans = new ArrayDeque<>();
+    private BufferedWriter writer;
+
+    public LocalTraceExporter(ObjectMapper objectMapper,
+                              @Value("${tracing.local.max-spans:2000}") int maxSpans,
+                              @Value("${tracing.local.file:}") String file) {
+        this.objectMapper = objectMapper;
+        this.maxSpans = maxSpans;
+        if (!file.isBlank()) {
+            try {
+                writer = Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                log.info("Writing finished spans to {}", file);
+            } catch (IOException e) {
+                log.warn("Cannot open span file {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> batch) {
+        for (SpanData span : batch) {
+            // Reading /actuator/traces should not fill the buffer with its own spans
+            String uri = span.getAttributes().get(URI);
+            if (uri != null && uri.startsWith("/actuator")) {
+                continue;
+            }
+            Map<String, Object> view = toView(span);
+            spans.addLast(view);
+            if (spans.size() > maxSpans) {
+                spans.removeFirst();
+            }
+            if (writer != null) {
+                try {
+                    writer.write(objectMapper.writeValueAsString(view));
+                    writer.newLine();
+                } catch (IOException e) {
+                    log.warn("Cannot write span {}: {}", span.getSpanId(), e.getMessage());
+                }
+            }
+        }
+        return flush();
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        if (writer != null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                return CompletableResultCode.ofFailure();
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        flush();
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // nothing left to do on shutdown
+            }
+            writer = null;
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * Summary of the most recent traces, newest first
+     */
+    @ReadOperation
+    public synchronized List<Map<String, Object>> traces() {
+        Map<String, List<Map<String, Object>>> byTrace = new LinkedHashMap<>();
+        spans.descendingIterator().forEachRemaining(span ->
+                byTrace.computeIfAbsent((String) span.get("traceId"), id -> new ArrayList<>()).add(span));
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (Map.Entry<String, List<Map<String, Object>>> entry : byTrace.entrySet()) {
+            if (summaries.size() == TRACE_LIST_LIMIT) {
+                break;
+            }
+            Map<String, Object> root = entry.getValue().stream()
+                    .min(Comparator.comparing(span -> (String) span.get("start")))
+                    .orElseThrow();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("traceId", entry.getKey());
+            summary.put("root", root.get("name"));
+            summary.put("start", root.get("start"));
+            summary.put("durationMs", root.get("durationMs"));
+            summary.put("spans", entry.getValue().size());
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
+    /**
+     * Spans of one trace recorded by this service, in start order
+     */
+    @ReadOperation
+    public synchronized List<Map<String, Object>> trace(@Selector String traceId) {
+        return spans.stream()
+                .filter(span -> traceId.equals(span.get("traceId")))
+                .sorted(Comparator.comparing(span -> (String) span.get("start")))
+                .toList();
+    }
+
+    private Map<String, Object> toView(SpanData span) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("traceId", span.getTraceId());
+        view.put("spanId", span.getSpanId());
+        view.put("parentSpanId", SpanId.isValid(span.getParentSpanId()) ? span.getParentSpanId() : null);
+        view.put("service", span.getResource().getAttribute(AttributeKey.stringKey("service.name")));
+        view.put("name", span.getName());
+        view.put("kind", span.getKind().name());
+        view.put("start", START_FORMAT.format(Instant.ofEpochSecond(0, span.getStartEpochNanos())));
+        view.put("durationMs", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000_000.0);
+        view.put("status", span.getStatus().getStatusCode().name());
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+        view.put("attributes", attributes);
+        if (!span.getEvents().isEmpty()) {
+            view.put("events", span.getEvents().stream().map(event -> event.getName()).toList());
+        }
+        return view;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.orderapimcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "mcp.server")
+public class McpServerConfig {
+    /**
+     * Server name reported in the MCP initialize response
+     */
+    private String name = "order-api-mcp";
+
+    private String version = "1.0.0";
+
+    /**
+     * MCP sessions without any request for this long are closed
+     */
+    private long sessionIdleTimeoutMs = 1800000;
+
+    /**
+     * Maximum number of messages of one JSON-RPC batch executed concurrently
+     */
+    private int batchParallelism = 8;
+
+    /**
+     * Lifetime of a server-to-client notification stream before the client has to reopen it
+     */
+    private long notificationStreamTimeoutMs = 1800000;
+}
@@ -0,0 +1,15 @@
+package com.example.orderapimcp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "mcp.tools")
+public class McpToolsConfig {
+    /**
+     * Location of the tool catalog descriptor
+     */
+    private String descriptor = "classpath:mcp/tools.json";
+}
@@ -9,4 +9,71 @@ import org.springframework.context.annotation.Configuration;
 @ConfigurationProperties(prefix = "order.api")
 public class OrderApiConfig {
     private String baseUrl = "http://localhost:8080/api/orders";
+
+    /**
+     * Relay order-api response bytes directly for tools that do not transform the payload
+     */
+    private boolean passThrough = true;
+
+    /**
+     * Ask order API for Smile instead of JSON on calls whose response is bound to objects; relayed bytes stay JSON
+     */
+    private boolean smile = true;
+
+    /**
+     * Maximum number of single-order responses kept in the near-cache
+     */
+    private int nearCacheSize = 256;
+
+    /**
+     * Subscribe to the order API change feed so cached orders can be served without revalidation
+     */
+    private boolean changeFeedEnabled = true;
+
+    /**
+     * Delay before reconnecting to the change feed after it dropped
+     */
+    private long changeFeedReconnectDelayMs = 2000;
+
+    /**
+     * Pooled connections to order API; calls beyond this wait for a free connection
+     */
+    private int maxConnections = 50;
+
+    /**
+     * Maximum time to wait for an order API response; a hung order API fails the call instead of blocking it
+     */
+    private long responseTimeoutMs = 5000;
+
+    /**
+     * Read timeout of the change feed stream; longer than order API's heartbeat so an idle feed stays open
+     */
+    private long changeFeedReadTimeoutMs = 45000;
+
+    /**
+     * Open the circuit when this share of the last circuitWindow calls failed (5xx, timeout, connection error)
+     */
+    private double circuitFailureRate = 0.5;
+
+    private int circuitWindow = 20;
+
+    /**
+     * How long an open circuit rejects calls before letting a single probe through
+     */
+    private long circuitOpenMs = 10000;
+
+    /**
+     * Bulkhead: maximum concurrent order API calls, excess calls fail immediately
+     */
+    private int maxConcurrentCalls = 40;
+
+    /**
+     * Send a duplicate read when the first one is slower than the p95 latency; the first answer wins
+     */
+    private boolean hedgeEnabled = true;
+
+    /**
+     * Upper bound on hedged reads as a share of all calls
+     */
+    private double hedgeMaxRatio = 0.1;
 }
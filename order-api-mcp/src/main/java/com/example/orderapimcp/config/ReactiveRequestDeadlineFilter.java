@@ -0,0 +1,37 @@
+package com.example.orderapimcp.config;
+
+import com.example.orderapimcp.service.RequestDeadline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of RequestDeadlineFilter: the caller's X-Request-Timeout-Ms budget is put into the
+ * Reactor context of the request. Requests that arrive with no time left are answered with 504.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveRequestDeadlineFilter implements WebFilter {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Long timeoutMillis = RequestDeadlineFilter.parse(exchange.getRequest().getHeaders().getFirst(RequestDeadline.HEADER));
+        if (timeoutMillis == null) {
+            return chain.filter(exchange);
+        }
+        if (timeoutMillis <= 0) {
+            log.warn("{} {} skipped, request deadline exceeded",
+                    exchange.getRequest().getMethod(), exchange.getRequest().getPath());
+            exchange.getResponse().setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+            return exchange.getResponse().setComplete();
+        }
+        return chain.filter(exchange)
+                .contextWrite(context -> RequestDeadline.start(context, timeoutMillis));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.orderapimcp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Lets internal callers (chat-api) receive Smile, Jackson's binary JSON, by sending
+ * Accept: application/x-jackson-smile. The Smile converter uses the same Jackson settings as JSON and is kept
+ * last, so callers that accept any type still get JSON.
+ * The reactive stack and the order API WebClient get Smile codecs with the same settings, also after JSON.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class SmileConfig implements WebMvcConfigurer {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(converter -> converter instanceof MappingJackson2SmileHttpMessageConverter);
+        converters.add(new MappingJackson2SmileHttpMessageConverter(smileMapper()));
+    }
+
+    @Bean
+    public CodecCustomizer smileCodecCustomizer() {
+        ObjectMapper smileMapper = smileMapper();
+        return configurer -> {
+            // Without explicit MIME types the codecs would claim JSON
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(smileMapper, APPLICATION_SMILE));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(smileMapper, APPLICATION_SMILE));
+        };
+    }
+
+    private ObjectMapper smileMapper() {
+        return objectMapperBuilder.factory(new SmileFactory()).build();
+    }
+}
@@ -1,102 +1,73 @@
 package com.example.orderapimcp.controller;
 
+import com.example.orderapimcp.config.OrderApiConfig;
+import com.example.orderapimcp.model.BatchAddressUpdateRequest;
+import com.example.orderapimcp.model.BatchOrderRequest;
+import com.example.orderapimcp.model.BatchResponse;
 import com.example.orderapimcp.model.Order;
 import com.example.orderapimcp.service.OrderApiService;
+import com.example.orderapimcp.service.ToolCatalog;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
 @Slf4j
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/mcp")
 @RequiredArgsConstructor
 public class McpController {
 
     private final OrderApiService orderApiService;
+    private final OrderApiConfig orderApiConfig;
+    private final ToolCatalog toolCatalog;
     private final ObjectMapper objectMapper;
 
     @GetMapping("/tools")
-    public ResponseEntity<Map<String, Object>> listTools() {
-        Map<String, Object> response = new HashMap<>();
-        response.put("tools", List.of(
-            Map.of(
-                "name", "get_all_orders",
-                "description", "Tüm siparişleri listeler",
-                "method", "GET",
-                "endpoint", "/mcp/orders",
-                "inputSchema", Map.of(
-                    "type", "object",
-                    "properties", Map.of(),
-                    "required", List.of()
-                )
-            ),
-            Map.of(
-                "name", "get_order_by_id",
-                "description", "ID'ye göre sipariş getirir",
-                "method", "GET",
-                "endpoint", "/mcp/orders/{id}",
-                "inputSchema", Map.of(
-                    "type", "object",
-                    "properties", Map.of(
-                        "orderId", Map.of(
-                            "type", "number",
-                            "description", "Görüntülenecek siparişin ID'si"
-                        )
-                    ),
-                    "required", List.of("orderId")
-                )
-            ),
-            Map.of(
-                "name", "cancel_order",
-                "description", "Sipariş iptal eder",
-                "method", "DELETE",
-                "endpoint", "/mcp/orders/{id}",
-                "inputSchema", Map.of(
-                    "type", "object",
-                    "properties", Map.of(
-                        "orderId", Map.of(
-                            "type", "number",
-                            "description", "İptal edilecek siparişin ID'si"
-                        )
-                    ),
-                    "required", List.of("orderId")
-                )
-            ),
-            Map.of(
-                "name", "update_order_address",
-                "description", "Siparişin teslimat adresini günceller. Kullanıcı 'ev', 'iş' gibi adres etiketlerini kullanarak adres değişikliği yapabilir.",
-                "method", "PATCH",
-                "endpoint", "/mcp/orders/{id}/address",
-                "inputSchema", Map.of(
-                    "type", "object",
-                    "properties", Map.of(
-                        "orderId", Map.of(
-                            "type", "number",
-                            "description", "Adresi güncellenecek siparişin ID'si"
-                        ),
-                        "address", Map.of(
-                            "type", "string",
-                            "description", "Yeni adres etiketi (örn: 'ev', 'iş', 'ofis')"
-                        )
-                    ),
-                    "required", List.of("orderId", "address")
-                )
-            )
-        ));
-        return ResponseEntity.ok(response);
+    public ResponseEntity<byte[]> listTools(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Catalog is pre-serialized at startup; unchanged catalogs are answered with 304
+        if (toolCatalog.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(toolCatalog.getEtag())
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(toolCatalog.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            return response
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(toolCatalog.getGzippedJson());
+        }
+        return response.body(toolCatalog.getJson());
     }
 
     @PostMapping("/orders")
     public ResponseEntity<Order> createOrder(@RequestBody Order order) {
         try {
-            log.info("Creating order for customer: {}", order.getCustomerName());
+            log.debug("Creating order");
             Order createdOrder = orderApiService.createOrder(order);
             return ResponseEntity.ok(createdOrder);
         } catch (Exception e) {
@@ -106,11 +77,15 @@ public class McpController {
     }
 
     @GetMapping("/orders")
-    public ResponseEntity<List<Order>> getAllOrders() {
+    public ResponseEntity<StreamingResponseBody> getAllOrders() {
         try {
-            log.info("Fetching all orders");
+            log.debug("Fetching all orders");
+            if (orderApiConfig.isPassThrough()) {
+                // No field is transformed, relay order API bytes without building POJOs
+                return orderApiService.getAllOrdersRaw();
+            }
             List<Order> orders = orderApiService.getAllOrders();
-            return ResponseEntity.ok(orders);
+            return typedResponse(orders);
         } catch (Exception e) {
             log.error("Error fetching orders", e);
             throw new RuntimeException("Failed to fetch orders: " + e.getMessage(), e);
@@ -118,11 +93,17 @@ public class McpController {
     }
 
     @GetMapping("/orders/{id}")
-    public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getOrderById(@PathVariable Long id) {
         try {
-            log.info("Fetching order with ID: {}", id);
+            log.debug("Fetching order {}", kv("orderId", id));
+            if (orderApiConfig.isPassThrough()) {
+                // Carries order API's ETag; a matching If-None-Match is answered with 304 by Spring
+                return orderApiService.getOrderByIdRaw(id);
+            }
             Order order = orderApiService.getOrderById(id);
-            return ResponseEntity.ok(order);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(objectMapper.writeValueAsBytes(order));
         } catch (Exception e) {
             log.error("Error fetching order with ID: {}", id, e);
             throw new RuntimeException("Failed to fetch order: " + e.getMessage(), e);
@@ -132,7 +113,7 @@ public class McpController {
     @PutMapping("/orders/{id}")
     public ResponseEntity<Order> updateOrder(@PathVariable Long id, @RequestBody Order order) {
         try {
-            log.info("Updating order with ID: {}", id);
+            log.debug("Updating order {}", kv("orderId", id));
             Order updatedOrder = orderApiService.updateOrder(id, order);
             return ResponseEntity.ok(updatedOrder);
         } catch (Exception e) {
@@ -144,7 +125,7 @@ public class McpController {
     @DeleteMapping("/orders/{id}")
     public ResponseEntity<Map<String, String>> cancelOrder(@PathVariable Long id) {
         try {
-            log.info("Cancelling order with ID: {}", id);
+            log.debug("Cancelling order {}", kv("orderId", id));
             orderApiService.cancelOrder(id);
             return ResponseEntity.ok(Map.of("message", String.format("Sipariş %d başarıyla iptal edildi.", id)));
         } catch (Exception e) {
@@ -156,7 +137,7 @@ public class McpController {
     @PatchMapping("/orders/{id}/address")
     public ResponseEntity<Order> updateOrderAddress(@PathVariable Long id, @RequestParam String address) {
         try {
-            log.info("Updating address for order ID: {} to: {}", id, address);
+            log.debug("Updating address of order {}", kv("orderId", id));
             Order updatedOrder = orderApiService.updateOrderAddress(id, address);
             return ResponseEntity.ok(updatedOrder);
         } catch (Exception e) {
@@ -164,4 +145,54 @@ public class McpController {
             throw new RuntimeException("Failed to update order address: " + e.getMessage(), e);
         }
     }
+
+    @PostMapping("/orders/batch-get")
+    public ResponseEntity<BatchResponse> batchGetOrders(@Valid @RequestBody BatchOrderRequest request) {
+        try {
+            log.debug("Fetching orders in batch: {}", kv("orders", request.getOrderIds().size()));
+            BatchResponse response = orderApiService.batchGetOrders(request.getOrderIds());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error fetching orders in batch", e);
+            throw new RuntimeException("Failed to fetch orders: " + e.getMessage(), e);
+        }
+    }
+
+    @PostMapping("/orders/batch-cancel")
+    public ResponseEntity<BatchResponse> batchCancelOrders(@Valid @RequestBody BatchOrderRequest request) {
+        try {
+            log.debug("Cancelling orders in batch: {}", kv("orders", request.getOrderIds().size()));
+            BatchResponse response = orderApiService.batchCancelOrders(request.getOrderIds());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error cancelling orders in batch", e);
+            throw new RuntimeException("Failed to cancel orders: " + e.getMessage(), e);
+        }
+    }
+
+    @PostMapping("/orders/batch-address")
+    public ResponseEntity<BatchResponse> batchUpdateOrderAddress(@Valid @RequestBody BatchAddressUpdateRequest request) {
+        try {
+            log.debug("Updating order addresses in batch: {}", kv("updates", request.getUpdates().size()));
+            BatchResponse response = orderApiService.batchUpdateOrderAddress(request.getUpdates());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error updating order addresses in batch", e);
+            throw new RuntimeException("Failed to update order addresses: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Typed fallback for endpoints that can also relay raw bytes.
+     * Spring only streams ResponseEntity<StreamingResponseBody> when it is the declared return type,
+     * so typed results are serialized into the same body type.
+     */
+    private ResponseEntity<StreamingResponseBody> typedResponse(Object body) {
+        StreamingResponseBody streamingBody = outputStream -> objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValue(outputStream, body);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(streamingBody);
+    }
 }
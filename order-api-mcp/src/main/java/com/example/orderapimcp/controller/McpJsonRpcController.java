@@ -0,0 +1,114 @@
+package com.example.orderapimcp.controller;
+
+import com.example.orderapimcp.config.SmileConfig;
+import com.example.orderapimcp.model.JsonRpcError;
+import com.example.orderapimcp.model.JsonRpcResponse;
+import com.example.orderapimcp.service.McpJsonRpcService;
+import com.example.orderapimcp.service.McpSession;
+import com.example.orderapimcp.service.McpSessionRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MCP streamable HTTP transport: JSON-RPC messages (single or batched) are POSTed to /mcp,
+ * GET /mcp opens the session's notification stream and DELETE /mcp ends the session.
+ * The session is created by initialize and carried in the Mcp-Session-Id header.
+ * Servlet stack; ReactiveMcpJsonRpcController serves the same transport under the reactive profile.
+ */
+@Slf4j
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/mcp")
+@RequiredArgsConstructor
+public class McpJsonRpcController {
+
+    public static final String SESSION_HEADER = "Mcp-Session-Id";
+
+    private final McpJsonRpcService jsonRpcService;
+    private final McpSessionRegistry sessionRegistry;
+    private final ObjectMapper objectMapper;
+
+    // Responses are JSON unless the client asks for Smile (chat-api does)
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = {MediaType.APPLICATION_JSON_VALUE, SmileConfig.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Object> post(
+            @RequestHeader(value = SESSION_HEADER, required = false) String sessionId,
+            @RequestBody byte[] body) {
+        JsonNode payload;
+        try {
+            payload = objectMapper.readTree(body);
+        } catch (IOException e) {
+            return ResponseEntity.badRequest()
+                    .body(JsonRpcResponse.error(null, JsonRpcError.PARSE_ERROR, "Parse error: " + e.getMessage()));
+        }
+        if (payload == null || (payload.isArray() && payload.isEmpty())) {
+            return ResponseEntity.badRequest()
+                    .body(JsonRpcResponse.error(null, JsonRpcError.INVALID_REQUEST, "Empty request"));
+        }
+
+        if (McpJsonRpcService.isInitialize(payload)) {
+            Map.Entry<McpSession, JsonRpcResponse> initialized = jsonRpcService.initialize(payload);
+            return ResponseEntity.ok()
+                    .header(SESSION_HEADER, initialized.getKey().getId())
+                    .body(initialized.getValue());
+        }
+
+        if (sessionId == null) {
+            return ResponseEntity.badRequest()
+                    .body(JsonRpcResponse.error(null, JsonRpcError.INVALID_REQUEST, "Missing " + SESSION_HEADER + " header"));
+        }
+        McpSession session = sessionRegistry.get(sessionId);
+        if (session == null) {
+            // Tells the client to start a new session with initialize
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(JsonRpcResponse.error(null, JsonRpcError.INVALID_REQUEST, "Unknown session: " + sessionId));
+        }
+
+        List<JsonNode> messages = new ArrayList<>();
+        if (payload.isArray()) {
+            payload.forEach(messages::add);
+        } else {
+            messages.add(payload);
+        }
+
+        List<JsonRpcResponse> responses = jsonRpcService.handleBatch(messages, session);
+        if (responses.isEmpty()) {
+            // Only notifications or responses were sent
+            return ResponseEntity.accepted().build();
+        }
+        return ResponseEntity.ok(payload.isArray() ? responses : responses.get(0));
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> notifications(@RequestHeader(value = SESSION_HEADER, required = false) String sessionId) {
+        McpSession session = sessionRegistry.get(sessionId);
+        if (session == null) {
+            return ResponseEntity.status(sessionId == null ? HttpStatus.BAD_REQUEST : HttpStatus.NOT_FOUND).build();
+        }
+        log.info("MCP session {} opened its notification stream", sessionId);
+        return ResponseEntity.ok(sessionRegistry.openNotificationStream(session));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> closeSession(@RequestHeader(value = SESSION_HEADER, required = false) String sessionId) {
+        if (sessionId == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return sessionRegistry.close(sessionId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.orderapimcp.controller;
+
+import com.example.orderapimcp.config.OrderApiConfig;
+import com.example.orderapimcp.model.BatchAddressUpdateRequest;
+import com.example.orderapimcp.model.BatchOrderRequest;
+import com.example.orderapimcp.model.BatchResponse;
+import com.example.orderapimcp.model.Order;
+import com.example.orderapimcp.service.ReactiveOrderApiService;
+import com.example.orderapimcp.service.ToolCatalog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * REST endpoints of McpController on the reactive stack, backed by ReactiveOrderApiService
+ */
+@Slf4j
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/mcp")
+@RequiredArgsConstructor
+public class ReactiveMcpController {
+
+    private final ReactiveOrderApiService orderApiService;
+    private final OrderApiConfig orderApiConfig;
+    private final ToolCatalog toolCatalog;
+    private final ObjectMapper objectMapper;
+
+    @GetMapping("/tools")
+    public ResponseEntity<byte[]> listTools(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // Catalog is pre-serialized at startup; unchanged catalogs are answered with 304
+        if (toolCatalog.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(toolCatalog.getEtag())
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(toolCatalog.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+
+        if (acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip")) {
+            return response
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(toolCatalog.getGzippedJson());
+        }
+        return response.body(toolCatalog.getJson());
+    }
+
+    @PostMapping("/orders")
+    public Mono<Order> createOrder(@RequestBody Order order) {
+        log.debug("Creating order");
+        return orderApiService.createOrder(order);
+    }
+
+    @GetMapping("/orders")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllOrders() {
+        log.debug("Fetching all orders");
+        if (orderApiConfig.isPassThrough()) {
+            // No field is transformed, relay order API bytes without building POJOs
+            return orderApiService.getAllOrdersRaw();
+        }
+        return orderApiService.getAllOrders()
+                .flatMap(orders -> Mono.fromCallable(() -> objectMapper.writeValueAsBytes(orders)))
+                .map(json -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(json))));
+    }
+
+    @GetMapping("/orders/{id}")
+    public Mono<ResponseEntity<byte[]>> getOrderById(@PathVariable Long id) {
+        log.debug("Fetching order {}", kv("orderId", id));
+        if (orderApiConfig.isPassThrough()) {
+            // Carries order API's ETag; a matching If-None-Match is answered with 304 by Spring
+            return orderApiService.getOrderByIdRaw(id);
+        }
+        return orderApiService.getOrderById(id)
+                .flatMap(order -> Mono.fromCallable(() -> objectMapper.writeValueAsBytes(order)))
+                .map(json -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(json));
+    }
+
+    @PutMapping("/orders/{id}")
+    public Mono<Order> updateOrder(@PathVariable Long id, @RequestBody Order order) {
+        log.debug("Updating order {}", kv("orderId", id));
+        return orderApiService.updateOrder(id, order);
+    }
+
+    @DeleteMapping("/orders/{id}")
+    public Mono<Map<String, String>> cancelOrder(@PathVariable Long id) {
+        log.debug("Cancelling order {}", kv("orderId", id));
+        return orderApiService.cancelOrder(id)
+                .thenReturn(Map.of("message", String.format("Sipariş %d başarıyla iptal edildi.", id)));
+    }
+
+    @PatchMapping("/orders/{id}/address")
+    public Mono<Order> updateOrderAddress(@PathVariable Long id, @RequestParam String address) {
+        log.debug("Updating address of order {}", kv("orderId", id));
+        return orderApiService.updateOrderAddress(id, address);
+    }
+
+    @PostMapping("/orders/batch-get")
+    public Mono<BatchResponse> batchGetOrders(@Valid @RequestBody BatchOrderRequest request) {
+        log.debug("Fetching orders in batch: {}", kv("orders", request.getOrderIds().size()));
+        return orderApiService.batchGetOrders(request.getOrderIds());
+    }
+
+    @PostMapping("/orders/batch-cancel")
+    public Mono<BatchResponse> batchCancelOrders(@Valid @RequestBody BatchOrderRequest request) {
+        log.debug("Cancelling orders in batch: {}", kv("orders", request.getOrderIds().size()));
+        return orderApiService.batchCancelOrders(request.getOrderIds());
+    }
+
+    @PostMapping("/orders/batch-address")
+    public Mono<BatchResponse> batchUpdateOrderAddress(@Valid @RequestBody BatchAddressUpdateRequest request) {
+        log.debug("Updating order addresses in batch: {}", kv("updates", request.getUpdates().size()));
+        return orderApiService.batchUpdateOrderAddress(request.getUpdates());
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.orderapimcp.exception;
+
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
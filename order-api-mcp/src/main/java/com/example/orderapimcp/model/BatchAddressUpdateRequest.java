@@ -0,0 +1,23 @@
+package com.example.orderapimcp.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchAddressUpdateRequest {
+
+    @JsonProperty("updates")
+    @NotEmpty(message = "At least one address update is required")
+    @Valid
+    private List<OrderAddressUpdate> updates;
+}
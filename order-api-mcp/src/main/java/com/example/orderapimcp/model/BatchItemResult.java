@@ -0,0 +1,28 @@
+package com.example.orderapimcp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    @JsonProperty("id")
+    private Long id;
+
+    @JsonProperty("status")
+    private int status;
+
+    @JsonProperty("order")
+    private Order order;
+
+    @JsonProperty("error")
+    private String error;
+}
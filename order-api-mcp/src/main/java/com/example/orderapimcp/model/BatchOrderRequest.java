@@ -0,0 +1,22 @@
+package com.example.orderapimcp.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOrderRequest {
+
+    @JsonProperty("orderIds")
+    @NotEmpty(message = "At least one order ID is required")
+    private List<@NotNull(message = "Order ID must not be null") Long> orderIds;
+}
@@ -0,0 +1,37 @@
+package com.example.orderapimcp.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JsonRpcResponse {
+
+    @Builder.Default
+    private String jsonrpc = "2.0";
+
+    // Echoes the request id; JSON null when the id could not be determined
+    private JsonNode id;
+
+    private Object result;
+    private JsonRpcError error;
+
+    public static JsonRpcResponse result(JsonNode id, Object result) {
+        return JsonRpcResponse.builder().id(id).result(result).build();
+    }
+
+    public static JsonRpcResponse error(JsonNode id, int code, String message) {
+        return JsonRpcResponse.builder()
+                .id(id != null ? id : NullNode.getInstance())
+                .error(JsonRpcError.builder().code(code).message(message).build())
+                .build();
+    }
+}
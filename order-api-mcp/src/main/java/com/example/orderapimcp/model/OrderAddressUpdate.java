@@ -0,0 +1,24 @@
+package com.example.orderapimcp.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderAddressUpdate {
+
+    @JsonProperty("orderId")
+    @NotNull(message = "Order ID is required")
+    private Long orderId;
+
+    @JsonProperty("address")
+    @NotBlank(message = "Address is required")
+    private String address;
+}
@@ -0,0 +1,243 @@
+package com.example.orderapimcp.service;
+
+import com.example.orderapimcp.config.McpServerConfig;
+import com.example.orderapimcp.model.JsonRpcError;
+import com.example.orderapimcp.model.JsonRpcResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MCP JSON-RPC 2.0 message handling: lifecycle (initialize, ping), tools/list and tools/call.
+ * Messages of a batch are executed concurrently and answered in request order;
+ * notifications never get a response.
+ * The reactive stack uses handleBatchReactive: tool calls do not block, everything else is answered in place.
+ */
+@Slf4j
+@Service
+public class McpJsonRpcService {
+
+    public static final String LATEST_PROTOCOL_VERSION = "2025-03-26";
+    private static final List<String> SUPPORTED_PROTOCOL_VERSIONS = List.of(LATEST_PROTOCOL_VERSION, "2024-11-05");
+
+    private final McpServerConfig config;
+    private final ToolCatalog toolCatalog;
+    private final McpToolDispatcher toolDispatcher;
+    private final McpSessionRegistry sessionRegistry;
+    private final ExecutorService batchExecutor;
+
+    public McpJsonRpcService(McpServerConfig config, ToolCatalog toolCatalog,
+                             McpToolDispatcher toolDispatcher, McpSessionRegistry sessionRegistry) {
+        this.config = config;
+        this.toolCatalog = toolCatalog;
+        this.toolDispatcher = toolDispatcher;
+        this.sessionRegistry = sessionRegistry;
+        AtomicInteger threadCount = new AtomicInteger();
+        // Batch entries run under the request's trace
+        this.batchExecutor = ContextExecutors.wrap(Executors.newFixedThreadPool(config.getBatchParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "mcp-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdownNow();
+    }
+
+    public static boolean isInitialize(JsonNode message) {
+        return message.isObject() && "initialize".equals(message.path("method").asText());
+    }
+
+    /**
+     * Handle initialize: negotiate the protocol version and open a session
+     */
+    public Map.Entry<McpSession, JsonRpcResponse> initialize(JsonNode message) {
+        JsonNode params = message.path("params");
+        String requested = params.path("protocolVersion").asText(null);
+        String protocolVersion = SUPPORTED_PROTOCOL_VERSIONS.contains(requested) ? requested : LATEST_PROTOCOL_VERSION;
+        McpSession session = sessionRegistry.create(protocolVersion, params.path("clientInfo"));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("protocolVersion", protocolVersion);
+        result.put("capabilities", Map.of("tools", Map.of("listChanged", true)));
+        result.put("serverInfo", Map.of("name", config.getName(), "version", config.getVersion()));
+        return Map.entry(session, JsonRpcResponse.result(message.get("id"), result));
+    }
+
+    /**
+     * Handle a batch; the result only contains responses to requests, in their original order
+     */
+    public List<JsonRpcResponse> handleBatch(List<JsonNode> messages, McpSession session) {
+        if (messages.size() == 1) {
+            JsonRpcResponse response = handle(messages.get(0), session);
+            return response != null ? List.of(response) : List.of();
+        }
+
+        List<CompletableFuture<JsonRpcResponse>> futures = new ArrayList<>(messages.size());
+        for (JsonNode message : messages) {
+            futures.add(CompletableFuture.supplyAsync(RequestDeadline.wrapSupplier(() -> handle(message, session)), batchExecutor));
+        }
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Non-blocking handleBatch: at most mcp.server.batch-parallelism tool calls of a batch run at once
+     */
+    public Mono<List<JsonRpcResponse>> handleBatchReactive(List<JsonNode> messages, McpSession session) {
+        return Flux.fromIterable(messages)
+                .flatMapSequential(message -> handleReactive(message, session)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty()), config.getBatchParallelism())
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collectList();
+    }
+
+    /**
+     * Non-blocking handle; completes empty for notifications
+     */
+    public Mono<JsonRpcResponse> handleReactive(JsonNode message, McpSession session) {
+        if (!isRequest(message) || !"tools/call".equals(message.get("method").asText())) {
+            return Mono.fromCallable(() -> handle(message, session));
+        }
+
+        JsonNode id = message.get("id");
+        boolean notification = id == null;
+        return callToolReactive(message.path("params"))
+                .map(result -> JsonRpcResponse.result(id, result))
+                .onErrorResume(e -> {
+                    if (notification) {
+                        return Mono.empty();
+                    }
+                    if (e instanceof IllegalArgumentException) {
+                        return Mono.just(JsonRpcResponse.error(id, JsonRpcError.INVALID_PARAMS, e.getMessage()));
+                    }
+                    log.error("Error handling MCP method tools/call", e);
+                    return Mono.just(JsonRpcResponse.error(id, JsonRpcError.INTERNAL_ERROR, e.getMessage()));
+                })
+                .filter(response -> !notification);
+    }
+
+    /**
+     * Handle one message; returns null for notifications
+     */
+    public JsonRpcResponse handle(JsonNode message, McpSession session) {
+        if (!isRequest(message)) {
+            return JsonRpcResponse.error(message.get("id"), JsonRpcError.INVALID_REQUEST, "Invalid JSON-RPC 2.0 request");
+        }
+
+        JsonNode id = message.get("id");
+        boolean notification = id == null;
+        String method = message.get("method").asText();
+        JsonNode params = message.path("params");
+
+        try {
+            switch (method) {
+                case "notifications/initialized":
+                    session.setInitialized(true);
+                    return null;
+                case "initialize":
+                    return JsonRpcResponse.error(id, JsonRpcError.INVALID_REQUEST,
+                            "Session already initialized; initialize must be sent on its own");
+                case "ping":
+                    return notification ? null : JsonRpcResponse.result(id, Map.of());
+                case "tools/list":
+                    return JsonRpcResponse.result(id, Map.of("tools", toolCatalog.getMcpTools()));
+                case "tools/call":
+                    return JsonRpcResponse.result(id, callTool(params));
+                default:
+                    if (notification) {
+                        log.debug("Ignoring notification {}", method);
+                        return null;
+                    }
+                    return JsonRpcResponse.error(id, JsonRpcError.METHOD_NOT_FOUND, "Method not found: " + method);
+            }
+        } catch (IllegalArgumentException e) {
+            return notification ? null : JsonRpcResponse.error(id, JsonRpcError.INVALID_PARAMS, e.getMessage());
+        } catch (Exception e) {
+            log.error("Error handling MCP method {}", method, e);
+            return notification ? null : JsonRpcResponse.error(id, JsonRpcError.INTERNAL_ERROR, e.getMessage());
+        }
+    }
+
+    private static boolean isRequest(JsonNode message) {
+        return message.isObject() && "2.0".equals(message.path("jsonrpc").asText()) && message.path("method").isTextual();
+    }
+
+    /**
+     * tools/call result; failures of the tool itself are reported with isError rather than as JSON-RPC errors
+     */
+    private Map<String, Object> callTool(JsonNode params) throws Exception {
+        JsonNode name = toolName(params);
+        JsonNode arguments = params.has("arguments") ? params.get("arguments") : MissingNode.getInstance();
+
+        String text;
+        boolean isError = false;
+        try {
+            text = toolDispatcher.call(name.asText(), arguments);
+        } catch (HttpStatusCodeException e) {
+            text = e.getResponseBodyAsString();
+            isError = true;
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            log.error("Tool {} failed", name.asText(), e);
+            text = Objects.toString(e.getMessage(), e.getClass().getSimpleName());
+            isError = true;
+        }
+
+        return toolResult(text, isError);
+    }
+
+    private Mono<Map<String, Object>> callToolReactive(JsonNode params) {
+        return Mono.defer(() -> {
+            JsonNode name = toolName(params);
+            JsonNode arguments = params.has("arguments") ? params.get("arguments") : MissingNode.getInstance();
+            return toolDispatcher.callReactive(name.asText(), arguments)
+                    .map(text -> toolResult(text, false))
+                    .onErrorResume(WebClientResponseException.class,
+                            e -> Mono.just(toolResult(e.getResponseBodyAsString(), true)))
+                    .onErrorResume(e -> e instanceof RuntimeException && !(e instanceof IllegalArgumentException), e -> {
+                        log.error("Tool {} failed", name.asText(), e);
+                        return Mono.just(toolResult(Objects.toString(e.getMessage(), e.getClass().getSimpleName()), true));
+                    });
+        });
+    }
+
+    private static JsonNode toolName(JsonNode params) {
+        JsonNode name = params.path("name");
+        if (!name.isTextual()) {
+            throw new IllegalArgumentException("Parameter 'name' is required");
+        }
+        return name;
+    }
+
+    private static Map<String, Object> toolResult(String text, boolean isError) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("content", List.of(Map.of("type", "text", "text", text)));
+        result.put("isError", isError);
+        return result;
+    }
+}
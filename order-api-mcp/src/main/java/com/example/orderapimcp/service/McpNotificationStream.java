@@ -0,0 +1,26 @@
+package com.example.orderapimcp.service;
+
+import java.io.IOException;
+
+/**
+ * Server-to-client notification stream of an MCP session (GET /mcp): an SseEmitter on the servlet stack,
+ * a Reactor sink on the reactive stack
+ */
+public interface McpNotificationStream {
+
+    /**
+     * Send one event with the given data
+     *
+     * @throws IOException or IllegalStateException when the client is gone
+     */
+    void send(String data) throws IOException;
+
+    /**
+     * Send a comment line that keeps an idle stream open
+     */
+    void heartbeat() throws IOException;
+
+    void complete();
+
+    void completeWithError(Throwable error);
+}
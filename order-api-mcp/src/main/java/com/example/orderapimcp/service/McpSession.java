@@ -0,0 +1,38 @@
+package com.example.orderapimcp.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * State of one MCP client session, created by initialize and identified by Mcp-Session-Id
+ */
+@Getter
+public class McpSession {
+
+    private final String id;
+    private final String protocolVersion;
+    private final JsonNode clientInfo;
+    private final Instant createdAt = Instant.now();
+
+    private volatile long lastSeenMillis = System.currentTimeMillis();
+
+    @Setter
+    private volatile boolean initialized;
+
+    // Open GET /mcp stream for server-to-client notifications, if any
+    @Setter
+    private volatile McpNotificationStream notificationStream;
+
+    public McpSession(String id, String protocolVersion, JsonNode clientInfo) {
+        this.id = id;
+        this.protocolVersion = protocolVersion;
+        this.clientInfo = clientInfo;
+    }
+
+    public void touch() {
+        lastSeenMillis = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.orderapimcp.service;
+
+import com.example.orderapimcp.config.McpServerConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live MCP sessions and their notification streams.
+ * Sessions stay open across many requests; idle ones are closed after mcp.server.session-idle-timeout-ms.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class McpSessionRegistry {
+
+    private final McpServerConfig config;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, McpSession> sessions = new ConcurrentHashMap<>();
+
+    public McpSession create(String protocolVersion, JsonNode clientInfo) {
+        McpSession session = new McpSession(UUID.randomUUID().toString(), protocolVersion, clientInfo);
+        sessions.put(session.getId(), session);
+        log.info("MCP session {} opened (protocol {}, client {})", session.getId(), protocolVersion, clientInfo);
+        return session;
+    }
+
+    /**
+     * Look up a session and mark it as active, or null if it does not exist (anymore)
+     */
+    public McpSession get(String sessionId) {
+        McpSession session = sessionId != null ? sessions.get(sessionId) : null;
+        if (session != null) {
+            session.touch();
+        }
+        return session;
+    }
+
+    public boolean close(String sessionId) {
+        McpSession session = sessions.remove(sessionId);
+        if (session == null) {
+            return false;
+        }
+        McpNotificationStream stream = session.getNotificationStream();
+        if (stream != null) {
+            stream.complete();
+        }
+        log.info("MCP session {} closed", sessionId);
+        return true;
+    }
+
+    /**
+     * Open the notification stream of a session, replacing a previous one
+     */
+    public SseEmitter openNotificationStream(McpSession session) {
+        SseEmitter emitter = new SseEmitter(config.getNotificationStreamTimeoutMs());
+        EmitterStream stream = new EmitterStream(emitter);
+        Runnable detach = () -> detach(session, stream);
+        emitter.onCompletion(detach);
+        emitter.onTimeout(detach);
+        emitter.onError(error -> detach.run());
+        attach(session, stream);
+        return emitter;
+    }
+
+    /**
+     * Open the notification stream of a session on the reactive stack, replacing a previous one
+     */
+    public Flux<ServerSentEvent<String>> openNotificationFlux(McpSession session) {
+        SinkStream stream = new SinkStream(Sinks.many().unicast().onBackpressureBuffer());
+        attach(session, stream);
+        return stream.sink.asFlux()
+                .take(Duration.ofMillis(config.getNotificationStreamTimeoutMs()))
+                .doFinally(signal -> detach(session, stream));
+    }
+
+    private void attach(McpSession session, McpNotificationStream stream) {
+        McpNotificationStream previous = session.getNotificationStream();
+        session.setNotificationStream(stream);
+        if (previous != null) {
+            previous.complete();
+        }
+    }
+
+    private void detach(McpSession session, McpNotificationStream stream) {
+        if (session.getNotificationStream() == stream) {
+            session.setNotificationStream(null);
+        }
+    }
+
+    @EventListener
+    public void onToolCatalogChanged(ToolCatalogChangedEvent event) {
+        log.info("Tool catalog changed {} -> {}, notifying {} sessions",
+                event.getPreviousVersion(), event.getVersion(), sessions.size());
+        broadcast("notifications/tools/list_changed");
+    }
+
+    /**
+     * Send a JSON-RPC notification to every session with an open notification stream
+     */
+    public void broadcast(String method) {
+        Map<String, Object> notification = new LinkedHashMap<>();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", method);
+        String data;
+        try {
+            data = objectMapper.writeValueAsString(notification);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize notification " + method, e);
+        }
+
+        for (McpSession session : sessions.values()) {
+            McpNotificationStream stream = session.getNotificationStream();
+            if (stream == null) {
+                continue;
+            }
+            try {
+                stream.send(data);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping notification stream of session {}: {}", session.getId(), e.getMessage());
+                session.setNotificationStream(null);
+                stream.completeWithError(e);
+            }
+        }
+    }
+
+    /**
+     * Keep idle notification streams alive so clients with a read timeout do not drop them
+     */
+    @Scheduled(fixedDelayString = "${mcp.server.notification-heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (McpSession session : sessions.values()) {
+            McpNotificationStream stream = session.getNotificationStream();
+            if (stream == null) {
+                continue;
+            }
+            try {
+                stream.heartbeat();
+            } catch (IOException | IllegalStateException e) {
+                session.setNotificationStream(null);
+                stream.completeWithError(e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${mcp.server.session-sweep-interval-ms:60000}")
+    public void closeIdleSessions() {
+        long cutoff = System.currentTimeMillis() - config.getSessionIdleTimeoutMs();
+        sessions.values().stream()
+                .filter(session -> session.getNotificationStream() == null && session.getLastSeenMillis() < cutoff)
+                .map(McpSession::getId)
+                .toList()
+                .forEach(this::close);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    @RequiredArgsConstructor
+    private static final class EmitterStream implements McpNotificationStream {
+
+        private final SseEmitter emitter;
+
+        @Override
+        public void send(String data) throws IOException {
+            emitter.send(SseEmitter.event().data(data));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void complete() {
+            emitter.complete();
+        }
+
+        @Override
+        public void completeWithError(Throwable error) {
+            emitter.completeWithError(error);
+        }
+    }
+
+    /**
+     * Emissions are serialized because broadcasts and heartbeats run on different threads
+     */
+    @RequiredArgsConstructor
+    private static final class SinkStream implements McpNotificationStream {
+
+        private final Sinks.Many<ServerSentEvent<String>> sink;
+
+        @Override
+        public synchronized void send(String data) {
+            emit(ServerSentEvent.builder(data).build());
+        }
+
+        @Override
+        public synchronized void heartbeat() {
+            emit(ServerSentEvent.<String>builder().comment("heartbeat").build());
+        }
+
+        @Override
+        public synchronized void complete() {
+            sink.tryEmitComplete();
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable error) {
+            sink.tryEmitError(error);
+        }
+
+        private void emit(ServerSentEvent<String> event) {
+            Sinks.EmitResult result = sink.tryEmitNext(event);
+            if (result.isFailure()) {
+                throw new IllegalStateException("Notification stream closed (" + result + ")");
+            }
+        }
+    }
+}
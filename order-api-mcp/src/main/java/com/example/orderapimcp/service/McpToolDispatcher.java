@@ -0,0 +1,165 @@
+package com.example.orderapimcp.service;
+
+import com.example.orderapimcp.config.OrderApiConfig;
+import com.example.orderapimcp.model.OrderAddressUpdate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Executes MCP tools by name for the JSON-RPC transport.
+ * Each tool maps onto the same OrderApiService call as its REST endpoint and returns the JSON text
+ * of the result; reads relay order API bytes without re-serializing them.
+ * The reactive stack calls the same tools through ReactiveOrderApiService (callReactive).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class McpToolDispatcher {
+
+    private final OrderApiService orderApiService;
+    private final ReactiveOrderApiService reactiveOrderApiService;
+    private final OrderApiConfig config;
+    private final ObjectMapper objectMapper;
+    private final ObservationRegistry observationRegistry;
+
+    /**
+     * Run a tool and return its result as JSON text
+     *
+     * @throws IllegalArgumentException for unknown tools or invalid arguments
+     */
+    public String call(String name, JsonNode arguments) throws JsonProcessingException {
+        log.info("Calling tool {}", kv("tool", name));
+        log.debug("Tool {} arguments: {}", name, arguments);
+        return Observation.createNotStarted("mcp.tool", observationRegistry)
+                .lowCardinalityKeyValue("tool", name)
+                .observeChecked(() -> execute(name, arguments));
+    }
+
+    private String execute(String name, JsonNode arguments) throws JsonProcessingException {
+        return switch (name) {
+            case "get_all_orders" -> config.isPassThrough()
+                    ? utf8(orderApiService.fetchAllOrders())
+                    : objectMapper.writeValueAsString(orderApiService.getAllOrders());
+            case "get_order_by_id" -> utf8(orderApiService.fetchOrder(orderId(arguments)).getBody());
+            case "cancel_order" -> {
+                Long orderId = orderId(arguments);
+                orderApiService.cancelOrder(orderId);
+                yield objectMapper.writeValueAsString(
+                        Map.of("message", String.format("Sipariş %d başarıyla iptal edildi.", orderId)));
+            }
+            case "update_order_address" -> objectMapper.writeValueAsString(
+                    orderApiService.updateOrderAddress(orderId(arguments), requiredText(arguments, "address")));
+            case "get_orders_by_ids" -> objectMapper.writeValueAsString(
+                    orderApiService.batchGetOrders(orderIds(arguments)));
+            case "cancel_orders" -> objectMapper.writeValueAsString(
+                    orderApiService.batchCancelOrders(orderIds(arguments)));
+            case "update_orders_address" -> objectMapper.writeValueAsString(
+                    orderApiService.batchUpdateOrderAddress(updates(arguments)));
+            default -> throw new IllegalArgumentException("Unknown tool: " + name);
+        };
+    }
+
+    /**
+     * Run a tool without blocking; invalid arguments fail the Mono with IllegalArgumentException
+     */
+    public Mono<String> callReactive(String name, JsonNode arguments) {
+        log.info("Calling tool {}", kv("tool", name));
+        log.debug("Tool {} arguments: {}", name, arguments);
+        return Mono.deferContextual(context -> {
+            // Parent is the server request observation, order API calls become children of the tool span
+            Observation observation = Observation.createNotStarted("mcp.tool", observationRegistry)
+                    .lowCardinalityKeyValue("tool", name)
+                    .parentObservation(context.getOrDefault(ObservationThreadLocalAccessor.KEY, null))
+                    .start();
+            return Mono.defer(() -> executeReactive(name, arguments))
+                    .doOnError(observation::error)
+                    .doFinally(signal -> observation.stop())
+                    .contextWrite(inner -> inner.put(ObservationThreadLocalAccessor.KEY, observation));
+        });
+    }
+
+    private Mono<String> executeReactive(String name, JsonNode arguments) {
+        return switch (name) {
+            case "get_all_orders" -> config.isPassThrough()
+                    ? reactiveOrderApiService.fetchAllOrders().map(McpToolDispatcher::utf8)
+                    : reactiveOrderApiService.getAllOrders().map(this::json);
+            case "get_order_by_id" -> reactiveOrderApiService.fetchOrder(orderId(arguments))
+                    .map(entry -> utf8(entry.getBody()));
+            case "cancel_order" -> {
+                Long orderId = orderId(arguments);
+                yield reactiveOrderApiService.cancelOrder(orderId)
+                        .then(Mono.fromCallable(() -> objectMapper.writeValueAsString(
+                                Map.of("message", String.format("Sipariş %d başarıyla iptal edildi.", orderId)))));
+            }
+            case "update_order_address" -> reactiveOrderApiService
+                    .updateOrderAddress(orderId(arguments), requiredText(arguments, "address")).map(this::json);
+            case "get_orders_by_ids" -> reactiveOrderApiService.batchGetOrders(orderIds(arguments)).map(this::json);
+            case "cancel_orders" -> reactiveOrderApiService.batchCancelOrders(orderIds(arguments)).map(this::json);
+            case "update_orders_address" -> reactiveOrderApiService
+                    .batchUpdateOrderAddress(updates(arguments)).map(this::json);
+            default -> throw new IllegalArgumentException("Unknown tool: " + name);
+        };
+    }
+
+    private String json(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to write tool result", e);
+        }
+    }
+
+    private Long orderId(JsonNode arguments) {
+        JsonNode value = arguments.path("orderId");
+        if (value.isNumber()) {
+            return value.asLong();
+        }
+        if (value.isTextual() && value.asText().matches("\\d+")) {
+            return Long.parseLong(value.asText());
+        }
+        throw new IllegalArgumentException("Argument 'orderId' must be a number");
+    }
+
+    private String requiredText(JsonNode arguments, String field) {
+        JsonNode value = arguments.path(field);
+        if (!value.isTextual() || value.asText().isBlank()) {
+            throw new IllegalArgumentException("Argument '" + field + "' is required");
+        }
+        return value.asText();
+    }
+
+    private List<Long> orderIds(JsonNode arguments) {
+        JsonNode value = arguments.path("orderIds");
+        if (!value.isArray() || value.isEmpty()) {
+            throw new IllegalArgumentException("Argument 'orderIds' must be a non-empty array");
+        }
+        return objectMapper.convertValue(value, new TypeReference<>() {});
+    }
+
+    private List<OrderAddressUpdate> updates(JsonNode arguments) {
+        JsonNode value = arguments.path("updates");
+        if (!value.isArray() || value.isEmpty()) {
+            throw new IllegalArgumentException("Argument 'updates' must be a non-empty array");
+        }
+        return objectMapper.convertValue(value, new TypeReference<>() {});
+    }
+
+    private static String utf8(byte[] body) {
+        return body != null ? new String(body, StandardCharsets.UTF_8) : "";
+    }
+}
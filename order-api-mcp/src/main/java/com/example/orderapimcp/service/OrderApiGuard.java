@@ -0,0 +1,395 @@
+package com.example.orderapimcp.service;
+
+import com.example.orderapimcp.config.OrderApiConfig;
+import com.example.orderapimcp.exception.DeadlineExceededException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker, bulkhead and hedged reads for order API calls.
+ * The circuit opens when too many of the recent calls failed and then rejects calls without
+ * touching order API until a single probe succeeds. Reads that are slower than the p95 latency
+ * get one duplicate request; the first successful answer wins and the other is ignored.
+ * Every blocking attempt holds a bulkhead permit until it ends, so a losing hedge or a read the caller stopped
+ * waiting for still counts against max-concurrent-calls; no hedge is sent when the bulkhead is full.
+ * 4xx responses (e.g. order not found) are answers, not failures.
+ * Calls are skipped once the caller's deadline (RequestDeadline) has passed, and reads never wait
+ * beyond it; calls cut short by the deadline do not count against order API either.
+ * The blocking and the reactive stack share the same circuit, bulkhead and latency window: blocking calls pass
+ * a Supplier or Callable, reactive calls a Mono, which is admitted when it is subscribed.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderApiGuard {
+
+    private static final int LATENCY_WINDOW = 200;
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final OrderApiConfig config;
+
+    private ExecutorService executor;
+    private Semaphore bulkhead;
+    private boolean[] outcomes;
+    private int outcomeIndex;
+    private int outcomeCount;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyIndex;
+    private int latencyCount;
+    private double calls;
+    private double hedges;
+
+    @PostConstruct
+    public void init() {
+        bulkhead = new Semaphore(config.getMaxConcurrentCalls());
+        outcomes = new boolean[config.getCircuitWindow()];
+        // At most one thread per bulkhead permit; attempts hold their permit while queued, so the queue stays
+        // within it too. Hedged attempts carry the caller's trace, so both show up as children of the tool span
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(config.getMaxConcurrentCalls(), config.getMaxConcurrentCalls(),
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "order-api-call");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        executor = ContextExecutors.wrap(pool);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Guarded call without hedging, for requests that change orders
+     */
+    public <T> T call(Supplier<T> call) {
+        return call(call, result -> false);
+    }
+
+    /**
+     * Guarded call without hedging whose result may still be a failure, e.g. a relayed response carrying an
+     * order API 5xx; such results are returned to the caller but count against the circuit
+     */
+    public <T> T call(Supplier<T> call, Predicate<? super T> failed) {
+        RequestDeadline.check("Order API call");
+        boolean probe = admit();
+        long startedAt = System.nanoTime();
+        try {
+            T result = call.get();
+            if (failed.test(result)) {
+                onFailure(probe);
+            } else {
+                onSuccess(probe, System.nanoTime() - startedAt);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            onError(probe, e);
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Guarded read; a duplicate is sent if the first request is slower than p95, bounded by the response timeout
+     */
+    public <T> T read(Callable<T> call) {
+        RequestDeadline.check("Order API read");
+        long limitMillis = Math.min(config.getResponseTimeoutMs(), RequestDeadline.remainingMillis());
+        boolean probe = admit();
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(limitMillis);
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        // The worker threads forward the caller's remaining time to order API as well
+        AtomicBoolean settled = new AtomicBoolean();
+        Callable<T> task = attempt(RequestDeadline.wrap(call), settled);
+        Future<T> primary = null;
+        Future<T> secondary = null;
+        try {
+            // The permit taken by admit() passes to the first attempt
+            primary = completion.submit(task);
+            long hedgeDelay = hedgeDelayNanos();
+            Exception lastError = null;
+            int pending = 1;
+            while (pending > 0) {
+                boolean canHedge = secondary == null && hedgeDelay >= 0 && startedAt + hedgeDelay < deadline;
+                long waitUntil = canHedge ? startedAt + hedgeDelay : deadline;
+                Future<T> done = completion.poll(Math.max(0, waitUntil - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    if (!canHedge) {
+                        if (limitMillis < config.getResponseTimeoutMs()) {
+                            throw new DeadlineExceededException("Order API read cut off at " + limitMillis + " ms, request deadline exceeded");
+                        }
+                        throw new IllegalStateException("Order API did not answer within " + config.getResponseTimeoutMs() + " ms");
+                    }
+                    if (!bulkhead.tryAcquire()) {
+                        // Order API is already at its limit; keep waiting for the first attempt instead
+                        log.debug("Order API bulkhead full, hedged request skipped");
+                        hedgeDelay = -1;
+                        continue;
+                    }
+                    log.debug("Order API read slower than {} ms, sending hedged request", TimeUnit.NANOSECONDS.toMillis(hedgeDelay));
+                    synchronized (this) {
+                        hedges++;
+                    }
+                    secondary = completion.submit(task);
+                    pending++;
+                    continue;
+                }
+                pending--;
+                try {
+                    T result = done.get();
+                    onSuccess(probe, System.nanoTime() - startedAt);
+                    return result;
+                } catch (ExecutionException e) {
+                    lastError = e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+            throw lastError instanceof RuntimeException runtime ? runtime
+                    : new IllegalStateException(lastError.getMessage(), lastError);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            onError(probe, e);
+            throw new IllegalStateException("Interrupted while calling order API", e);
+        } catch (RuntimeException e) {
+            onError(probe, e);
+            throw e;
+        } finally {
+            // The loser is not interrupted and ends with its response timeout, releasing its permit then: a thread
+            // interrupted while loading a class closes Spring Boot 3.2.0's nested jar channel and no further classes
+            // can be loaded. An attempt that has not started yet returns without calling order API
+            settled.set(true);
+            if (primary == null) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    /**
+     * One attempt of a blocking read; it owns a bulkhead permit and releases it when it ends
+     */
+    private <T> Callable<T> attempt(Callable<T> call, AtomicBoolean settled) {
+        return () -> {
+            try {
+                if (settled.get()) {
+                    throw new CancellationException("Order API read no longer needed");
+                }
+                return call.call();
+            } finally {
+                bulkhead.release();
+            }
+        };
+    }
+
+    /**
+     * Reactive guarded call without hedging; the deadline is taken from the Reactor context
+     */
+    public <T> Mono<T> call(Mono<T> call) {
+        return call(call, result -> false);
+    }
+
+    /**
+     * Reactive guarded call without hedging whose result may still be a failure (see the blocking variant)
+     */
+    public <T> Mono<T> call(Mono<T> call, Predicate<? super T> failed) {
+        return Mono.deferContextual(context -> {
+            RequestDeadline.check(context, "Order API call");
+            boolean probe = admit();
+            long startedAt = System.nanoTime();
+            return guarded(call, failed, probe, startedAt);
+        });
+    }
+
+    /**
+     * Reactive guarded read; the first attempt keeps running when the hedge is sent and the first answer wins
+     */
+    public <T> Mono<T> read(Mono<T> call) {
+        return Mono.deferContextual(context -> {
+            RequestDeadline.check(context, "Order API read");
+            long limitMillis = Math.min(config.getResponseTimeoutMs(), RequestDeadline.remainingMillis(context));
+            boolean probe = admit();
+            long startedAt = System.nanoTime();
+            long hedgeDelay = hedgeDelayNanos();
+            Mono<T> attempt = call;
+            if (hedgeDelay >= 0 && hedgeDelay < TimeUnit.MILLISECONDS.toNanos(limitMillis)) {
+                Mono<T> primary = call.cache();
+                Mono<T> hedge = Mono.defer(() -> {
+                    log.debug("Order API read slower than {} ms, sending hedged request", TimeUnit.NANOSECONDS.toMillis(hedgeDelay));
+                    synchronized (this) {
+                        hedges++;
+                    }
+                    return call;
+                });
+                // Both attempts failed: report the first attempt's error
+                attempt = primary.timeout(Duration.ofNanos(hedgeDelay), Mono.firstWithValue(primary, hedge)
+                        .onErrorResume(NoSuchElementException.class, e -> primary));
+            }
+            Mono<T> limited = attempt
+                    .timeout(Duration.ofMillis(limitMillis))
+                    .onErrorMap(TimeoutException.class, e -> limitMillis < config.getResponseTimeoutMs()
+                            ? new DeadlineExceededException("Order API read cut off at " + limitMillis + " ms, request deadline exceeded")
+                            : new IllegalStateException("Order API did not answer within " + config.getResponseTimeoutMs() + " ms"));
+            return guarded(limited, result -> false, probe, startedAt);
+        });
+    }
+
+    private <T> Mono<T> guarded(Mono<T> call, Predicate<? super T> failed, boolean probe, long startedAt) {
+        return call
+                .doOnSuccess(result -> {
+                    if (result != null && failed.test(result)) {
+                        onFailure(probe);
+                    } else {
+                        onSuccess(probe, System.nanoTime() - startedAt);
+                    }
+                })
+                .doOnError(Exception.class, e -> onError(probe, e))
+                .doOnCancel(() -> onCancel(probe))
+                .doFinally(signal -> bulkhead.release());
+    }
+
+    private boolean admit() {
+        boolean probe;
+        synchronized (this) {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= TimeUnit.MILLISECONDS.toNanos(config.getCircuitOpenMs())) {
+                state = State.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == State.OPEN || (state == State.HALF_OPEN && probeInFlight)) {
+                throw new IllegalStateException("Order API circuit is open");
+            }
+            probe = state == State.HALF_OPEN;
+            if (probe) {
+                probeInFlight = true;
+            }
+        }
+        if (!bulkhead.tryAcquire()) {
+            synchronized (this) {
+                if (probe) {
+                    probeInFlight = false;
+                }
+            }
+            throw new IllegalStateException("Too many concurrent order API calls");
+        }
+        return probe;
+    }
+
+    private synchronized void onSuccess(boolean probe, long nanos) {
+        latencies[latencyIndex] = nanos;
+        latencyIndex = (latencyIndex + 1) % latencies.length;
+        latencyCount = Math.min(latencyCount + 1, latencies.length);
+        record(probe, false);
+    }
+
+    private synchronized void onFailure(boolean probe) {
+        record(probe, true);
+    }
+
+    private synchronized void onError(boolean probe, Exception error) {
+        if (error instanceof DeadlineExceededException) {
+            if (probe) {
+                probeInFlight = false;
+            }
+            return;
+        }
+        record(probe, !isAnswer(error));
+    }
+
+    /**
+     * The caller went away before order API answered; the outcome is unknown and not recorded
+     */
+    private synchronized void onCancel(boolean probe) {
+        if (probe) {
+            probeInFlight = false;
+        }
+    }
+
+    private static boolean isAnswer(Exception error) {
+        return error instanceof HttpClientErrorException
+                || (error instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError());
+    }
+
+    private void record(boolean probe, boolean failed) {
+        calls++;
+        if (calls > 1000) {
+            calls /= 2;
+            hedges /= 2;
+        }
+        if (probe) {
+            probeInFlight = false;
+            if (failed) {
+                open();
+            } else {
+                state = State.CLOSED;
+                Arrays.fill(outcomes, false);
+                outcomeCount = 0;
+                failures = 0;
+                log.info("Order API circuit closed");
+            }
+            return;
+        }
+
+        if (outcomeCount == outcomes.length && outcomes[outcomeIndex]) {
+            failures--;
+        }
+        outcomes[outcomeIndex] = failed;
+        outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+        outcomeCount = Math.min(outcomeCount + 1, outcomes.length);
+        if (failed) {
+            failures++;
+        }
+        if (state == State.CLOSED && outcomeCount == outcomes.length
+                && failures >= config.getCircuitFailureRate() * outcomes.length) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        log.warn("Order API circuit opened ({} of last {} calls failed)", failures, outcomeCount);
+    }
+
+    /**
+     * p95 of successful call latencies, or -1 while there are too few samples or the hedge budget is used up
+     */
+    private synchronized long hedgeDelayNanos() {
+        if (!config.isHedgeEnabled() || latencyCount < MIN_LATENCY_SAMPLES || hedges >= config.getHedgeMaxRatio() * calls) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * 0.95) - 1];
+    }
+}
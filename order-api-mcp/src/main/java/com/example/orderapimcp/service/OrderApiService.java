@@ -1,37 +1,63 @@
 package com.example.orderapimcp.service;
 
 import com.example.orderapimcp.config.OrderApiConfig;
+import com.example.orderapimcp.config.SmileConfig;
+import com.example.orderapimcp.model.BatchResponse;
 import com.example.orderapimcp.model.Order;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.orderapimcp.model.OrderAddressUpdate;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.Observation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.observation.ClientHttpObservationDocumentation;
+import org.springframework.http.client.observation.ClientRequestObservationContext;
+import org.springframework.http.client.observation.ClientRequestObservationConvention;
+import org.springframework.http.client.observation.DefaultClientRequestObservationConvention;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderApiService {
 
+    private static final MediaType JSON_FALLBACK = new MediaType(MediaType.APPLICATION_JSON, Map.of("q", "0.9"));
+    private static final ClientRequestObservationConvention DEFAULT_OBSERVATION_CONVENTION =
+            new DefaultClientRequestObservationConvention();
+
     private final OrderApiConfig config;
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
+    private final OrderNearCache nearCache;
+    private final OrderApiGuard orderApiGuard;
 
     public Order createOrder(Order order) {
         try {
-            log.info("Creating order for customer: {}", order.getCustomerName());
+            log.info("Creating order with {}", kv("items", order.getItems() == null ? 0 : order.getItems().size()));
             HttpEntity<Order> request = new HttpEntity<>(order, createHeaders());
-            ResponseEntity<Order> response = restTemplate.exchange(
+            ResponseEntity<Order> response = orderApiGuard.call(() -> restTemplate.exchange(
                 config.getBaseUrl(),
                 HttpMethod.POST,
                 request,
                 Order.class
-            );
+            ));
             return response.getBody();
         } catch (Exception e) {
             log.error("Error creating order", e);
@@ -42,48 +68,102 @@ public class OrderApiService {
     public List<Order> getAllOrders() {
         try {
             log.info("Fetching all orders");
-            ResponseEntity<String> response = restTemplate.exchange(
+            ResponseEntity<List<Order>> response = orderApiGuard.read(() -> restTemplate.exchange(
                 config.getBaseUrl(),
                 HttpMethod.GET,
                 new HttpEntity<>(createHeaders()),
-                String.class
-            );
-            return objectMapper.readValue(
-                response.getBody(),
-                new TypeReference<List<Order>>() {}
-            );
+                new ParameterizedTypeReference<List<Order>>() {}
+            ));
+            return response.getBody();
         } catch (Exception e) {
             log.error("Error fetching all orders", e);
             throw new RuntimeException("Failed to fetch orders: " + e.getMessage(), e);
         }
     }
 
-    public Order getOrderById(Long orderId) {
+    /**
+     * All orders as the JSON bytes returned by order API, without binding them to POJOs
+     */
+    public byte[] fetchAllOrders() {
         try {
-            log.info("Fetching order with ID: {}", orderId);
-            ResponseEntity<Order> response = restTemplate.exchange(
-                config.getBaseUrl() + "/" + orderId,
+            log.info("Fetching all orders as bytes");
+            ResponseEntity<byte[]> response = orderApiGuard.read(() -> restTemplate.exchange(
+                config.getBaseUrl(),
                 HttpMethod.GET,
-                new HttpEntity<>(createHeaders()),
-                Order.class
-            );
+                new HttpEntity<>(jsonHeaders()),
+                byte[].class
+            ));
             return response.getBody();
+        } catch (Exception e) {
+            log.error("Error fetching all orders", e);
+            throw new RuntimeException("Failed to fetch orders: " + e.getMessage(), e);
+        }
+    }
+
+    public Order getOrderById(Long orderId) {
+        try {
+            log.info("Fetching order {}", kv("orderId", orderId));
+            return objectMapper.readValue(fetchOrder(orderId).getBody(), Order.class);
         } catch (Exception e) {
             log.error("Error fetching order with ID: {}", orderId, e);
             throw new RuntimeException("Failed to fetch order: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Fetch a single order response. Entries kept current by the change feed are served
+     * without calling order API; other cached copies are revalidated with If-None-Match,
+     * and a 304 reuses the cached bytes without transferring the body again.
+     */
+    public OrderNearCache.Entry fetchOrder(Long orderId) {
+        OrderNearCache.Entry trusted = nearCache.getTrusted(orderId);
+        if (trusted != null) {
+            log.debug("Order {} served from near-cache (etag={})", orderId, trusted.getEtag());
+            return trusted;
+        }
+
+        long stamp = nearCache.stamp();
+        OrderNearCache.Entry cached = nearCache.get(orderId);
+        HttpHeaders headers = jsonHeaders();
+        if (cached != null) {
+            headers.setIfNoneMatch(cached.getEtag());
+        }
+
+        ResponseEntity<byte[]> response = orderApiGuard.read(() -> restTemplate.exchange(
+            config.getBaseUrl() + "/" + orderId,
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            byte[].class
+        ));
+
+        if (cached != null && response.getStatusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+            log.debug("Order {} not modified, reusing cached response (etag={})", orderId, cached.getEtag());
+            nearCache.put(orderId, cached, stamp);
+            return cached;
+        }
+
+        OrderNearCache.Entry entry = new OrderNearCache.Entry(
+            response.getHeaders().getETag(),
+            response.getHeaders().getContentType(),
+            response.getBody()
+        );
+        if (entry.getEtag() != null) {
+            nearCache.put(orderId, entry, stamp);
+        }
+        return entry;
+    }
+
     public Order updateOrder(Long orderId, Order order) {
         try {
-            log.info("Updating order with ID: {}", orderId);
+            log.info("Updating order {}", kv("orderId", orderId));
+            nearCache.invalidate(orderId);
             HttpEntity<Order> request = new HttpEntity<>(order, createHeaders());
-            ResponseEntity<Order> response = restTemplate.exchange(
+            ResponseEntity<Order> response = orderApiGuard.call(() -> restTemplate.exchange(
                 config.getBaseUrl() + "/" + orderId,
                 HttpMethod.PUT,
                 request,
                 Order.class
-            );
+            ));
             return response.getBody();
         } catch (Exception e) {
             log.error("Error updating order with ID: {}", orderId, e);
@@ -93,13 +173,14 @@ public class OrderApiService {
 
     public void cancelOrder(Long orderId) {
         try {
-            log.info("Cancelling order with ID: {}", orderId);
-            restTemplate.exchange(
+            log.info("Cancelling order {}", kv("orderId", orderId));
+            nearCache.invalidate(orderId);
+            orderApiGuard.call(() -> restTemplate.exchange(
                 config.getBaseUrl() + "/" + orderId,
                 HttpMethod.DELETE,
                 new HttpEntity<>(createHeaders()),
                 Void.class
-            );
+            ));
         } catch (Exception e) {
             log.error("Error cancelling order with ID: {}", orderId, e);
             throw new RuntimeException("Failed to cancel order: " + e.getMessage(), e);
@@ -108,21 +189,22 @@ public class OrderApiService {
 
     public Order updateOrderAddress(Long orderId, String address) {
         try {
-            log.info("Updating address for order ID: {} to: {}", orderId, address);
+            log.info("Updating address of order {}", kv("orderId", orderId));
+            nearCache.invalidate(orderId);
             String url = UriComponentsBuilder.fromHttpUrl(config.getBaseUrl())
                     .path("/{id}/address")
                     .queryParam("address", address)
                     .buildAndExpand(orderId)
                     .toUriString();
 
-            log.info("Built URL: {}", url);
+            log.debug("Built URL: {}", url);
 
-            ResponseEntity<Order> response = restTemplate.exchange(
+            ResponseEntity<Order> response = orderApiGuard.call(() -> restTemplate.exchange(
                 url,
                 HttpMethod.PATCH,
                 new HttpEntity<>(createHeaders()),
                 Order.class
-            );
+            ));
             return response.getBody();
         } catch (Exception e) {
             log.error("Error updating address for order ID: {}", orderId, e);
@@ -130,7 +212,185 @@ public class OrderApiService {
         }
     }
 
+    public BatchResponse batchGetOrders(List<Long> orderIds) {
+        try {
+            log.info("Fetching orders in batch: {}", kv("orders", orderIds.size()));
+            // Read-only despite the POST, so it may be hedged
+            return orderApiGuard.read(() -> postBatch("/batch-get", Map.of("ids", orderIds)));
+        } catch (Exception e) {
+            log.error("Error fetching orders in batch: {}", orderIds, e);
+            throw new RuntimeException("Failed to fetch orders: " + e.getMessage(), e);
+        }
+    }
+
+    public BatchResponse batchCancelOrders(List<Long> orderIds) {
+        try {
+            log.info("Cancelling orders in batch: {}", kv("orders", orderIds.size()));
+            orderIds.forEach(nearCache::invalidate);
+            return orderApiGuard.call(() -> postBatch("/batch-cancel", Map.of("ids", orderIds)));
+        } catch (Exception e) {
+            log.error("Error cancelling orders in batch: {}", orderIds, e);
+            throw new RuntimeException("Failed to cancel orders: " + e.getMessage(), e);
+        }
+    }
+
+    public BatchResponse batchUpdateOrderAddress(List<OrderAddressUpdate> updates) {
+        try {
+            log.info("Updating address of orders in batch: {}", kv("orders", updates.size()));
+            updates.forEach(update -> nearCache.invalidate(update.getOrderId()));
+            List<Map<String, Object>> body = updates.stream()
+                    .map(update -> {
+                        Map<String, Object> item = new LinkedHashMap<>();
+                        item.put("id", update.getOrderId());
+                        item.put("address", update.getAddress());
+                        return item;
+                    })
+                    .toList();
+            return orderApiGuard.call(() -> postBatch("/batch-address", Map.of("updates", body)));
+        } catch (Exception e) {
+            log.error("Error updating order addresses in batch", e);
+            throw new RuntimeException("Failed to update order addresses: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Send a batch request to order-api; results are reported per order
+     */
+    private BatchResponse postBatch(String path, Object body) {
+        ResponseEntity<BatchResponse> response = restTemplate.exchange(
+            config.getBaseUrl() + path,
+            HttpMethod.POST,
+            new HttpEntity<>(body, createHeaders()),
+            BatchResponse.class
+        );
+        return response.getBody();
+    }
+
+    public ResponseEntity<StreamingResponseBody> getAllOrdersRaw() {
+        log.info("Relaying all orders from order API");
+        return passThroughGet(config.getBaseUrl());
+    }
+
+    /**
+     * Relay a single order as bytes with its ETag, served from the near-cache when it is current or order API answers 304.
+     * Order API errors are relayed with their original status and body.
+     */
+    public ResponseEntity<byte[]> getOrderByIdRaw(Long orderId) {
+        log.info("Relaying order {} from order API", kv("orderId", orderId));
+        try {
+            OrderNearCache.Entry entry = fetchOrder(orderId);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (entry.getEtag() != null) {
+                response.eTag(entry.getEtag());
+            }
+            if (entry.getContentType() != null) {
+                response.contentType(entry.getContentType());
+            }
+            return response.body(entry.getBody());
+        } catch (HttpStatusCodeException e) {
+            HttpHeaders headers = new HttpHeaders();
+            if (e.getResponseHeaders() != null && e.getResponseHeaders().getContentType() != null) {
+                headers.setContentType(e.getResponseHeaders().getContentType());
+            }
+            return ResponseEntity.status(e.getStatusCode()).headers(headers).body(e.getResponseBodyAsByteArray());
+        }
+    }
+
+    /**
+     * Forward a GET to order API and stream the upstream body straight to our caller.
+     * Status, content type and bytes are relayed as-is, so no Order objects or
+     * intermediate Strings are built; error responses pass through unchanged too.
+     */
+    private ResponseEntity<StreamingResponseBody> passThroughGet(String url) {
+        ClientHttpResponse upstream;
+        Observation observation;
+        try {
+            // RestTemplate's request factory applies its interceptors (deadline header); the body outlives
+            // RestTemplate.execute, so the client observation (span, traceparent) is started here the way
+            // RestTemplate does it and stopped once the body has been relayed
+            ClientHttpRequest request = restTemplate.getRequestFactory()
+                    .createRequest(URI.create(url), HttpMethod.GET);
+            request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+            ClientRequestObservationContext observationContext = new ClientRequestObservationContext(request);
+            observationContext.setUriTemplate(url);
+            observation = ClientHttpObservationDocumentation.HTTP_CLIENT_EXCHANGES.observation(
+                    restTemplate.getObservationConvention(), DEFAULT_OBSERVATION_CONVENTION,
+                    () -> observationContext, restTemplate.getObservationRegistry()).start();
+            // Not hedged: the losing response could not be closed before its body was streamed.
+            // execute() does not throw on an error status, so a relayed 5xx is reported to the circuit here
+            try (Observation.Scope scope = observation.openScope()) {
+                upstream = orderApiGuard.call(() -> {
+                    try {
+                        return request.execute();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, OrderApiService::isServerError);
+                observationContext.setResponse(upstream);
+            } catch (RuntimeException e) {
+                observation.error(e);
+                observation.stop();
+                throw e;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Error relaying request to order API: {}", url, e);
+            throw new RuntimeException("Failed to reach order API: " + e.getMessage(), e);
+        }
+
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            HttpHeaders upstreamHeaders = upstream.getHeaders();
+            if (upstreamHeaders.getContentType() != null) {
+                headers.setContentType(upstreamHeaders.getContentType());
+            }
+            if (upstreamHeaders.getContentLength() >= 0) {
+                headers.setContentLength(upstreamHeaders.getContentLength());
+            }
+
+            StreamingResponseBody body = outputStream -> {
+                try (upstream; InputStream inputStream = upstream.getBody()) {
+                    inputStream.transferTo(outputStream);
+                } catch (IOException e) {
+                    observation.error(e);
+                    throw e;
+                } finally {
+                    observation.stop();
+                }
+            };
+            return ResponseEntity.status(upstream.getStatusCode()).headers(headers).body(body);
+        } catch (IOException e) {
+            upstream.close();
+            observation.error(e);
+            observation.stop();
+            log.error("Error reading order API response: {}", url, e);
+            throw new RuntimeException("Failed to read order API response: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isServerError(ClientHttpResponse response) {
+        try {
+            return response.getStatusCode().is5xxServerError();
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Headers for calls whose response is bound to objects: JSON request body, Smile response when enabled
+     * (order API falls back to JSON, and always answers errors in JSON)
+     */
     private HttpHeaders createHeaders() {
+        HttpHeaders headers = jsonHeaders();
+        if (config.isSmile()) {
+            headers.setAccept(List.of(SmileConfig.APPLICATION_SMILE, JSON_FALLBACK));
+        }
+        return headers;
+    }
+
+    /**
+     * Headers for calls whose response bytes are relayed or cached as JSON text
+     */
+    private HttpHeaders jsonHeaders() {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setAccept(List.of(MediaType.APPLICATION_JSON));
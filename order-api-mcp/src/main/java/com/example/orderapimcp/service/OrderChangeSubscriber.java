@@ -0,0 +1,153 @@
+package com.example.orderapimcp.service;
+
+import com.example.orderapimcp.config.OrderApiConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Follows the order API change feed (Server-Sent Events) on a background thread and
+ * invalidates near-cache entries precisely. Reconnects resume from the last sequence
+ * seen, so no change is missed; a "reset" from order API drops the whole cache.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderChangeSubscriber {
+
+    private static final String CHANGE_EVENT = "order-change";
+    private static final String RESET_EVENT = "reset";
+
+    private final OrderApiConfig config;
+    private final RestTemplate changeFeedRestTemplate;
+    private final ObjectMapper objectMapper;
+    private final OrderNearCache nearCache;
+
+    private volatile boolean running;
+    private volatile long lastSequence = -1;
+    private Thread worker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isChangeFeedEnabled()) {
+            log.info("Order change feed disabled, near-cache entries are always revalidated");
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "order-change-feed");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                changeFeedRestTemplate.execute(
+                    config.getBaseUrl() + "/changes",
+                    HttpMethod.GET,
+                    request -> {
+                        request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+                        if (lastSequence >= 0) {
+                            request.getHeaders().set("Last-Event-ID", Long.toString(lastSequence));
+                        }
+                    },
+                    this::consume
+                );
+                log.info("Order change feed closed by order API");
+            } catch (Exception e) {
+                log.warn("Order change feed disconnected: {}", e.getMessage());
+            } finally {
+                nearCache.setFeedConnected(false);
+            }
+
+            try {
+                Thread.sleep(config.getChangeFeedReconnectDelayMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Read the event stream until it ends, dispatching each complete event
+     */
+    private Void consume(ClientHttpResponse response) throws IOException {
+        log.info("Order change feed connected (resuming after sequence {})", lastSequence);
+        nearCache.setFeedConnected(true);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+        String id = null;
+        String event = null;
+        StringBuilder data = new StringBuilder();
+        String line;
+        while (running && (line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                dispatch(id, event, data.toString());
+                id = null;
+                event = null;
+                data.setLength(0);
+            } else if (line.startsWith("id:")) {
+                id = fieldValue(line, 3);
+            } else if (line.startsWith("event:")) {
+                event = fieldValue(line, 6);
+            } else if (line.startsWith("data:")) {
+                if (!data.isEmpty()) {
+                    data.append('\n');
+                }
+                data.append(fieldValue(line, 5));
+            }
+            // Lines starting with ':' are heartbeats
+        }
+        return null;
+    }
+
+    private void dispatch(String id, String event, String data) throws IOException {
+        if (RESET_EVENT.equals(event)) {
+            log.warn("Order change feed could not resume after sequence {}, clearing near-cache", lastSequence);
+            nearCache.clear();
+        } else if (CHANGE_EVENT.equals(event)) {
+            JsonNode change = objectMapper.readTree(data);
+            long orderId = change.path("orderId").asLong();
+            nearCache.invalidate(orderId);
+            log.debug("Order {} changed ({}), near-cache entry invalidated", orderId, change.path("type").asText());
+        } else {
+            return;
+        }
+        if (id != null) {
+            lastSequence = Long.parseLong(id);
+        }
+    }
+
+    private static String fieldValue(String line, int prefixLength) {
+        String value = line.substring(prefixLength);
+        return value.startsWith(" ") ? value.substring(1) : value;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.orderapimcp.service;
+
+import com.example.orderapimcp.config.OrderApiConfig;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU cache of single-order responses keyed by order ID, together with their ETag.
+ * While the order change feed is connected, entries stored without a concurrent invalidation
+ * are trusted and served locally; every other entry is revalidated with If-None-Match.
+ */
+@Component
+public class OrderNearCache {
+
+    private final Map<Long, Slot> entries;
+
+    // Bumped on every invalidation, so a fetch racing with a change is never trusted
+    private long generation = 0;
+
+    // Bumped whenever the feed drops or resets, which revokes trust in all earlier entries
+    private long trustEpoch = 0;
+
+    private boolean feedConnected = false;
+
+    public OrderNearCache(OrderApiConfig config) {
+        int maxEntries = config.getNearCacheSize();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Slot> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cached entry for revalidation, trusted or not
+     */
+    public synchronized Entry get(Long orderId) {
+        Slot slot = entries.get(orderId);
+        return slot != null ? slot.entry : null;
+    }
+
+    /**
+     * Cached entry that can be served without contacting order API, or null
+     */
+    public synchronized Entry getTrusted(Long orderId) {
+        Slot slot = entries.get(orderId);
+        return slot != null && feedConnected && slot.trustEpoch == trustEpoch ? slot.entry : null;
+    }
+
+    /**
+     * Marker to take before fetching an order and hand back to {@link #put}
+     */
+    public synchronized long stamp() {
+        return generation;
+    }
+
+    /**
+     * Store a fetched entry; it is trusted only if nothing was invalidated since the stamp
+     */
+    public synchronized void put(Long orderId, Entry entry, long stamp) {
+        boolean trusted = feedConnected && stamp == generation;
+        entries.put(orderId, new Slot(entry, trusted ? trustEpoch : -1));
+    }
+
+    public synchronized void invalidate(Long orderId) {
+        generation++;
+        entries.remove(orderId);
+    }
+
+    /**
+     * Drop everything, e.g. when the feed could not resume without a gap
+     */
+    public synchronized void clear() {
+        generation++;
+        trustEpoch++;
+        entries.clear();
+    }
+
+    public synchronized void setFeedConnected(boolean connected) {
+        // Fetches that straddle a connect or disconnect may predate the feed position
+        generation++;
+        if (feedConnected && !connected) {
+            // Changes may be missed from now on; keep entries for revalidation only
+            trustEpoch++;
+        }
+        feedConnected = connected;
+    }
+
+    public synchronized boolean isFeedConnected() {
+        return feedConnected;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final String etag;
+        private final MediaType contentType;
+        private final byte[] body;
+    }
+
+    @AllArgsConstructor
+    private static class Slot {
+        private final Entry entry;
+        private final long trustEpoch;
+    }
+}
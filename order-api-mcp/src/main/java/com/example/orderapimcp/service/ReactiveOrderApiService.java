@@ -0,0 +1,289 @@
+package com.example.orderapimcp.service;
+
+import com.example.orderapimcp.config.OrderApiConfig;
+import com.example.orderapimcp.config.SmileConfig;
+import com.example.orderapimcp.model.BatchResponse;
+import com.example.orderapimcp.model.Order;
+import com.example.orderapimcp.model.OrderAddressUpdate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Non-blocking counterpart of OrderApiService for the reactive stack.
+ * Same calls, headers, near-cache and guard, but no thread waits for order API: each call returns a Mono
+ * that sends its request when subscribed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveOrderApiService {
+
+    private static final MediaType JSON_FALLBACK = new MediaType(MediaType.APPLICATION_JSON, Map.of("q", "0.9"));
+
+    private final OrderApiConfig config;
+    private final WebClient orderApiWebClient;
+    private final ObjectMapper objectMapper;
+    private final OrderNearCache nearCache;
+    private final OrderApiGuard orderApiGuard;
+
+    public Mono<Order> createOrder(Order order) {
+        log.info("Creating order with {}", kv("items", order.getItems() == null ? 0 : order.getItems().size()));
+        return orderApiGuard.call(orderApiWebClient.post()
+                        .uri(config.getBaseUrl())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(responseTypes())
+                        .bodyValue(order)
+                        .retrieve()
+                        .bodyToMono(Order.class))
+                .onErrorMap(e -> failure("Failed to create order", e));
+    }
+
+    public Mono<List<Order>> getAllOrders() {
+        log.info("Fetching all orders");
+        return orderApiGuard.read(orderApiWebClient.get()
+                        .uri(config.getBaseUrl())
+                        .accept(responseTypes())
+                        .retrieve()
+                        .bodyToMono(new ParameterizedTypeReference<List<Order>>() {}))
+                .onErrorMap(e -> failure("Failed to fetch orders", e));
+    }
+
+    /**
+     * All orders as the JSON bytes returned by order API, without binding them to POJOs
+     */
+    public Mono<byte[]> fetchAllOrders() {
+        log.info("Fetching all orders as bytes");
+        return orderApiGuard.read(orderApiWebClient.get()
+                        .uri(config.getBaseUrl())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .retrieve()
+                        .bodyToMono(byte[].class))
+                .onErrorMap(e -> failure("Failed to fetch orders", e));
+    }
+
+    public Mono<Order> getOrderById(Long orderId) {
+        log.info("Fetching order {}", kv("orderId", orderId));
+        return fetchOrder(orderId)
+                .flatMap(entry -> Mono.fromCallable(() -> objectMapper.readValue(entry.getBody(), Order.class)))
+                .onErrorMap(e -> failure("Failed to fetch order", e));
+    }
+
+    /**
+     * Fetch a single order response, served from the near-cache or revalidated with If-None-Match
+     * like OrderApiService.fetchOrder. Order API errors are passed on as WebClientResponseException.
+     */
+    public Mono<OrderNearCache.Entry> fetchOrder(Long orderId) {
+        return Mono.defer(() -> {
+            OrderNearCache.Entry trusted = nearCache.getTrusted(orderId);
+            if (trusted != null) {
+                log.debug("Order {} served from near-cache (etag={})", orderId, trusted.getEtag());
+                return Mono.just(trusted);
+            }
+
+            long stamp = nearCache.stamp();
+            OrderNearCache.Entry cached = nearCache.get(orderId);
+            Mono<OrderNearCache.Entry> request = orderApiWebClient.get()
+                    .uri(config.getBaseUrl() + "/" + orderId)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .headers(headers -> {
+                        if (cached != null) {
+                            headers.setIfNoneMatch(cached.getEtag());
+                        }
+                    })
+                    .exchangeToMono(response -> {
+                        if (cached != null && response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                            return response.releaseBody().thenReturn(cached);
+                        }
+                        if (response.statusCode().isError()) {
+                            return response.createException().flatMap(Mono::error);
+                        }
+                        HttpHeaders headers = response.headers().asHttpHeaders();
+                        return response.bodyToMono(byte[].class)
+                                .defaultIfEmpty(new byte[0])
+                                .map(body -> new OrderNearCache.Entry(headers.getETag(), headers.getContentType(), body));
+                    });
+
+            return orderApiGuard.read(request)
+                    .doOnNext(entry -> {
+                        if (entry == cached) {
+                            log.debug("Order {} not modified, reusing cached response (etag={})", orderId, cached.getEtag());
+                            nearCache.put(orderId, cached, stamp);
+                        } else if (entry.getEtag() != null) {
+                            nearCache.put(orderId, entry, stamp);
+                        }
+                    });
+        });
+    }
+
+    public Mono<Order> updateOrder(Long orderId, Order order) {
+        log.info("Updating order {}", kv("orderId", orderId));
+        nearCache.invalidate(orderId);
+        return orderApiGuard.call(orderApiWebClient.put()
+                        .uri(config.getBaseUrl() + "/" + orderId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(responseTypes())
+                        .bodyValue(order)
+                        .retrieve()
+                        .bodyToMono(Order.class))
+                .onErrorMap(e -> failure("Failed to update order", e));
+    }
+
+    public Mono<Void> cancelOrder(Long orderId) {
+        log.info("Cancelling order {}", kv("orderId", orderId));
+        nearCache.invalidate(orderId);
+        return orderApiGuard.call(orderApiWebClient.delete()
+                        .uri(config.getBaseUrl() + "/" + orderId)
+                        .accept(responseTypes())
+                        .retrieve()
+                        .toBodilessEntity())
+                .then()
+                .onErrorMap(e -> failure("Failed to cancel order", e));
+    }
+
+    public Mono<Order> updateOrderAddress(Long orderId, String address) {
+        log.info("Updating address of order {}", kv("orderId", orderId));
+        nearCache.invalidate(orderId);
+        String url = UriComponentsBuilder.fromHttpUrl(config.getBaseUrl())
+                .path("/{id}/address")
+                .queryParam("address", address)
+                .buildAndExpand(orderId)
+                .toUriString();
+
+        log.debug("Built URL: {}", url);
+
+        return orderApiGuard.call(orderApiWebClient.patch()
+                        .uri(url)
+                        .accept(responseTypes())
+                        .retrieve()
+                        .bodyToMono(Order.class))
+                .onErrorMap(e -> failure("Failed to update order address", e));
+    }
+
+    public Mono<BatchResponse> batchGetOrders(List<Long> orderIds) {
+        log.info("Fetching orders in batch: {}", kv("orders", orderIds.size()));
+        // Read-only despite the POST, so it may be hedged
+        return orderApiGuard.read(postBatch("/batch-get", Map.of("ids", orderIds)))
+                .onErrorMap(e -> failure("Failed to fetch orders", e));
+    }
+
+    public Mono<BatchResponse> batchCancelOrders(List<Long> orderIds) {
+        log.info("Cancelling orders in batch: {}", kv("orders", orderIds.size()));
+        orderIds.forEach(nearCache::invalidate);
+        return orderApiGuard.call(postBatch("/batch-cancel", Map.of("ids", orderIds)))
+                .onErrorMap(e -> failure("Failed to cancel orders", e));
+    }
+
+    public Mono<BatchResponse> batchUpdateOrderAddress(List<OrderAddressUpdate> updates) {
+        log.info("Updating address of orders in batch: {}", kv("orders", updates.size()));
+        updates.forEach(update -> nearCache.invalidate(update.getOrderId()));
+        List<Map<String, Object>> body = updates.stream()
+                .map(update -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("id", update.getOrderId());
+                    item.put("address", update.getAddress());
+                    return item;
+                })
+                .toList();
+        return orderApiGuard.call(postBatch("/batch-address", Map.of("updates", body)))
+                .onErrorMap(e -> failure("Failed to update order addresses", e));
+    }
+
+    private Mono<BatchResponse> postBatch(String path, Object body) {
+        return orderApiWebClient.post()
+                .uri(config.getBaseUrl() + path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(responseTypes())
+                .bodyValue(body)
+                .retrieve()
+                .bodyToMono(BatchResponse.class);
+    }
+
+    /**
+     * Relay all orders: status, content type and body buffers of order API are streamed to our caller
+     * as they arrive, error responses included
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> getAllOrdersRaw() {
+        log.info("Relaying all orders from order API");
+        // Not hedged, like the blocking relay; relayed 5xx responses still count against the circuit
+        return orderApiGuard.call(orderApiWebClient.get()
+                        .uri(config.getBaseUrl())
+                        .accept(MediaType.APPLICATION_JSON)
+                        .retrieve()
+                        .onStatus(HttpStatusCode::isError, response -> Mono.empty())
+                        .toEntityFlux(DataBuffer.class), upstream -> upstream.getStatusCode().is5xxServerError())
+                .map(upstream -> {
+                    HttpHeaders headers = new HttpHeaders();
+                    if (upstream.getHeaders().getContentType() != null) {
+                        headers.setContentType(upstream.getHeaders().getContentType());
+                    }
+                    if (upstream.getHeaders().getContentLength() >= 0) {
+                        headers.setContentLength(upstream.getHeaders().getContentLength());
+                    }
+                    return ResponseEntity.status(upstream.getStatusCode()).headers(headers).body(upstream.getBody());
+                })
+                .onErrorMap(WebClientRequestException.class, e -> {
+                    log.error("Error relaying request to order API: {}", config.getBaseUrl(), e);
+                    return new RuntimeException("Failed to reach order API: " + e.getMessage(), e);
+                });
+    }
+
+    /**
+     * Relay a single order as bytes with its ETag; order API errors are relayed with their original status and body
+     */
+    public Mono<ResponseEntity<byte[]>> getOrderByIdRaw(Long orderId) {
+        log.info("Relaying order {} from order API", kv("orderId", orderId));
+        return fetchOrder(orderId)
+                .map(entry -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (entry.getEtag() != null) {
+                        response.eTag(entry.getEtag());
+                    }
+                    if (entry.getContentType() != null) {
+                        response.contentType(entry.getContentType());
+                    }
+                    return response.body(entry.getBody());
+                })
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    HttpHeaders headers = new HttpHeaders();
+                    if (e.getHeaders().getContentType() != null) {
+                        headers.setContentType(e.getHeaders().getContentType());
+                    }
+                    return Mono.just(ResponseEntity.status(e.getStatusCode()).headers(headers).body(e.getResponseBodyAsByteArray()));
+                });
+    }
+
+    /**
+     * Accepted types for calls whose response is bound to objects, see OrderApiService.createHeaders
+     */
+    private MediaType[] responseTypes() {
+        return config.isSmile()
+                ? new MediaType[]{SmileConfig.APPLICATION_SMILE, JSON_FALLBACK}
+                : new MediaType[]{MediaType.APPLICATION_JSON};
+    }
+
+    private static RuntimeException failure(String message, Throwable e) {
+        log.error(message, e);
+        return new RuntimeException(message + ": " + e.getMessage(), e);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.orderapimcp.service;
+
+import com.example.orderapimcp.exception.DeadlineExceededException;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Deadline of the MCP request being handled on the current thread, taken from the X-Request-Timeout-Ms header.
+ * Order API calls never wait longer than the time left and pass the remainder on in the same header.
+ * Work handed to another thread must be wrapped, otherwise the deadline does not travel with it.
+ * On the reactive stack a request is not bound to a thread; the deadline travels in the Reactor context instead.
+ */
+public final class RequestDeadline {
+
+    /**
+     * Milliseconds the caller has left; relative so clock skew between hosts does not matter
+     */
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+    private static final String CONTEXT_KEY = RequestDeadline.class.getName();
+
+    private RequestDeadline() {
+    }
+
+    public static void start(long timeoutMillis) {
+        DEADLINE.set(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    public static boolean isSet() {
+        return DEADLINE.get() != null;
+    }
+
+    /**
+     * Time left, Long.MAX_VALUE without a deadline, zero or negative once it has passed
+     */
+    public static long remainingMillis() {
+        Long deadline = DEADLINE.get();
+        return deadline == null ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    /**
+     * Throw DeadlineExceededException if the caller has already given up
+     *
+     * @param work What is being skipped, for the error message
+     */
+    public static void check(String work) {
+        if (remainingMillis() <= 0) {
+            throw new DeadlineExceededException(work + " skipped, request deadline exceeded");
+        }
+    }
+
+    /**
+     * Run the task under the calling thread's deadline
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        Long deadline = DEADLINE.get();
+        return () -> {
+            Long previous = DEADLINE.get();
+            set(deadline);
+            try {
+                return task.call();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    public static <T> Supplier<T> wrapSupplier(Supplier<T> task) {
+        Long deadline = DEADLINE.get();
+        return () -> {
+            Long previous = DEADLINE.get();
+            set(deadline);
+            try {
+                return task.get();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    /**
+     * Reactor context carrying the deadline of a reactive request
+     */
+    public static Context start(Context context, long timeoutMillis) {
+        return context.put(CONTEXT_KEY, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    public static boolean isSet(ContextView context) {
+        return context.hasKey(CONTEXT_KEY);
+    }
+
+    /**
+     * Time left of a reactive request, Long.MAX_VALUE without a deadline
+     */
+    public static long remainingMillis(ContextView context) {
+        Long deadline = context.getOrDefault(CONTEXT_KEY, null);
+        return deadline == null ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    public static void check(ContextView context, String work) {
+        if (remainingMillis(context) <= 0) {
+            throw new DeadlineExceededException(work + " skipped, request deadline exceeded");
+        }
+    }
+
+    private static void set(Long deadline) {
+        if (deadline == null) {
+            DEADLINE.remove();
+        } else {
+            DEADLINE.set(deadline);
+        }
+    }
+}
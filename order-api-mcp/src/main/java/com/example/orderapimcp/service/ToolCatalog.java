@@ -0,0 +1,186 @@
+package com.example.orderapimcp.service;
+
+import com.example.orderapimcp.config.McpToolsConfig;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * MCP tool catalog loaded from a declarative descriptor.
+ * The catalog is compiled into pre-serialized (and pre-gzipped) bytes with a content-hash
+ * version, so serving /mcp/tools costs no serialization at all. The descriptor is re-read
+ * periodically; a new version is published as a {@link ToolCatalogChangedEvent}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ToolCatalog {
+
+    private static final int VERSION_LENGTH = 16;
+
+    private final McpToolsConfig config;
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Swapped as a whole so readers never see fields of two different versions
+    private volatile Compiled compiled;
+
+    @PostConstruct
+    public void init() throws IOException {
+        this.compiled = compile();
+    }
+
+    /**
+     * Re-read the descriptor and swap in the new catalog if its content changed
+     */
+    @Scheduled(initialDelayString = "${mcp.tools.reload-interval-ms:60000}",
+            fixedDelayString = "${mcp.tools.reload-interval-ms:60000}")
+    public void reload() {
+        try {
+            Compiled current = compiled;
+            Compiled reloaded = compile();
+            if (!reloaded.version.equals(current.version)) {
+                compiled = reloaded;
+                eventPublisher.publishEvent(new ToolCatalogChangedEvent(current.version, reloaded.version));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Tool catalog reload failed, keeping version {}: {}", compiled.version, e.getMessage());
+        }
+    }
+
+    private Compiled compile() throws IOException {
+        Resource descriptor = resourceLoader.getResource(config.getDescriptor());
+        Map<String, List<Map<String, Object>>> parsed;
+        try (InputStream inputStream = descriptor.getInputStream()) {
+            parsed = objectMapper.readValue(inputStream, new TypeReference<>() {});
+        }
+
+        List<Map<String, Object>> loadedTools = parsed.getOrDefault("tools", List.of());
+        byte[] toolBytes = objectMapper.writeValueAsBytes(loadedTools);
+        String version = contentHash(toolBytes);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("version", version);
+        response.put("tools", loadedTools);
+        byte[] json = objectMapper.writeValueAsBytes(response);
+        byte[] gzippedJson = gzip(json);
+
+        // JSON-RPC tools/list result: only the fields defined by MCP, no REST routing details
+        List<Map<String, Object>> mcpTools = loadedTools.stream()
+                .map(tool -> {
+                    Map<String, Object> mcpTool = new LinkedHashMap<>();
+                    mcpTool.put("name", tool.get("name"));
+                    mcpTool.put("description", tool.get("description"));
+                    mcpTool.put("inputSchema", tool.get("inputSchema"));
+                    if (tool.containsKey("annotations")) {
+                        // Behaviour hints (readOnlyHint, destructiveHint, idempotentHint)
+                        mcpTool.put("annotations", tool.get("annotations"));
+                    }
+                    if (tool.containsKey("_meta")) {
+                        // Client-side hints such as selection keywords
+                        mcpTool.put("_meta", tool.get("_meta"));
+                    }
+                    return Collections.unmodifiableMap(mcpTool);
+                })
+                .toList();
+
+        log.info("Compiled MCP tool catalog from {}: {} tools, version {}, {} bytes ({} gzipped)",
+                config.getDescriptor(), loadedTools.size(), version, json.length, gzippedJson.length);
+        return new Compiled(Collections.unmodifiableList(loadedTools), mcpTools, version,
+                "\"" + version + "\"", json, gzippedJson);
+    }
+
+    public List<Map<String, Object>> getTools() {
+        return compiled.tools;
+    }
+
+    /**
+     * Tools as listed by the JSON-RPC tools/list method
+     */
+    public List<Map<String, Object>> getMcpTools() {
+        return compiled.mcpTools;
+    }
+
+    public String getVersion() {
+        return compiled.version;
+    }
+
+    public String getEtag() {
+        return compiled.etag;
+    }
+
+    public byte[] getJson() {
+        return compiled.json;
+    }
+
+    public byte[] getGzippedJson() {
+        return compiled.gzippedJson;
+    }
+
+    /**
+     * Check an If-None-Match header against the current catalog ETag
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(compiled.etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String contentHash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest).substring(0, VERSION_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Compiled {
+        private final List<Map<String, Object>> tools;
+        private final List<Map<String, Object>> mcpTools;
+        private final String version;
+        private final String etag;
+        private final byte[] json;
+        private final byte[] gzippedJson;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(content);
+        }
+        return buffer.toByteArray();
+    }
+}
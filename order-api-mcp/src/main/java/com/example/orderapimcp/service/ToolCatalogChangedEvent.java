@@ -0,0 +1,14 @@
+package com.example.orderapimcp.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when the tool catalog was recompiled into a different version
+ */
+@Getter
+@AllArgsConstructor
+public class ToolCatalogChangedEvent {
+    private final String previousVersion;
+    private final String version;
+}
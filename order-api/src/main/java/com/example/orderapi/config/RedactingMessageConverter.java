@@ -0,0 +1,62 @@
+package com.example.orderapi.config;
+
+import ch.qos.logback.classic.pattern.MessageConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Log message converter that masks personal data and caps the message length.
+ * Registered for %m, %msg and %message in logback-spring.xml, so it applies to every appender and format.
+ * Customer names, e-mail and delivery addresses and phone numbers are replaced with ***; messages longer than
+ * LOG_MAX_MESSAGE_LENGTH characters are cut.
+ */
+public class RedactingMessageConverter extends MessageConverter {
+
+    private static final String MASK = "***";
+
+    // name=value (toString, key-value arguments) and "name":"value" (JSON) forms
+    private static final Pattern PERSONAL_FIELD = Pattern.compile(
+            "(\"?(?:customerName|customerEmail|address)\"?\\s*[=:]\\s*)(\"(?:[^\"\\\\]|\\\\.)*\"|[^,)}\\]]+)");
+    private static final Pattern EMAIL = Pattern.compile("[\\w.+-]+@[\\w-]+(?:\\.[\\w-]+)+");
+    private static final Pattern PHONE = Pattern.compile("(?<!\\d)(?:\\+?90[ -]?)?0?5\\d{2}[ -]?\\d{3}[ -]?\\d{2}[ -]?\\d{2}(?!\\d)");
+
+    private int maxLength = 2000;
+
+    @Override
+    public void start() {
+        String configured = getContext() != null ? getContext().getProperty("LOG_MAX_MESSAGE_LENGTH") : null;
+        if (configured != null && !configured.isBlank()) {
+            maxLength = Integer.parseInt(configured.trim());
+        }
+        super.start();
+    }
+
+    @Override
+    public String convert(ILoggingEvent event) {
+        return cap(redact(event.getFormattedMessage()), maxLength);
+    }
+
+    static String redact(String message) {
+        if (message == null || message.isEmpty()) {
+            return message;
+        }
+        String redacted = message;
+        if (redacted.contains("customer") || redacted.contains("address")) {
+            redacted = PERSONAL_FIELD.matcher(redacted).replaceAll(match -> Matcher.quoteReplacement(match.group(1)
+                    + (match.group(2).startsWith("\"") ? "\"" + MASK + "\"" : MASK)));
+        }
+        if (redacted.indexOf('@') >= 0) {
+            redacted = EMAIL.matcher(redacted).replaceAll(MASK);
+        }
+        return PHONE.matcher(redacted).replaceAll(MASK);
+    }
+
+    static String cap(String message, int maxLength) {
+        if (message == null || maxLength <= 0 || message.length() <= maxLength) {
+            return message;
+        }
+        return message.substring(0, maxLength) + "... [" + (message.length() - maxLength) + " chars truncated]";
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.orderapi.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps INFO and lower events of the configured loggers for a share of requests only.
+ * The decision is derived from the trace ID, so a sampled request is logged completely, and the same
+ * requests are kept by chat-api, order-api-mcp and order API. WARN and ERROR events, and events logged
+ * outside a request (startup, scheduled work), always pass. Runs before the message is formatted.
+ */
+public class SampledLogFilter extends TurboFilter {
+
+    private List<String> loggers = List.of();
+    private double rate = 1.0;
+    private long threshold;
+
+    /**
+     * Comma-separated logger name prefixes the sampling applies to
+     */
+    public void setLoggers(String loggers) {
+        this.loggers = Arrays.stream(loggers.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Share of requests whose events are kept, between 0 and 1
+     */
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public void start() {
+        // The low 32 bits of a W3C trace ID are random; keep the requests whose value falls below this threshold
+        threshold = (long) (Math.max(0, Math.min(1, rate)) * (1L << 32));
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (rate >= 1.0 || level == null || level.isGreaterOrEqual(Level.WARN) || !applies(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        String traceId = MDC.get("traceId");
+        if (traceId == null || traceId.length() < 8) {
+            return FilterReply.NEUTRAL;
+        }
+        try {
+            long bucket = Long.parseLong(traceId, traceId.length() - 8, traceId.length(), 16);
+            return bucket < threshold ? FilterReply.NEUTRAL : FilterReply.DENY;
+        } catch (NumberFormatException e) {
+            return FilterReply.NEUTRAL;
+        }
+    }
+
+    private boolean applies(String loggerName) {
+        for (String prefix : loggers) {
+            if (loggerName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,6 +1,12 @@
 package com.example.orderapi.controller;
 
+import com.example.orderapi.dto.BatchAddressUpdateRequest;
+import com.example.orderapi.dto.BatchOrderRequest;
+import com.example.orderapi.dto.BatchResponse;
+import com.example.orderapi.dto.ImportResult;
 import com.example.orderapi.model.Order;
+import com.example.orderapi.service.OrderChangeFeed;
+import com.example.orderapi.service.OrderNdjsonService;
 import com.example.orderapi.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -9,15 +15,22 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
 @Slf4j
 @RestController
 @RequestMapping("/api/orders")
@@ -26,6 +39,8 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderNdjsonService orderNdjsonService;
+    private final OrderChangeFeed orderChangeFeed;
 
     @Operation(
             summary = "Create a new order",
@@ -45,9 +60,9 @@ public class OrderController {
     })
     @PostMapping
     public ResponseEntity<Order> createOrder(@Valid @RequestBody Order order) {
-        log.info("POST /api/orders - Request: {}", order);
+        log.debug("POST /api/orders - Request: {}", kv("items", itemCount(order)));
         Order createdOrder = orderService.createOrder(order);
-        log.info("POST /api/orders - Response: {}", createdOrder);
+        log.info("POST /api/orders - Response: {}, {}", kv("orderId", createdOrder.getId()), kv("items", itemCount(createdOrder)));
         return new ResponseEntity<>(createdOrder, HttpStatus.CREATED);
     }
 
@@ -64,15 +79,79 @@ public class OrderController {
     })
     @GetMapping
     public ResponseEntity<List<Order>> getAllOrders() {
-        log.info("GET /api/orders - Retrieving all orders");
+        log.debug("GET /api/orders - Retrieving all orders");
         List<Order> orders = orderService.getAllOrders();
-        log.info("GET /api/orders - Response: {} orders found", orders.size());
+        log.info("GET /api/orders - Response: {}", kv("orders", orders.size()));
         return ResponseEntity.ok(orders);
     }
 
+    @Operation(
+            summary = "Export all orders as NDJSON",
+            description = "Streams every order as newline-delimited JSON. Memory usage is constant regardless of the number of orders."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Orders streamed successfully",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE)
+            )
+    })
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportOrders() {
+        log.info("GET /api/orders/export - Streaming orders as NDJSON");
+        StreamingResponseBody body = orderNdjsonService::exportOrders;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Bulk import orders from NDJSON",
+            description = "Reads newline-delimited JSON orders from the request body and inserts them in batches. Invalid lines are rejected individually."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Import completed, see counts and per-line errors",
+                    content = @Content(schema = @Schema(implementation = ImportResult.class))
+            )
+    })
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ImportResult> importOrders(HttpServletRequest request) throws IOException {
+        log.info("POST /api/orders/import - Streaming NDJSON import started");
+        ImportResult result = orderNdjsonService.importOrders(request.getInputStream());
+        log.info("POST /api/orders/import - Response: imported={}, rejected={}, elapsedMillis={}",
+                result.getImported(), result.getRejected(), result.getElapsedMillis());
+        return ResponseEntity.ok(result);
+    }
+
+    @Operation(
+            summary = "Subscribe to order changes",
+            description = "Server-Sent Events stream of order changes in sequence order. Each event id is its sequence number; "
+                    + "reconnect with Last-Event-ID (or ?since=) to resume. If the requested sequence is no longer retained, "
+                    + "a 'reset' event is sent first and the client must drop everything it cached."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Change stream opened",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+            )
+    })
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToChanges(
+            @Parameter(description = "Sequence of the last event received")
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+            @Parameter(description = "Resume after this sequence (alternative to Last-Event-ID)")
+            @RequestParam(required = false) Long since) {
+        Long resumeFrom = lastEventId != null ? lastEventId : since;
+        log.info("GET /api/orders/changes - Subscribe (resumeFrom={})", resumeFrom);
+        return orderChangeFeed.subscribe(resumeFrom);
+    }
+
     @Operation(
             summary = "Get order by ID",
-            description = "Retrieves a specific order by its unique identifier."
+            description = "Retrieves a specific order by its unique identifier. The response carries a strong ETag; send it back in If-None-Match to get 304 while the order is unchanged."
     )
     @ApiResponses(value = {
             @ApiResponse(
@@ -80,6 +159,11 @@ public class OrderController {
                     description = "Order found",
                     content = @Content(schema = @Schema(implementation = Order.class))
             ),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Order unchanged since the version in If-None-Match",
+                    content = @Content
+            ),
             @ApiResponse(
                     responseCode = "404",
                     description = "Order not found",
@@ -90,10 +174,13 @@ public class OrderController {
     public ResponseEntity<Order> getOrderById(
             @Parameter(description = "ID of the order to retrieve", required = true)
             @PathVariable Long id) {
-        log.info("GET /api/orders/{} - Request", id);
+        log.debug("GET /api/orders/{id} - Request: {}", kv("orderId", id));
         Order order = orderService.getOrderById(id);
-        log.info("GET /api/orders/{} - Response: {}", id, order);
-        return ResponseEntity.ok(order);
+        log.info("GET /api/orders/{id} - Response: {}, {}", kv("orderId", id), kv("status", order.getStatus()));
+        // Matching If-None-Match is answered with 304 by Spring before the body is serialized
+        return ResponseEntity.ok()
+                .eTag(orderService.versionTag(order))
+                .body(order);
     }
 
     @Operation(
@@ -122,10 +209,12 @@ public class OrderController {
             @Parameter(description = "ID of the order to update", required = true)
             @PathVariable Long id,
             @Valid @RequestBody Order order) {
-        log.info("PUT /api/orders/{} - Request: {}", id, order);
+        log.debug("PUT /api/orders/{id} - Request: {}, {}", kv("orderId", id), kv("items", itemCount(order)));
         Order updatedOrder = orderService.updateOrder(id, order);
-        log.info("PUT /api/orders/{} - Response: {}", id, updatedOrder);
-        return ResponseEntity.ok(updatedOrder);
+        log.info("PUT /api/orders/{id} - Response: {}, {}", kv("orderId", id), kv("status", updatedOrder.getStatus()));
+        return ResponseEntity.ok()
+                .eTag(orderService.versionTag(updatedOrder))
+                .body(updatedOrder);
     }
 
     @Operation(
@@ -147,9 +236,9 @@ public class OrderController {
     public ResponseEntity<Void> cancelOrder(
             @Parameter(description = "ID of the order to cancel", required = true)
             @PathVariable Long id) {
-        log.info("DELETE /api/orders/{} - Cancel request", id);
+        log.debug("DELETE /api/orders/{id} - Cancel request: {}", kv("orderId", id));
         orderService.cancelOrder(id);
-        log.info("DELETE /api/orders/{} - Successfully cancelled", id);
+        log.info("DELETE /api/orders/{id} - Successfully cancelled: {}", kv("orderId", id));
         return ResponseEntity.noContent().build();
     }
 
@@ -175,9 +264,88 @@ public class OrderController {
             @PathVariable Long id,
             @Parameter(description = "New delivery address (e.g., 'ev', 'iş')", required = true)
             @RequestParam String address) {
-        log.info("PATCH /api/orders/{}/address - Request: address={}", id, address);
+        // The address itself is personal data and is not logged
+        log.debug("PATCH /api/orders/{id}/address - Request: {}", kv("orderId", id));
         Order updatedOrder = orderService.updateAddress(id, address);
-        log.info("PATCH /api/orders/{}/address - Response: {}", id, updatedOrder);
-        return ResponseEntity.ok(updatedOrder);
+        log.info("PATCH /api/orders/{id}/address - Response: {}, {}", kv("orderId", id), kv("status", updatedOrder.getStatus()));
+        return ResponseEntity.ok()
+                .eTag(orderService.versionTag(updatedOrder))
+                .body(updatedOrder);
+    }
+
+    @Operation(
+            summary = "Get multiple orders",
+            description = "Retrieves several orders in one call. Each ID gets its own result, so missing orders do not fail the batch."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Per-order results",
+                    content = @Content(schema = @Schema(implementation = BatchResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid input data",
+                    content = @Content
+            )
+    })
+    @PostMapping("/batch-get")
+    public ResponseEntity<BatchResponse> batchGetOrders(@Valid @RequestBody BatchOrderRequest request) {
+        log.debug("POST /api/orders/batch-get - Request: {}", kv("ids", request.getIds().size()));
+        BatchResponse response = orderService.batchGetOrders(request.getIds());
+        log.info("POST /api/orders/batch-get - Response: {}, {}", kv("succeeded", response.getSucceeded()), kv("failed", response.getFailed()));
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Cancel multiple orders",
+            description = "Cancels several orders in one call. Each ID gets its own result, so missing orders do not fail the batch."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Per-order results",
+                    content = @Content(schema = @Schema(implementation = BatchResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid input data",
+                    content = @Content
+            )
+    })
+    @PostMapping("/batch-cancel")
+    public ResponseEntity<BatchResponse> batchCancelOrders(@Valid @RequestBody BatchOrderRequest request) {
+        log.debug("POST /api/orders/batch-cancel - Request: {}", kv("ids", request.getIds().size()));
+        BatchResponse response = orderService.batchCancelOrders(request.getIds());
+        log.info("POST /api/orders/batch-cancel - Response: {}, {}", kv("succeeded", response.getSucceeded()), kv("failed", response.getFailed()));
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Update the address of multiple orders",
+            description = "Updates the delivery address of several orders in one call. Each update gets its own result."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Per-order results",
+                    content = @Content(schema = @Schema(implementation = BatchResponse.class))
+            ),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid input data",
+                    content = @Content
+            )
+    })
+    @PostMapping("/batch-address")
+    public ResponseEntity<BatchResponse> batchUpdateAddress(@Valid @RequestBody BatchAddressUpdateRequest request) {
+        log.debug("POST /api/orders/batch-address - Request: {}", kv("updates", request.getUpdates().size()));
+        BatchResponse response = orderService.batchUpdateAddress(request.getUpdates());
+        log.info("POST /api/orders/batch-address - Response: {}, {}", kv("succeeded", response.getSucceeded()), kv("failed", response.getFailed()));
+        return ResponseEntity.ok(response);
+    }
+
+    private static int itemCount(Order order) {
+        return order.getItems() == null ? 0 : order.getItems().size();
     }
 }
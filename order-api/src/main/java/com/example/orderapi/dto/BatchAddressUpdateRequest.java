@@ -0,0 +1,44 @@
+package com.example.orderapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Address updates for a batch operation")
+public class BatchAddressUpdateRequest {
+
+    @Schema(description = "Address update per order", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotEmpty(message = "At least one address update is required")
+    @Size(max = 100, message = "At most 100 orders can be processed per batch")
+    @Valid
+    private List<AddressUpdate> updates;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "New delivery address for a single order")
+    public static class AddressUpdate {
+
+        @Schema(description = "ID of the order to update", example = "4", requiredMode = Schema.RequiredMode.REQUIRED)
+        @NotNull(message = "Order ID is required")
+        private Long id;
+
+        @Schema(description = "New delivery address (e.g., 'ev', 'iş')", example = "iş", requiredMode = Schema.RequiredMode.REQUIRED)
+        @NotBlank(message = "Address is required")
+        private String address;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.orderapi.dto;
+
+import com.example.orderapi.model.Order;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Outcome of a batch operation for a single order")
+public class BatchItemResult {
+
+    @Schema(description = "ID of the order", example = "4")
+    private Long id;
+
+    @Schema(description = "HTTP-style status of this item", example = "200")
+    private int status;
+
+    @Schema(description = "Resulting order, when the operation returns one")
+    private Order order;
+
+    @Schema(description = "Error message when the item failed", example = "Order with ID 0 not found")
+    private String error;
+}
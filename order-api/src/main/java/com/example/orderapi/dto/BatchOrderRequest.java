@@ -0,0 +1,25 @@
+package com.example.orderapi.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "List of order IDs for a batch operation")
+public class BatchOrderRequest {
+
+    @Schema(description = "Order IDs to process", example = "[4, 7, 12]", requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotEmpty(message = "At least one order ID is required")
+    @Size(max = 100, message = "At most 100 orders can be processed per batch")
+    private List<@NotNull(message = "Order ID must not be null") Long> ids;
+}
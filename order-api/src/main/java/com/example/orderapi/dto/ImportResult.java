@@ -0,0 +1,24 @@
+package com.example.orderapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportResult {
+
+    private long received;
+    private long imported;
+    private long rejected;
+    private long bytesRead;
+    private long elapsedMillis;
+    private double ordersPerSecond;
+    private double megabytesPerSecond;
+    private List<String> errors;
+}
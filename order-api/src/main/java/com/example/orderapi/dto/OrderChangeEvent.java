@@ -0,0 +1,28 @@
+package com.example.orderapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderChangeEvent {
+
+    private long sequence;
+    private Long orderId;
+    private Type type;
+    private Long version;
+    private LocalDateTime timestamp;
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        CANCELLED,
+        IMPORTED
+    }
+}
@@ -3,6 +3,7 @@ package com.example.orderapi.exception;
 import com.example.orderapi.dto.ErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -32,7 +33,7 @@ public class GlobalExceptionHandler {
                 .path(request.getRequestURI())
                 .build();
 
-        return new ResponseEntity<>(errorResponse, HttpStatus.NOT_FOUND);
+        return error(HttpStatus.NOT_FOUND, errorResponse);
     }
 
     /**
@@ -57,7 +58,7 @@ public class GlobalExceptionHandler {
                 .details(details)
                 .build();
 
-        return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+        return error(HttpStatus.BAD_REQUEST, errorResponse);
     }
 
     /**
@@ -76,6 +77,13 @@ public class GlobalExceptionHandler {
                 .path(request.getRequestURI())
                 .build();
 
-        return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, errorResponse);
+    }
+
+    /**
+     * Errors are always JSON, also for callers that prefer Smile, so their message stays readable in logs
+     */
+    private static ResponseEntity<ErrorResponse> error(HttpStatus status, ErrorResponse errorResponse) {
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
     }
 }
@@ -1,5 +1,6 @@
 package com.example.orderapi.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
@@ -16,7 +17,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @Schema(description = "Order entity representing a customer order")
@@ -52,4 +53,9 @@ public class Order {
 
     @Schema(description = "Timestamp when the order was created", example = "2025-01-15T10:30:00", accessMode = Schema.AccessMode.READ_ONLY)
     private LocalDateTime orderDate;
+
+    // Incremented on every change; exposed only through the ETag header
+    @JsonIgnore
+    @Schema(hidden = true)
+    private Long version;
 }
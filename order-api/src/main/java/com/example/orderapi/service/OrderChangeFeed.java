@@ -0,0 +1,163 @@
+package com.example.orderapi.service;
+
+import com.example.orderapi.dto.OrderChangeEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Ordered stream of order changes, published from OrderService mutations.
+ * Every event gets a monotonically increasing sequence number; the most recent events are
+ * retained so subscribers can resume after a reconnect (Last-Event-ID). A subscriber that
+ * asks for a sequence outside the retained window receives a "reset" event first.
+ * All deliveries go through a single dispatcher thread, so subscribers see events in order.
+ */
+@Slf4j
+@Service
+public class OrderChangeFeed {
+
+    static final String CHANGE_EVENT = "order-change";
+    static final String RESET_EVENT = "reset";
+
+    private final ObjectWriter eventWriter;
+    private final ArrayDeque<OrderChangeEvent> retained = new ArrayDeque<>();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-change-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long sequence = 0;
+
+    @Value("${order.changes.retention:10000}")
+    private int retention;
+
+    @Value("${order.changes.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMillis;
+
+    public OrderChangeFeed(ObjectMapper objectMapper) {
+        // SSE data must be a single line
+        this.eventWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * Record a change and fan it out to all subscribers
+     */
+    public void publish(Long orderId, OrderChangeEvent.Type type, Long version) {
+        synchronized (retained) {
+            OrderChangeEvent event = OrderChangeEvent.builder()
+                    .sequence(++sequence)
+                    .orderId(orderId)
+                    .type(type)
+                    .version(version)
+                    .timestamp(LocalDateTime.now())
+                    .build();
+            retained.addLast(event);
+            while (retained.size() > retention) {
+                retained.removeFirst();
+            }
+            // Submitted under the lock so dispatch order equals sequence order
+            dispatcher.execute(() -> subscribers.forEach(emitter -> send(emitter, event)));
+        }
+    }
+
+    /**
+     * Open a subscription, replaying retained events after the given sequence
+     */
+    public SseEmitter subscribe(Long lastSequence) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(error -> subscribers.remove(emitter));
+
+        synchronized (retained) {
+            long since = lastSequence != null ? lastSequence : sequence;
+            long oldestRetained = retained.isEmpty() ? sequence + 1 : retained.peekFirst().getSequence();
+            // Also reset subscribers that are ahead of us, e.g. after order API restarted
+            boolean gap = since < oldestRetained - 1 || since > sequence;
+            List<OrderChangeEvent> replay = new ArrayList<>();
+            for (OrderChangeEvent event : retained) {
+                if (event.getSequence() > since) {
+                    replay.add(event);
+                }
+            }
+            long current = sequence;
+
+            // Replay and registration run on the dispatcher before any later publish
+            dispatcher.execute(() -> {
+                try {
+                    if (gap) {
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(current))
+                                .name(RESET_EVENT)
+                                .data("{\"sequence\":" + current + "}"));
+                        replay.clear();
+                    }
+                    for (OrderChangeEvent event : replay) {
+                        emitter.send(toSseEvent(event));
+                    }
+                    subscribers.add(emitter);
+                } catch (IOException e) {
+                    emitter.completeWithError(e);
+                }
+            });
+            log.info("Change feed subscriber connected (since={}, replay={}, reset={})", since, replay.size(), gap);
+        }
+        return emitter;
+    }
+
+    /**
+     * Keep idle connections (and proxies in between) alive
+     */
+    @Scheduled(fixedDelayString = "${order.changes.heartbeat-ms:15000}")
+    public void heartbeat() {
+        dispatcher.execute(() -> subscribers.forEach(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException e) {
+                subscribers.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(SseEmitter::complete);
+        dispatcher.shutdownNow();
+    }
+
+    private void send(SseEmitter emitter, OrderChangeEvent event) {
+        try {
+            emitter.send(toSseEvent(event));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping change feed subscriber: {}", e.getMessage());
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private SseEmitter.SseEventBuilder toSseEvent(OrderChangeEvent event) throws JsonProcessingException {
+        return SseEmitter.event()
+                .id(String.valueOf(event.getSequence()))
+                .name(CHANGE_EVENT)
+                .data(eventWriter.writeValueAsString(event));
+    }
+}
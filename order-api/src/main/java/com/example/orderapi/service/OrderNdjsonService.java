@@ -0,0 +1,210 @@
+package com.example.orderapi.service;
+
+import com.example.orderapi.dto.ImportResult;
+import com.example.orderapi.model.Order;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Streams orders in and out as NDJSON (one compact JSON document per line).
+ * Neither direction materializes the full dataset: exports write order by order,
+ * imports hold at most one batch in memory.
+ */
+@Slf4j
+@Service
+public class OrderNdjsonService {
+
+    private final OrderService orderService;
+    private final Validator validator;
+    private final ObjectWriter orderWriter;
+    private final ObjectReader orderReader;
+
+    @Value("${order.import.batch-size:500}")
+    private int importBatchSize;
+
+    @Value("${order.import.max-errors:100}")
+    private int maxReportedErrors;
+
+    @Value("${order.export.flush-every:1000}")
+    private int exportFlushEvery;
+
+    public OrderNdjsonService(OrderService orderService, Validator validator, ObjectMapper objectMapper) {
+        this.orderService = orderService;
+        this.validator = validator;
+        // NDJSON must stay one document per line, regardless of spring.jackson indent-output
+        this.orderWriter = objectMapper.writerFor(Order.class).without(SerializationFeature.INDENT_OUTPUT);
+        this.orderReader = objectMapper.readerFor(Order.class);
+    }
+
+    /**
+     * Write every order as one NDJSON line.
+     * Output is flushed periodically so the client receives chunks while the export is running.
+     */
+    public void exportOrders(OutputStream outputStream) throws IOException {
+        long count = 0;
+        BufferedOutputStream buffered = new BufferedOutputStream(outputStream, 64 * 1024);
+        try (JsonGenerator generator = orderWriter.createGenerator(buffered);
+             Stream<Order> orders = orderService.streamAllOrders()) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            Iterator<Order> iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                orderWriter.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                if (++count % exportFlushEvery == 0) {
+                    generator.flush();
+                }
+            }
+            generator.flush();
+        }
+        buffered.flush();
+        log.info("Exported {} orders as NDJSON", count);
+    }
+
+    /**
+     * Read NDJSON orders from the request body and insert them in batches.
+     * Lines are pulled from the stream only after the previous batch is stored, so a fast
+     * client is throttled by TCP flow control instead of filling the heap.
+     * Malformed or invalid lines are rejected individually without aborting the import.
+     */
+    public ImportResult importOrders(InputStream inputStream) throws IOException {
+        long startNanos = System.nanoTime();
+        CountingInputStream counting = new CountingInputStream(inputStream);
+        List<Order> batch = new ArrayList<>(importBatchSize);
+        List<String> errors = new ArrayList<>();
+        long received = 0;
+        long imported = 0;
+        long rejected = 0;
+        long lineNumber = 0;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(counting, StandardCharsets.UTF_8), 64 * 1024)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                received++;
+
+                String error = parseInto(line, batch);
+                if (error != null) {
+                    rejected++;
+                    if (errors.size() < maxReportedErrors) {
+                        errors.add("line " + lineNumber + ": " + error);
+                    }
+                    continue;
+                }
+
+                if (batch.size() >= importBatchSize) {
+                    imported += orderService.importOrders(batch);
+                    batch.clear();
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            imported += orderService.importOrders(batch);
+        }
+
+        long elapsedNanos = Math.max(System.nanoTime() - startNanos, 1);
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        long bytesRead = counting.getCount();
+
+        log.info("Imported {} of {} orders ({} rejected, {} bytes) in {} ms",
+                imported, received, rejected, bytesRead, elapsedNanos / 1_000_000);
+
+        return ImportResult.builder()
+                .received(received)
+                .imported(imported)
+                .rejected(rejected)
+                .bytesRead(bytesRead)
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .ordersPerSecond(imported / seconds)
+                .megabytesPerSecond(bytesRead / (1024.0 * 1024.0) / seconds)
+                .errors(errors)
+                .build();
+    }
+
+    /**
+     * Parse and validate a single line, adding it to the batch.
+     * Returns an error description when the line is rejected.
+     */
+    private String parseInto(String line, List<Order> batch) {
+        Order order;
+        try {
+            order = orderReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            return "malformed JSON (" + e.getOriginalMessage() + ")";
+        }
+
+        Set<ConstraintViolation<Order>> violations = validator.validate(order);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+
+        batch.add(order);
+        return null;
+    }
+
+    /**
+     * Counts bytes consumed from the request body for throughput reporting
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -1,34 +1,107 @@
 package com.example.orderapi.service;
 
+import com.example.orderapi.dto.BatchAddressUpdateRequest;
+import com.example.orderapi.dto.BatchItemResult;
+import com.example.orderapi.dto.BatchResponse;
+import com.example.orderapi.dto.OrderChangeEvent;
 import com.example.orderapi.exception.OrderNotFoundException;
 import com.example.orderapi.model.Order;
 import com.example.orderapi.model.OrderItem;
 import com.example.orderapi.model.OrderStatus;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 @Service
 public class OrderService {
 
+    // In-memory order store, ordered by ID so exports are stable
+    private final ConcurrentNavigableMap<Long, Order> orderStore = new ConcurrentSkipListMap<>();
+
+    // Last ID handed out; kept at or above the highest stored ID so a new order never replaces another
+    private final AtomicLong idSequence = new AtomicLong();
+
+    // Distinguishes order versions of this store instance from those of earlier runs
+    private final String storeEpoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final LocalDateTime dummyOrderDate = LocalDateTime.now();
+
+    private final OrderChangeFeed changeFeed;
+
+    public OrderService(OrderChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+        seedDummyOrders().forEach(order -> orderStore.put(order.getId(), order));
+        idSequence.set(orderStore.lastKey());
+    }
+
     /**
-     * Create a new order - returns dummy success response
+     * Create a new order - stores it with a generated ID and timestamp
      */
     public Order createOrder(Order order) {
-        // Generate dummy order with ID and timestamp
-        order.setId(generateDummyId());
         order.setOrderDate(LocalDateTime.now());
         order.setStatus(OrderStatus.PENDING);
+        order.setVersion(1L);
+        insertWithNewId(order);
+        changeFeed.publish(order.getId(), OrderChangeEvent.Type.CREATED, order.getVersion());
         return order;
     }
 
     /**
-     * Get all orders - returns dummy list
+     * Get all orders - returns a snapshot of the store
      */
     public List<Order> getAllOrders() {
+        return new ArrayList<>(orderStore.values());
+    }
+
+    /**
+     * Stream all orders without copying the store.
+     * Iteration is weakly consistent, so concurrent imports never block an export.
+     */
+    public Stream<Order> streamAllOrders() {
+        return orderStore.values().stream();
+    }
+
+    /**
+     * Insert a batch of orders into the store.
+     * Orders keep their ID when present (e.g. re-importing an export), otherwise one is generated.
+     */
+    public int importOrders(Collection<Order> orders) {
+        for (Order order : orders) {
+            if (order.getOrderDate() == null) {
+                order.setOrderDate(LocalDateTime.now());
+            }
+            if (order.getId() == null) {
+                order.setVersion(1L);
+                insertWithNewId(order);
+            } else {
+                // Generated IDs continue above explicitly imported ones
+                idSequence.accumulateAndGet(order.getId(), Math::max);
+                orderStore.compute(order.getId(), (key, existing) -> {
+                    order.setVersion(existing != null ? nextVersion(existing) : 1L);
+                    return order;
+                });
+            }
+            changeFeed.publish(order.getId(), OrderChangeEvent.Type.IMPORTED, order.getVersion());
+        }
+        return orders.size();
+    }
+
+    /**
+     * Initial dummy orders the store is seeded with
+     */
+    private List<Order> seedDummyOrders() {
         List<Order> orders = new ArrayList<>();
 
         // Create dummy order 1
@@ -52,6 +125,7 @@ public class OrderService {
                 .status(OrderStatus.CONFIRMED)
                 .address("ev")
                 .orderDate(LocalDateTime.now().minusDays(2))
+                .version(1L)
                 .build());
 
         // Create dummy order 2
@@ -70,60 +144,50 @@ public class OrderService {
                 .status(OrderStatus.SHIPPED)
                 .address("iş")
                 .orderDate(LocalDateTime.now().minusDays(1))
+                .version(1L)
                 .build());
 
         return orders;
     }
 
     /**
-     * Get order by ID - returns dummy order
+     * Get order by ID - returns the stored order, or a dummy order for unknown IDs
      */
     public Order getOrderById(Long id) {
         if (id == null || id <= 0) {
             throw new OrderNotFoundException("Order with ID " + id + " not found");
         }
 
-        // Return dummy order
-        return Order.builder()
-                .id(id)
-                .customerName("John Doe")
-                .customerEmail("john.doe@example.com")
-                .items(List.of(
-                        OrderItem.builder()
-                                .itemName("Sample Product")
-                                .quantity(1)
-                                .price(new BigDecimal("99.99"))
-                                .build()
-                ))
-                .totalAmount(new BigDecimal("99.99"))
-                .status(OrderStatus.PENDING)
-                .address("ev")
-                .orderDate(LocalDateTime.now())
-                .build();
+        Order stored = orderStore.get(id);
+        return stored != null ? stored : dummyOrder(id);
     }
 
     /**
-     * Update order - returns dummy updated order
+     * Update order - replaces the stored order and bumps its version
      */
     public Order updateOrder(Long id, Order order) {
         if (id == null || id <= 0) {
             throw new OrderNotFoundException("Order with ID " + id + " not found");
         }
 
-        // Return updated dummy order
         order.setId(id);
         order.setOrderDate(LocalDateTime.now());
-        return order;
+        Order updated = orderStore.compute(id, (key, existing) -> {
+            order.setVersion(nextVersion(existing != null ? existing : dummyOrder(id)));
+            return order;
+        });
+        changeFeed.publish(id, OrderChangeEvent.Type.UPDATED, updated.getVersion());
+        return updated;
     }
 
     /**
-     * Cancel order - simulates successful cancellation
+     * Cancel order - marks the order as cancelled
      */
     public void cancelOrder(Long id) {
         if (id == null || id <= 0) {
             throw new OrderNotFoundException("Order with ID " + id + " not found");
         }
-        // Simulate successful cancellation (do nothing)
+        mutate(id, OrderChangeEvent.Type.CANCELLED, order -> order.status(OrderStatus.CANCELLED));
     }
 
     /**
@@ -133,8 +197,41 @@ public class OrderService {
         if (id == null || id <= 0) {
             throw new OrderNotFoundException("Order with ID " + id + " not found");
         }
+        return mutate(id, OrderChangeEvent.Type.UPDATED, order -> order.address(address));
+    }
 
-        // Return dummy order with updated address
+    /**
+     * Strong validator for the current representation of an order.
+     * Includes the store epoch so versions from a previous run never collide.
+     */
+    public String versionTag(Order order) {
+        return storeEpoch + "-" + order.getId() + "-" + order.getVersion();
+    }
+
+    /**
+     * Apply a change to the stored order (or the dummy order for unknown IDs) as a new version
+     * and publish it on the change feed
+     */
+    private Order mutate(Long id, OrderChangeEvent.Type type, UnaryOperator<Order.OrderBuilder> change) {
+        Order updated = orderStore.compute(id, (key, existing) -> {
+            Order current = existing != null ? existing : dummyOrder(id);
+            return change.apply(current.toBuilder())
+                    .version(nextVersion(current))
+                    .build();
+        });
+        changeFeed.publish(id, type, updated.getVersion());
+        return updated;
+    }
+
+    private long nextVersion(Order current) {
+        return current.getVersion() != null ? current.getVersion() + 1 : 1;
+    }
+
+    /**
+     * Dummy order returned for IDs that are not in the store.
+     * Uses a fixed timestamp so repeated reads yield the same representation.
+     */
+    private Order dummyOrder(Long id) {
         return Order.builder()
                 .id(id)
                 .customerName("John Doe")
@@ -148,15 +245,76 @@ public class OrderService {
                 ))
                 .totalAmount(new BigDecimal("99.99"))
                 .status(OrderStatus.PENDING)
-                .address(address)
-                .orderDate(LocalDateTime.now())
+                .address("ev")
+                .orderDate(dummyOrderDate)
+                .version(0L)
                 .build();
     }
 
     /**
-     * Generate a dummy ID
+     * Get several orders at once - duplicate IDs are returned once.
+     * Once the caller's deadline has passed the remaining orders are not read and are reported with 504.
+     */
+    public BatchResponse batchGetOrders(List<Long> ids) {
+        return BatchResponse.of(new LinkedHashSet<>(ids).stream()
+                .map(id -> RequestDeadline.isExpired()
+                        ? BatchItemResult.builder()
+                                .id(id)
+                                .status(HttpStatus.GATEWAY_TIMEOUT.value())
+                                .error("Request deadline exceeded")
+                                .build()
+                        : runBatchItem(id, this::getOrderById))
+                .toList());
+    }
+
+    /**
+     * Cancel several orders at once - duplicate IDs are cancelled once
+     */
+    public BatchResponse batchCancelOrders(List<Long> ids) {
+        return BatchResponse.of(new LinkedHashSet<>(ids).stream()
+                .map(id -> runBatchItem(id, orderId -> {
+                    cancelOrder(orderId);
+                    return null;
+                }))
+                .toList());
+    }
+
+    /**
+     * Update the delivery address of several orders at once, in request order
+     */
+    public BatchResponse batchUpdateAddress(List<BatchAddressUpdateRequest.AddressUpdate> updates) {
+        return BatchResponse.of(updates.stream()
+                .map(update -> runBatchItem(update.getId(), id -> updateAddress(id, update.getAddress())))
+                .toList());
+    }
+
+    /**
+     * Run a single-order operation and turn its outcome into a batch item,
+     * so one missing order does not fail the whole batch
+     */
+    private BatchItemResult runBatchItem(Long id, Function<Long, Order> operation) {
+        try {
+            Order order = operation.apply(id);
+            return BatchItemResult.builder()
+                    .id(id)
+                    .status(HttpStatus.OK.value())
+                    .order(order)
+                    .build();
+        } catch (OrderNotFoundException e) {
+            return BatchItemResult.builder()
+                    .id(id)
+                    .status(HttpStatus.NOT_FOUND.value())
+                    .error(e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Store an order under the next free ID; an ID taken concurrently by an import is skipped
      */
-    private Long generateDummyId() {
-        return System.currentTimeMillis() % 10000;
+    private void insertWithNewId(Order order) {
+        do {
+            order.setId(idSequence.incrementAndGet());
+        } while (orderStore.putIfAbsent(order.getId(), order) != null);
     }
 }